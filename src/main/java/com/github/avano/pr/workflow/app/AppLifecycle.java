@@ -9,9 +9,11 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.dataformat.javaprop.JavaPropsMapper;
 import com.github.avano.pr.workflow.config.Configuration;
 import com.github.avano.pr.workflow.config.RepositoryConfig;
+import com.github.avano.pr.workflow.config.RepositoryConfigChangedEvent;
 import com.github.avano.pr.workflow.util.IOUtils;
 
 import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Event;
 import javax.enterprise.event.Observes;
 import javax.inject.Inject;
 
@@ -46,6 +48,9 @@ public class AppLifecycle {
     @Inject
     Configuration configuration;
 
+    @Inject
+    Event<RepositoryConfigChangedEvent> configChanged;
+
     void onStart(@Observes StartupEvent ev) {
         mapper = new JavaPropsMapper();
         mapper.enable(DeserializationFeature.ACCEPT_SINGLE_VALUE_AS_ARRAY);
@@ -82,6 +87,7 @@ public class AppLifecycle {
                 String action = configuration.repositoryConfig(rcfg.repository()) == null ? "Created" : "Updated";
                 configuration.addRepositoryConfigFile(file.toAbsolutePath().toString(), rcfg);
                 LOG.info("{} repository config for repository {}", action, rcfg.repository());
+                configChanged.fire(new RepositoryConfigChangedEvent(rcfg.repository()));
             }
         } catch (JsonProcessingException e) {
             LOG.warn("Unable to parse {} - {}", file.toAbsolutePath(), e.getMessage());
@@ -137,8 +143,13 @@ public class AppLifecycle {
                         }
                         if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
                             if (event.context().toString().endsWith("." + configuration.repositoryConfigFileExtension())) {
-                                configuration.deleteRepositoryConfigFile(event.context().toString());
+                                // Configs are stored under the absolute path of the file
+                                final String file = Paths.get(configuration.repositoryConfigDir(), event.context().toString())
+                                    .toAbsolutePath().toString();
+                                final String repository = Configuration.repositoryConfigFiles.get(file);
+                                configuration.deleteRepositoryConfigFile(file);
                                 LOG.info("Deleted repository config for file {}", event.context());
+                                configChanged.fire(new RepositoryConfigChangedEvent(repository));
                             }
                         }
                     }
@@ -0,0 +1,106 @@
+package com.github.avano.pr.workflow.bus;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.avano.pr.workflow.config.Configuration;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Striped execution of the handlers, so that the events of one pull request are processed strictly in order.
+ * <p>
+ * Each (repository, pull request number) pair is assigned to one of the configured number of lanes, and each lane processes its tasks one
+ * by one on its own thread. The events of the pull requests in the different lanes are processed in parallel.
+ */
+@ApplicationScoped
+public class PullRequestLanes {
+    private static final Logger LOG = LoggerFactory.getLogger(PullRequestLanes.class);
+
+    @Inject
+    Configuration configuration;
+
+    @Inject
+    MeterRegistry registry;
+
+    private Lane[] lanes = new Lane[0];
+
+    @PostConstruct
+    void init() {
+        start(configuration.lanes());
+    }
+
+    void start(int count) {
+        lanes = new Lane[Math.max(0, count)];
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = new Lane(i);
+        }
+        LOG.debug("Started {} pull request lanes", lanes.length);
+    }
+
+    @PreDestroy
+    void stop() {
+        for (Lane lane : lanes) {
+            lane.executor.shutdown();
+        }
+    }
+
+    /**
+     * Executes the task in the lane of the given pull request, after all tasks previously submitted for the same pull request. Without any
+     * lanes configured, the task is executed right away.
+     *
+     * @param repository repository full name
+     * @param number pull request number
+     * @param task task to execute
+     */
+    public void execute(String repository, int number, Runnable task) {
+        if (lanes.length == 0) {
+            task.run();
+            return;
+        }
+        lanes[Math.floorMod(31 * repository.hashCode() + number, lanes.length)].submit(task);
+    }
+
+    private final class Lane {
+        private final ExecutorService executor;
+        private final AtomicInteger depth = new AtomicInteger();
+        private final Timer wait;
+
+        private Lane(int index) {
+            executor = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "pr-lane-" + index);
+                t.setDaemon(true);
+                return t;
+            });
+            final Tags tags = Tags.of("lane", String.valueOf(index));
+            registry.gauge("prw.lanes.queue", tags, depth);
+            wait = registry.timer("prw.lanes.wait", tags);
+        }
+
+        private void submit(Runnable task) {
+            final long submitted = System.nanoTime();
+            depth.incrementAndGet();
+            executor.execute(() -> {
+                depth.decrementAndGet();
+                wait.record(System.nanoTime() - submitted, TimeUnit.NANOSECONDS);
+                try {
+                    task.run();
+                } catch (Exception e) {
+                    LOG.error("Unable to process task in lane {}", Thread.currentThread().getName(), e);
+                }
+            });
+        }
+    }
+}
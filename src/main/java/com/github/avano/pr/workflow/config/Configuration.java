@@ -1,6 +1,9 @@
 package com.github.avano.pr.workflow.config;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import io.smallrye.config.ConfigMapping;
@@ -20,6 +23,54 @@ public interface Configuration {
     @WithDefault("repoconfig")
     String repositoryConfigFileExtension();
 
+    @WithDefault("./data")
+    String dataDir();
+
+    @WithDefault("direct")
+    IngestionMode ingestionMode();
+
+    @WithDefault("blocking")
+    WebhookEndpointMode webhookEndpoint();
+
+    @WithDefault("5s")
+    Duration mergeCoalesceWindow();
+
+    @WithDefault("5m")
+    Duration repositoryCacheTtl();
+
+    @WithDefault("24h")
+    Duration requiredChecksCacheTtl();
+
+    @WithDefault("30m")
+    Duration pullRequestIndexCheckInterval();
+
+    @WithDefault("true")
+    boolean mergeSnapshotGraphql();
+
+    @WithDefault("0.2")
+    double rateLimitReserve();
+
+    @WithDefault("16")
+    int lanes();
+
+    JournalConfig journal();
+
+    DedupConfig dedup();
+
+    AdmissionConfig admission();
+
+    GitHubCacheConfig githubCache();
+
+    GitHubHttpConfig githubHttp();
+
+    MergeQueueConfig mergeQueue();
+
+    MergeRecheckConfig mergeRecheck();
+
+    MergeReadsConfig mergeReads();
+
+    ReconciliationConfig reconciliation();
+
     default void addRepositoryConfigFile(String file, RepositoryConfig repositoryConfig) {
         repositoryConfigFiles.put(file, repositoryConfig.repository());
         repositoryConfigs.put(repositoryConfig.repository(), repositoryConfig);
@@ -33,4 +84,211 @@ public interface Configuration {
     default RepositoryConfig repositoryConfig(String repository) {
         return repositoryConfigs.get(repository);
     }
+
+    default List<String> repositories() {
+        return new ArrayList<>(repositoryConfigs.keySet());
+    }
+
+    /**
+     * Configuration of the ingestion journal used in the {@link IngestionMode#JOURNAL} ingestion mode.
+     */
+    interface JournalConfig {
+        /**
+         * Size in bytes after which a new journal segment is started.
+         */
+        @WithDefault("67108864")
+        long segmentSize();
+
+        /**
+         * Max number of deliveries written with a single fsync, or replayed before the checkpoint is saved.
+         */
+        @WithDefault("256")
+        int batchSize();
+    }
+
+    /**
+     * Configuration of the webhook delivery deduplication.
+     */
+    interface DedupConfig {
+        /**
+         * Max number of remembered delivery IDs.
+         */
+        @WithDefault("10000")
+        int maxEntries();
+
+        /**
+         * How long the delivery ID is remembered.
+         */
+        @WithDefault("24h")
+        Duration ttl();
+
+        /**
+         * How often the delivery IDs are saved to the data directory.
+         */
+        @WithDefault("60s")
+        Duration snapshotInterval();
+    }
+
+    /**
+     * Configuration of the webhook admission control. The per-repository limits are part of the repository configuration.
+     */
+    interface AdmissionConfig {
+        /**
+         * Max number of webhook events per second processed for all the repositories together.
+         */
+        @WithDefault("50")
+        double globalRateLimit();
+
+        /**
+         * Number of webhook events that can be processed at once over the global rate limit.
+         */
+        @WithDefault("200")
+        int globalRateLimitBurst();
+
+        /**
+         * Max number of deferred webhook events, events over this limit are rejected.
+         */
+        @WithDefault("1000")
+        int queueSize();
+    }
+
+    /**
+     * Configuration of the cache of the GitHub API responses revalidated using the conditional requests.
+     */
+    interface GitHubCacheConfig {
+        /**
+         * Whether the GitHub API responses are cached.
+         */
+        @WithDefault("true")
+        boolean enabled();
+
+        /**
+         * Max size in bytes of the cached response bodies kept in memory.
+         */
+        @WithDefault("33554432")
+        long maxSize();
+
+        /**
+         * Whether the responses evicted from memory are stored in the data directory.
+         */
+        @WithDefault("false")
+        boolean diskSpill();
+
+        /**
+         * Max size in bytes of the cached responses stored in the data directory.
+         */
+        @WithDefault("268435456")
+        long diskMaxSize();
+    }
+
+    /**
+     * Configuration of the HTTP client shared by all GitHub clients.
+     */
+    interface GitHubHttpConfig {
+        /**
+         * Whether HTTP/2 is used when the server supports it.
+         */
+        @WithDefault("true")
+        boolean http2();
+
+        /**
+         * Timeout of opening a new connection.
+         */
+        @WithDefault("10s")
+        Duration connectTimeout();
+
+        /**
+         * Timeout of a single request, until the response headers are received.
+         */
+        @WithDefault("60s")
+        Duration requestTimeout();
+
+        /**
+         * How long the idle connections are kept in the pool.
+         */
+        @WithDefault("5m")
+        Duration keepAlive();
+
+        /**
+         * Max number of the idle HTTP/1.1 connections kept in the pool, 0 for no limit.
+         */
+        @WithDefault("0")
+        int maxConnections();
+    }
+
+    /**
+     * Configuration of the merge queues of the base branches.
+     */
+    interface MergeQueueConfig {
+        /**
+         * Whether the checks of the next pull request in the queue are taken as valid when the pull request already contains the head of
+         * the previously merged one, instead of requiring it to be up to date with the base branch.
+         */
+        @WithDefault("false")
+        boolean speculative();
+    }
+
+    /**
+     * Configuration of the merge attempts repeated while GitHub computes the mergeable state.
+     */
+    interface MergeRecheckConfig {
+        /**
+         * Delay of the first repeated attempt, doubled with each next attempt.
+         */
+        @WithDefault("2s")
+        Duration initialDelay();
+
+        /**
+         * Max delay between the attempts.
+         */
+        @WithDefault("1m")
+        Duration maxDelay();
+
+        /**
+         * Max number of the repeated attempts for one pull request.
+         */
+        @WithDefault("8")
+        int maxAttempts();
+    }
+
+    /**
+     * Configuration of the GitHub reads of one merge evaluation that are done concurrently.
+     */
+    interface MergeReadsConfig {
+        /**
+         * Max number of the reads of one evaluation running at the same time, with 1 the reads are done one after another.
+         */
+        @WithDefault("4")
+        int concurrency();
+
+        /**
+         * Time from the start of the evaluation in which all its reads need to finish.
+         */
+        @WithDefault("10s")
+        Duration deadline();
+    }
+
+    /**
+     * Configuration of the periodic reconciliation of the open pull requests, that catches up with the missed webhook deliveries.
+     */
+    interface ReconciliationConfig {
+        /**
+         * How often the open pull requests are reconciled.
+         */
+        @WithDefault("10m")
+        Duration interval();
+
+        /**
+         * Max number of the GitHub API calls of one reconciliation cycle for all repositories, 0 disables the reconciliation.
+         */
+        @WithDefault("50")
+        int budget();
+
+        /**
+         * Time after the last update of the pull request after which it is reconciled, so that the events still being delivered are not
+         * duplicated.
+         */
+        @WithDefault("10m")
+        Duration staleAfter();
+    }
 }
@@ -4,6 +4,8 @@ public class Constants {
     public static final String CHECKRUN_EVENT = "check_run";
     public static final String PULL_REQUEST_EVENT = "pull_request";
     public static final String REVIEW_EVENT = "pull_request_review";
+    public static final String REPOSITORY_EVENT = "repository";
+    public static final String BRANCH_PROTECTION_RULE_EVENT = "branch_protection_rule";
     public static final String STATUS_EVENT = "status";
 
     public static final String PR_UPDATED = "pr.updated";
@@ -24,6 +26,8 @@ public class Constants {
 
     public static final String PR_REOPENED = "pr.reopened";
 
+    public static final String PR_RECONCILE = "pr.reconcile";
+
     public static final String STATUS_CHANGED = "status.changed";
 
     public static final String CHECK_RUN_FINISHED = "run.finished";
@@ -33,14 +37,10 @@ public class Constants {
     public static final String EVENT_RECEIVED_MESSAGE = "Event received from destination: ";
 
 
+    public static final String JSON_ACTION = "action";
+
     public static final String JSON_REPOSITORY = "repository";
     public static final String JSON_REPOSITORY_NAME = "full_name";
 
-    public static final String JSON_REQUESTED_REVIEWER = "requested_reviewer";
-    public static final String JSON_REQUESTED_REVIEWER_LOGIN = "login";
-
-    public static final String JSON_LABEL = "label";
-    public static final String JSON_LABEL_NAME = "name";
-
     public static final String DEPENDABOT_NAME = "dependabot[bot]";
 }
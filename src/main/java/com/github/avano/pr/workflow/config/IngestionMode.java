@@ -0,0 +1,15 @@
+package com.github.avano.pr.workflow.config;
+
+/**
+ * All valid values for the webhook ingestion mode.
+ */
+public enum IngestionMode {
+    /**
+     * Deliveries are published to the event bus directly by the webhook endpoint.
+     */
+    DIRECT,
+    /**
+     * Deliveries are appended to the ingestion journal, acknowledged right away and replayed to the event bus asynchronously.
+     */
+    JOURNAL
+}
@@ -58,6 +58,10 @@ public class RepositoryConfig {
 
     private boolean automergeOwnerPRs = false;
 
+    private double rateLimit = 10;
+
+    private int rateLimitBurst = 100;
+
     public AuthMethod auth() {
         return auth;
     }
@@ -230,6 +234,22 @@ public class RepositoryConfig {
         this.automergeOwnerPRs = automergeOwnerPRs;
     }
 
+    public double rateLimit() {
+        return rateLimit;
+    }
+
+    public void setRateLimit(double rateLimit) {
+        this.rateLimit = rateLimit;
+    }
+
+    public int rateLimitBurst() {
+        return rateLimitBurst;
+    }
+
+    public void setRateLimitBurst(int rateLimitBurst) {
+        this.rateLimitBurst = rateLimitBurst;
+    }
+
     public boolean useChecks() {
         return auth() == AuthMethod.APP;
     }
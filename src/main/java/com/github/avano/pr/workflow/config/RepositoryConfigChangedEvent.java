@@ -0,0 +1,21 @@
+package com.github.avano.pr.workflow.config;
+
+/**
+ * CDI event fired when a repository configuration was created, updated or deleted.
+ */
+public class RepositoryConfigChangedEvent {
+    private final String repository;
+
+    public RepositoryConfigChangedEvent(String repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * Gets the repository whose configuration changed.
+     *
+     * @return repository full name or null if it is not known
+     */
+    public String repository() {
+        return repository;
+    }
+}
@@ -0,0 +1,15 @@
+package com.github.avano.pr.workflow.config;
+
+/**
+ * All valid values for the webhook endpoint implementation.
+ */
+public enum WebhookEndpointMode {
+    /**
+     * RESTEasy resource processing the deliveries on a worker thread.
+     */
+    BLOCKING,
+    /**
+     * Vert.x route processing the deliveries on the event loop.
+     */
+    REACTIVE
+}
@@ -0,0 +1,293 @@
+package com.github.avano.pr.workflow.gh;
+
+import org.kohsuke.github.GHRateLimit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.avano.pr.workflow.config.AuthMethod;
+import com.github.avano.pr.workflow.config.Configuration;
+import com.github.avano.pr.workflow.config.RepositoryConfig;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+
+/**
+ * Scheduler of the GitHub API calls that keeps the rate limit for the calls that matter the most.
+ * <p>
+ * The remaining rate limit and its reset time are tracked for each installation, or for each user with the token authentication, from the
+ * rate limit headers of the responses. Each {@link ApiPriority} keeps a part of the limit in reserve for the higher priorities, so when the
+ * remaining limit drops below the reserve, the call is deferred. The deferred calls are executed in the priority order after the limit is
+ * reset, and until then the new calls with the same or lower priority are deferred as well, so that they don't overtake them.
+ * <p>
+ * The deferred calls are executed by the scheduler thread, outside of the lane of the pull request, so they are not ordered with the
+ * other events of the pull request. The calls still deferred when the application stops are dropped.
+ */
+@ApplicationScoped
+public class ApiCallScheduler {
+    private static final Logger LOG = LoggerFactory.getLogger(ApiCallScheduler.class);
+    private static final long DRAIN_INTERVAL_MS = 1000L;
+
+    @Inject
+    Configuration configuration;
+
+    @Inject
+    MeterRegistry registry;
+
+    private final Map<String, Budget> budgets = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    // Part of the limit kept in reserve by the lowest priority
+    double reserve;
+    private ScheduledExecutorService drainer;
+
+    @PostConstruct
+    void init() {
+        reserve = configuration.rateLimitReserve();
+        drainer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "api-call-drainer");
+            t.setDaemon(true);
+            return t;
+        });
+        drainer.scheduleWithFixedDelay(this::drain, DRAIN_INTERVAL_MS, DRAIN_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (drainer != null) {
+            drainer.shutdown();
+        }
+        budgets.values().forEach(budget -> {
+            final List<Deferred> dropped = budget.drop();
+            if (!dropped.isEmpty()) {
+                LOG.warn("Dropping {} deferred GitHub API calls of {}: {}", dropped.size(), budget.name,
+                    dropped.stream().map(d -> d.description).collect(Collectors.joining(", ")));
+                dropped.forEach(d -> registry.counter("prw.github.ratelimit.dropped", "budget", budget.name, "priority",
+                    d.priority.name().toLowerCase()).increment());
+            }
+        });
+    }
+
+    /**
+     * Executes the call right away, or defers it when the remaining rate limit is needed for the calls with higher priority.
+     * <p>
+     * The call needs to handle its errors, as it might be executed later by the scheduler.
+     *
+     * @param client client for the repository
+     * @param priority priority of the call
+     * @param description description of the call used in the logs
+     * @param call API call
+     */
+    public void submit(GHClient client, ApiPriority priority, String description, Runnable call) {
+        submit(client, priority, description, call, call);
+    }
+
+    /**
+     * Executes the call right away, or defers the deferred variant of the call when the remaining rate limit is needed for the calls with
+     * higher priority. The deferred variant can read again the state that might have changed while the call was deferred.
+     *
+     * @param client client for the repository
+     * @param priority priority of the call
+     * @param description description of the call used in the logs
+     * @param call API call executed right away
+     * @param deferredCall API call executed when the call was deferred
+     */
+    public void submit(GHClient client, ApiPriority priority, String description, Runnable call, Runnable deferredCall) {
+        submit(budgetName(client.getRepositoryConfiguration()), client::getRateLimit, priority, description, call, deferredCall);
+    }
+
+    void submit(String budgetName, Supplier<GHRateLimit.Record> rateLimit, ApiPriority priority, String description, Runnable call) {
+        submit(budgetName, rateLimit, priority, description, call, call);
+    }
+
+    void submit(String budgetName, Supplier<GHRateLimit.Record> rateLimit, ApiPriority priority, String description, Runnable call,
+        Runnable deferredCall) {
+        final Budget budget = budgets.computeIfAbsent(budgetName, this::createBudget);
+        budget.observe(rateLimit.get());
+        final Deferred deferred = new Deferred(priority, sequence.incrementAndGet(), description, rateLimit, deferredCall);
+        if (budget.acquireOrDefer(deferred)) {
+            execute(budget, description, rateLimit, call);
+        } else {
+            LOG.info("Deferring {} until the rate limit of {} is reset at {}", description, budgetName, budget.resetAt());
+            registry.counter("prw.github.ratelimit.deferred", "budget", budgetName, "priority", priority.name().toLowerCase()).increment();
+        }
+    }
+
+    /**
+     * Returns whether the remaining rate limit is above the whole reserve and there are no deferred calls, so that the background work can
+     * call the API without taking the limit from the calls of the handlers.
+     *
+     * @param client client for the repository
+     * @return true/false, true when the rate limit is not known yet
+     */
+    public boolean isAboveReserve(GHClient client) {
+        final Budget budget = budgets.computeIfAbsent(budgetName(client.getRepositoryConfiguration()), this::createBudget);
+        budget.observe(client.getRateLimit());
+        return budget.isAboveReserve();
+    }
+
+    /**
+     * Executes the deferred calls for which there is enough remaining rate limit, in the priority order.
+     */
+    void drain() {
+        for (Budget budget : budgets.values()) {
+            Deferred deferred;
+            while ((deferred = budget.poll()) != null) {
+                LOG.debug("Executing deferred {}", deferred.description);
+                execute(budget, deferred.description, deferred.rateLimit, deferred.call);
+            }
+        }
+    }
+
+    private void execute(Budget budget, String description, Supplier<GHRateLimit.Record> rateLimit, Runnable call) {
+        try {
+            call.run();
+        } catch (Exception e) {
+            LOG.error("Unable to execute {}", description, e);
+        }
+        budget.observe(rateLimit.get());
+    }
+
+    private Budget createBudget(String name) {
+        final Budget budget = new Budget(name);
+        registry.gauge("prw.github.ratelimit.remaining", Tags.of("budget", name), budget, Budget::remaining);
+        registry.gauge("prw.github.ratelimit.queue", Tags.of("budget", name), budget, Budget::queueSize);
+        return budget;
+    }
+
+    /**
+     * Gets the name of the rate limit budget used by the repository. All repositories of one installation share the same rate limit.
+     *
+     * @param rcfg repository configuration
+     * @return budget name
+     */
+    static String budgetName(RepositoryConfig rcfg) {
+        if (rcfg.auth() == AuthMethod.APP) {
+            return "installation-" + rcfg.installationId();
+        }
+        return "user-" + (rcfg.user() == null ? rcfg.repository() : rcfg.user());
+    }
+
+    /**
+     * Rate limit of one installation or user, together with the calls deferred until it is reset.
+     */
+    private final class Budget {
+        private final String name;
+        // Guarded by this, limit and reset are 0 when not known
+        private int limit;
+        private int remaining;
+        private long resetEpochSeconds;
+        private final PriorityQueue<Deferred> queue =
+            new PriorityQueue<>(Comparator.<Deferred, ApiPriority>comparing(d -> d.priority).thenComparingLong(d -> d.sequence));
+
+        private Budget(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Updates the budget from the rate limit seen in the last response.
+         *
+         * @param record rate limit record
+         */
+        private synchronized void observe(GHRateLimit.Record record) {
+            if (record == null || record instanceof GHRateLimit.UnknownLimitRecord || record.isExpired()) {
+                return;
+            }
+            if (resetEpochSeconds == 0 || record.getResetEpochSeconds() > resetEpochSeconds) {
+                remaining = record.getRemaining();
+            } else if (record.getResetEpochSeconds() == resetEpochSeconds) {
+                // Responses of the concurrent calls can arrive out of order, the lowest remaining is the most recent one
+                remaining = Math.min(remaining, record.getRemaining());
+            } else {
+                return;
+            }
+            limit = record.getLimit();
+            resetEpochSeconds = record.getResetEpochSeconds();
+        }
+
+        private synchronized boolean acquireOrDefer(Deferred deferred) {
+            final Deferred head = queue.peek();
+            if ((head == null || head.priority.compareTo(deferred.priority) > 0) && acquire(deferred.priority)) {
+                return true;
+            }
+            queue.add(deferred);
+            return false;
+        }
+
+        private synchronized Deferred poll() {
+            if (resetEpochSeconds != 0 && Instant.now().getEpochSecond() >= resetEpochSeconds) {
+                // The new limit is known after the next response
+                remaining = limit;
+                resetEpochSeconds = 0;
+            }
+            final Deferred head = queue.peek();
+            return head != null && acquire(head.priority) ? queue.poll() : null;
+        }
+
+        private boolean acquire(ApiPriority priority) {
+            if (limit == 0) {
+                return true;
+            }
+            if (remaining <= limit * reserve * (priority.ordinal() + 1) / ApiPriority.values().length) {
+                return false;
+            }
+            remaining--;
+            return true;
+        }
+
+        private synchronized boolean isAboveReserve() {
+            return queue.isEmpty() && (limit == 0 || remaining > limit * reserve);
+        }
+
+        private synchronized List<Deferred> drop() {
+            final List<Deferred> dropped = new ArrayList<>(queue);
+            queue.clear();
+            return dropped;
+        }
+
+        private synchronized Instant resetAt() {
+            return resetEpochSeconds == 0 ? null : Instant.ofEpochSecond(resetEpochSeconds);
+        }
+
+        private synchronized int remaining() {
+            return remaining;
+        }
+
+        private synchronized int queueSize() {
+            return queue.size();
+        }
+    }
+
+    private static final class Deferred {
+        private final ApiPriority priority;
+        private final long sequence;
+        private final String description;
+        private final Supplier<GHRateLimit.Record> rateLimit;
+        private final Runnable call;
+
+        private Deferred(ApiPriority priority, long sequence, String description, Supplier<GHRateLimit.Record> rateLimit, Runnable call) {
+            this.priority = priority;
+            this.sequence = sequence;
+            this.description = description;
+            this.rateLimit = rateLimit;
+            this.call = call;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.github.avano.pr.workflow.gh;
+
+/**
+ * Priority of the GitHub API calls that can be deferred by the {@link ApiCallScheduler}, from the highest to the lowest.
+ * <p>
+ * Merges and reads are never deferred, so they always go before any of these.
+ */
+public enum ApiPriority {
+    /**
+     * Creating the check runs.
+     */
+    CHECK_RUN,
+    /**
+     * Requesting the reviews and setting the assignees.
+     */
+    REVIEW,
+    /**
+     * Editing the labels.
+     */
+    LABEL,
+    /**
+     * Posting the comments.
+     */
+    COMMENT
+}
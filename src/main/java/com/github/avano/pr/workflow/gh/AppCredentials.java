@@ -0,0 +1,140 @@
+package com.github.avano.pr.workflow.gh;
+
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.openssl.PEMKeyPair;
+import org.bouncycastle.openssl.PEMParser;
+import org.bouncycastle.openssl.jcajce.JcaPEMKeyConverter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.avano.pr.workflow.config.RepositoryConfig;
+import com.github.avano.pr.workflow.config.RepositoryConfigChangedEvent;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Priority;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.interceptor.Interceptor;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.security.PrivateKey;
+import java.security.Security;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+
+/**
+ * GitHub App credentials used to create the installation tokens.
+ * <p>
+ * Each configured private key is parsed only once and the JWT tokens are reused until shortly before they expire. Both are dropped when
+ * any repository configuration changes, because the key file might have changed as well.
+ */
+@ApplicationScoped
+public class AppCredentials {
+    private static final Logger LOG = LoggerFactory.getLogger(AppCredentials.class);
+    // Max expiration allowed by GitHub
+    static final Duration JWT_EXPIRATION = Duration.ofMinutes(10);
+    static final Duration JWT_REUSE_MARGIN = Duration.ofMinutes(1);
+
+    private final Map<String, PrivateKey> keys = new ConcurrentHashMap<>();
+    private final Map<String, Jwt> jwts = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void init() {
+        if (Security.getProvider(BouncyCastleProvider.PROVIDER_NAME) == null) {
+            Security.addProvider(new BouncyCastleProvider());
+        }
+    }
+
+    // Before the installation tokens are created again with the new configuration
+    void onConfigChanged(@Observes @Priority(Interceptor.Priority.LIBRARY_BEFORE) RepositoryConfigChangedEvent event) {
+        keys.clear();
+        jwts.clear();
+    }
+
+    /**
+     * Gets the JWT token for the application id signed by the configured private key.
+     *
+     * @param rcfg repository configuration
+     * @return JWT token
+     */
+    public String jwt(RepositoryConfig rcfg) {
+        final String id = rcfg.appId() + ":" + rcfg.privateKey();
+        final Jwt jwt = jwts.get(id);
+        if (jwt != null && jwt.isValid()) {
+            return jwt.token;
+        }
+        return jwts.compute(id, (i, existing) -> existing != null && existing.isValid() ? existing : createJWTToken(rcfg)).token;
+    }
+
+    /**
+     * Creates the JWT token for the application id signed by the specified private key.
+     *
+     * @param rcfg repository configuration
+     * @return JWT token
+     */
+    private Jwt createJWTToken(RepositoryConfig rcfg) {
+        final Instant now = Instant.now();
+        final Instant expiresAt = now.plus(JWT_EXPIRATION);
+        LOG.trace("Creating JWT token for app id {}", rcfg.appId());
+        final String token = Jwts.builder()
+            .setIssuedAt(Date.from(now))
+            .setIssuer(rcfg.appId() + "")
+            .setExpiration(Date.from(expiresAt))
+            .signWith(privateKey(rcfg), SignatureAlgorithm.RS256)
+            .compact();
+        return new Jwt(token, expiresAt);
+    }
+
+    /**
+     * Gets the parsed private key from the configured file or base64 encoded value.
+     *
+     * @param rcfg repository configuration
+     * @return {@link java.security.PrivateKey} instance
+     */
+    private PrivateKey privateKey(RepositoryConfig rcfg) {
+        return keys.computeIfAbsent(rcfg.privateKey(), k -> loadKey(rcfg));
+    }
+
+    /**
+     * Loads the private key from specified file.
+     *
+     * @param rcfg repository configuration
+     * @return {@link java.security.PrivateKey} instance
+     */
+    private PrivateKey loadKey(RepositoryConfig rcfg) {
+        LOG.debug("Loading private key for app id {}", rcfg.appId());
+        try (InputStreamReader isr = new InputStreamReader(
+            rcfg.keyIsFile() ? new FileInputStream(rcfg.privateKey()) :
+                new ByteArrayInputStream(Base64.getDecoder().decode(rcfg.privateKey())))) {
+            PEMParser pemParser = new PEMParser(isr);
+            PEMKeyPair keyPair = (PEMKeyPair) pemParser.readObject();
+            JcaPEMKeyConverter converter = new JcaPEMKeyConverter().setProvider(BouncyCastleProvider.PROVIDER_NAME);
+            return converter.getPrivateKey(keyPair.getPrivateKeyInfo());
+        } catch (Exception e) {
+            throw new RuntimeException("Unable to load private key: " + e);
+        }
+    }
+
+    private static final class Jwt {
+        private final String token;
+        private final Instant expiresAt;
+
+        private Jwt(String token, Instant expiresAt) {
+            this.token = token;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isValid() {
+            return Instant.now().plus(JWT_REUSE_MARGIN).isBefore(expiresAt);
+        }
+    }
+}
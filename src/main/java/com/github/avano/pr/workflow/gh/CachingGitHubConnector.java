@@ -0,0 +1,197 @@
+package com.github.avano.pr.workflow.gh;
+
+import org.kohsuke.github.connector.GitHubConnector;
+import org.kohsuke.github.connector.GitHubConnectorRequest;
+import org.kohsuke.github.connector.GitHubConnectorResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.avano.pr.workflow.config.Configuration;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * GitHub API connector that caches the responses with an ETag and revalidates them using the conditional requests.
+ * <p>
+ * When a cached response exists, the request is sent with the <code>If-None-Match</code> header and the <code>304 Not Modified</code>
+ * response, which doesn't count against the GitHub rate limit, is served from the cache. The requests are sent by the
+ * {@link PooledGitHubConnector}.
+ */
+@ApplicationScoped
+public class CachingGitHubConnector implements GitHubConnector {
+    private static final Logger LOG = LoggerFactory.getLogger(CachingGitHubConnector.class);
+    private static final Pattern ID_SEGMENT = Pattern.compile("/([0-9]+|[0-9a-f]{40})(?=/|$)");
+    private static final Pattern REPOSITORY_PATH = Pattern.compile("^/repos/[^/]+/[^/]+");
+
+    @Inject
+    Configuration configuration;
+
+    @Inject
+    MeterRegistry registry;
+
+    @Inject
+    PooledGitHubConnector delegate;
+
+    private ResponseCache cache;
+
+    @PostConstruct
+    void init() {
+        final Configuration.GitHubCacheConfig config = configuration.githubCache();
+        if (config.enabled()) {
+            cache = new ResponseCache(config.maxSize(), config.diskSpill() ? Paths.get(configuration.dataDir(), "github-cache") : null,
+                config.diskMaxSize());
+            registry.gauge("prw.github.cache.size", cache, ResponseCache::size);
+        }
+    }
+
+    @Override
+    public GitHubConnectorResponse send(GitHubConnectorRequest request) throws IOException {
+        if (cache == null || !"GET".equals(request.method())) {
+            return delegate.send(request);
+        }
+
+        final String key = request.url() + " " + request.header("Accept");
+        final String endpoint = endpoint(request.url());
+        final ResponseCache.Entry cached = cache.get(key);
+        final GitHubConnectorResponse response = delegate.send(cached == null ? request : new ConditionalRequest(request, cached.etag));
+
+        if (cached != null && response.statusCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+            response.close();
+            LOG.trace("Serving cached response for {}", request.url());
+            count(endpoint, "hit");
+            registry.counter("prw.github.ratelimit.saved").increment();
+            // Not modified response contains the up-to-date rate limit headers
+            final Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            headers.putAll(cached.headers);
+            response.allHeaders().forEach((name, values) -> {
+                if (name != null && !"Content-Length".equalsIgnoreCase(name)) {
+                    headers.put(name, values);
+                }
+            });
+            return new CachedResponse(request, headers, cached.body);
+        }
+
+        final String etag = response.header("ETag");
+        if (response.statusCode() != HttpURLConnection.HTTP_OK || etag == null) {
+            count(endpoint, "uncached");
+            return response;
+        }
+
+        count(endpoint, "miss");
+        final byte[] body;
+        try (InputStream is = response.bodyStream()) {
+            body = is.readAllBytes();
+        } finally {
+            response.close();
+        }
+        final Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        response.allHeaders().forEach((name, values) -> {
+            // The body is already decoded
+            if (name != null && !"Content-Encoding".equalsIgnoreCase(name) && !"Content-Length".equalsIgnoreCase(name)) {
+                headers.put(name, values);
+            }
+        });
+        cache.put(key, new ResponseCache.Entry(etag, headers, body));
+        return new CachedResponse(request, headers, body);
+    }
+
+    private void count(String endpoint, String result) {
+        registry.counter("prw.github.cache.requests", "endpoint", endpoint, "result", result).increment();
+    }
+
+    /**
+     * Gets the endpoint of the request without the repository name and the ids, so that it can be used as a metric tag.
+     *
+     * @param url request url
+     * @return endpoint
+     */
+    static String endpoint(URL url) {
+        final String path = REPOSITORY_PATH.matcher(url.getPath()).replaceFirst("/repos/{repo}");
+        return ID_SEGMENT.matcher(path).replaceAll("/{id}");
+    }
+
+    /**
+     * Request with the added <code>If-None-Match</code> header.
+     */
+    private static final class ConditionalRequest implements GitHubConnectorRequest {
+        private final GitHubConnectorRequest request;
+        private final Map<String, List<String>> headers;
+
+        private ConditionalRequest(GitHubConnectorRequest request, String etag) {
+            this.request = request;
+            final Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            headers.putAll(request.allHeaders());
+            headers.put("If-None-Match", Collections.singletonList(etag));
+            this.headers = Collections.unmodifiableMap(headers);
+        }
+
+        @Override
+        public String method() {
+            return request.method();
+        }
+
+        @Override
+        public Map<String, List<String>> allHeaders() {
+            return headers;
+        }
+
+        @Override
+        public String header(String name) {
+            final List<String> values = headers.get(name);
+            return values == null ? null : String.join(",", values);
+        }
+
+        @Override
+        public String contentType() {
+            return request.contentType();
+        }
+
+        @Override
+        public InputStream body() {
+            return request.body();
+        }
+
+        @Override
+        public URL url() {
+            return request.url();
+        }
+
+        @Override
+        public boolean hasBody() {
+            return request.hasBody();
+        }
+    }
+
+    /**
+     * Response with the body from the cache.
+     */
+    private static final class CachedResponse extends GitHubConnectorResponse.ByteArrayResponse {
+        private final byte[] body;
+
+        private CachedResponse(GitHubConnectorRequest request, Map<String, List<String>> headers, byte[] body) {
+            super(request, HttpURLConnection.HTTP_OK, headers);
+            this.body = body;
+        }
+
+        @Override
+        protected InputStream rawBodyStream() {
+            return new ByteArrayInputStream(body);
+        }
+    }
+}
@@ -1,121 +1,95 @@
 package com.github.avano.pr.workflow.gh;
 
-import org.apache.commons.lang3.time.DateUtils;
-import org.bouncycastle.jce.provider.BouncyCastleProvider;
-import org.bouncycastle.openssl.PEMKeyPair;
-import org.bouncycastle.openssl.PEMParser;
-import org.bouncycastle.openssl.jcajce.JcaPEMKeyConverter;
-import org.kohsuke.github.GHAppInstallation;
-import org.kohsuke.github.GHAppInstallationToken;
 import org.kohsuke.github.GHCheckRun;
 import org.kohsuke.github.GHCheckRunBuilder;
 import org.kohsuke.github.GHCommitStatus;
 import org.kohsuke.github.GHEventPayload;
 import org.kohsuke.github.GHIssueState;
+import org.kohsuke.github.GHLabel;
 import org.kohsuke.github.GHPerson;
 import org.kohsuke.github.GHPullRequest;
 import org.kohsuke.github.GHPullRequestReview;
 import org.kohsuke.github.GHPullRequestReviewState;
+import org.kohsuke.github.GHRateLimit;
 import org.kohsuke.github.GHRepository;
 import org.kohsuke.github.GHUser;
 import org.kohsuke.github.GitHub;
-import org.kohsuke.github.GitHubBuilder;
+import org.kohsuke.github.authorization.AuthorizationProvider;
+import org.kohsuke.github.connector.GitHubConnector;
+import org.kohsuke.github.connector.GitHubConnectorRequest;
+import org.kohsuke.github.connector.GitHubConnectorResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.github.avano.pr.workflow.config.AuthMethod;
-import com.github.avano.pr.workflow.config.Configuration;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.avano.pr.workflow.config.RepositoryConfig;
-
-import javax.enterprise.context.ApplicationScoped;
-import javax.inject.Inject;
+import com.github.avano.pr.workflow.message.WebhookMessage;
 
 import java.io.ByteArrayInputStream;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.StringReader;
-import java.security.PrivateKey;
-import java.security.Security;
+import java.io.InputStream;
+import java.io.Reader;
+import java.net.HttpURLConnection;
+import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Base64;
 import java.util.Collection;
-import java.util.Date;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 
-import io.jsonwebtoken.JwtBuilder;
-import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.SignatureAlgorithm;
-import io.vertx.core.json.JsonObject;
-
 /**
  * Wrapper around GitHub API client + some convenient helper methods.
+ * <p>
+ * Instances are immutable handles for a single repository, created and cached by the {@link GHClientRegistry}, so they can be shared by
+ * concurrently processed events.
  */
-@ApplicationScoped
 public class GHClient {
     private static final Logger LOG = LoggerFactory.getLogger(GHClient.class);
-    // Protected for testing
-    protected RepositoryConfig rcfg;
-    private Date refreshAt;
-
-    @Inject
-    Configuration config;
-
-    protected GitHub gitHub;
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    protected final RepositoryConfig rcfg;
+    protected final GitHub gitHub;
+    private final GitHubConnector connector;
+    private final AuthorizationProvider authorization;
+    private final RepositoryCache repositories;
+    private final ApiCallScheduler scheduler;
 
     /**
-     * Inits the client based on the repository configuration.
+     * Creates the client handle.
      *
-     * @param repository repository full name
+     * @param rcfg repository configuration
+     * @param gitHub GitHub API client
+     * @param connector connector used by the GitHub API client, used also for the GraphQL queries and the other raw requests
+     * @param authorization authorization used by the GitHub API client, used also for the GraphQL queries and the other raw requests
+     * @param repositories cache of the repository objects
+     * @param scheduler scheduler of the API calls that can be deferred when the rate limit is low
      */
-    public boolean init(String repository) {
-        RepositoryConfig rcfg = config.repositoryConfig(repository);
-        if (rcfg == null) {
-            LOG.warn("No repository configuration for {} found, ignoring", repository);
-            return false;
-        }
-
+    public GHClient(RepositoryConfig rcfg, GitHub gitHub, GitHubConnector connector, AuthorizationProvider authorization,
+        RepositoryCache repositories, ApiCallScheduler scheduler) {
         this.rcfg = rcfg;
-        long installationId = rcfg.auth() == AuthMethod.APP ? rcfg.installationId() : -1;
-        long appId = rcfg.appId();
-
-        try {
-            if (installationId == -1) {
-                gitHub = GitHub.connect(rcfg.user(), rcfg.token());
-            } else {
-                if (refreshAt == null || new Date().after(refreshAt)) {
-                    LOG.debug("Initializing GitHub client with app id {}, installation id {}", appId, installationId);
-                    refreshAt = DateUtils.addMinutes(new Date(), 10);
-                    LOG.trace("Will refresh GHClient at: " + refreshAt);
-                    gitHub = new GitHubBuilder().withJwtToken(createJWTToken(appId)).build();
-                    GHAppInstallation appInstallation = gitHub.getApp().getInstallationById(rcfg.installationId());
-                    GHAppInstallationToken appInstallationToken =
-                        appInstallation.createToken().permissions(appInstallation.getPermissions()).create();
-                    gitHub = new GitHubBuilder().withAppInstallationToken(appInstallationToken.getToken()).build();
-                }
-            }
-        } catch (IOException e) {
-            throw new RuntimeException("Unable to create GitHub client instance", e);
-        }
-        return true;
+        this.gitHub = gitHub;
+        this.connector = connector;
+        this.authorization = authorization;
+        this.repositories = repositories;
+        this.scheduler = scheduler;
     }
 
     /**
-     * Parses the received GitHub event json into given class.
+     * Parses the received GitHub event payload into given class.
      *
-     * @param event event json received
+     * @param message webhook message received
      * @param clazz class representation of the event
      * @return event class instance
      */
-    public <E extends GHEventPayload> E parseEvent(JsonObject event, Class<E> clazz) {
-        try {
-            return gitHub.parseEventPayload(new StringReader(event.toString()), clazz);
+    public <E extends GHEventPayload> E parseEvent(WebhookMessage message, Class<E> clazz) {
+        try (Reader reader = message.reader()) {
+            return gitHub.parseEventPayload(reader, clazz);
         } catch (IOException ex) {
             LOG.error("Unable to parse event payload: " + ex);
         }
@@ -131,31 +105,28 @@ public class GHClient {
     }
 
     /**
-     * Gets the repository object.
+     * Gets the core rate limit seen in the last response, without calling the API.
+     *
+     * @return rate limit record
+     */
+    GHRateLimit.Record getRateLimit() {
+        return gitHub.lastRateLimit().getCore();
+    }
+
+    /**
+     * Gets the repository object, cached by the {@link RepositoryCache}.
      *
      * @return repository
      */
     public GHRepository getRepository() {
         try {
-            return gitHub.getRepository(rcfg.repository());
+            return repositories.get(gitHub, rcfg.repository());
         } catch (IOException e) {
             LOG.error("Unable to get repository: " + e);
         }
         return null;
     }
 
-    /**
-     * Gets all opened pull requests where the given SHA is the HEAD of the PR.
-     *
-     * @param sha sha
-     * @return list of pull requests
-     */
-    public List<GHPullRequest> getPullRequests(String sha) {
-        return listOpenPullRequests().stream().filter(
-            pr -> sha.equals(pr.getHead().getSha())
-        ).collect(Collectors.toList());
-    }
-
     /**
      * Gets the requested reviewers list for given PR.
      *
@@ -171,23 +142,6 @@ public class GHClient {
         return new ArrayList<>();
     }
 
-    /**
-     * Gets the required check names for given branch if it is protected.
-     *
-     * @param branch branch name
-     * @return set of required check names or null if the branch is not protected
-     */
-    public Set<String> getRequiredChecks(String branch) {
-        try {
-            return new HashSet<>(getRepository().getBranch(branch).getProtection().getRequiredStatusChecks().getContexts());
-        } catch (IOException e) {
-            if (!e.getMessage().contains("Branch not protected")) {
-                LOG.error("Unable to get repository {}", rcfg.repository(), e);
-            }
-        }
-        return null;
-    }
-
     /**
      * Gets the reviews for given PR. User can review multiple times, so for each user it returns the latest review.
      *
@@ -208,18 +162,10 @@ public class GHClient {
         return response;
     }
 
-    /**
-     * Returns if the changes were requested on given PR.
-     *
-     * @param pr pull request instance
-     * @return true/false
-     */
-    public boolean changesRequested(GHPullRequest pr) {
-        return getReviews(pr).containsValue(GHPullRequestReviewState.CHANGES_REQUESTED);
-    }
-
     /**
      * Sets the given users as assignees of the given PR.
+     * <p>
+     * The call is deferred by the {@link ApiCallScheduler} when the rate limit is low.
      *
      * @param pr pull request
      * @param users users to assign
@@ -227,11 +173,13 @@ public class GHClient {
     public void setAssignees(GHPullRequest pr, GHUser... users) {
         String logins = Arrays.stream(users).map(GHPerson::getLogin).collect(Collectors.joining(", "));
         LOG.debug("PR #{}: Setting assignees to: {}", pr.getNumber(), logins);
-        try {
-            pr.setAssignees(users);
-        } catch (IOException e) {
-            LOG.error("PR #{}: Unable to add assignees", pr.getNumber(), e);
-        }
+        scheduler.submit(this, ApiPriority.REVIEW, "PR #" + pr.getNumber() + " assignees update", () -> {
+            try {
+                pr.setAssignees(users);
+            } catch (IOException e) {
+                LOG.error("PR #{}: Unable to add assignees", pr.getNumber(), e);
+            }
+        });
     }
 
     /**
@@ -244,8 +192,35 @@ public class GHClient {
         setAssignees(pr, users.toArray(new GHUser[0]));
     }
 
+    /**
+     * Sets the users with the given logins as assignees of the given PR, without fetching the users first.
+     * <p>
+     * The call is deferred by the {@link ApiCallScheduler} when the rate limit is low.
+     *
+     * @param pr pull request
+     * @param logins logins of the users to assign
+     */
+    public void setAssigneeLogins(GHPullRequest pr, Collection<String> logins) {
+        final List<String> assignees = new ArrayList<>(logins);
+        LOG.debug("PR #{}: Setting assignees to: {}", pr.getNumber(), String.join(", ", assignees));
+        scheduler.submit(this, ApiPriority.REVIEW, "PR #" + pr.getNumber() + " assignees update", () -> {
+            // The GitHub API client can set the assignees only from the users
+            try (GitHubConnectorResponse r = connector.send(new JsonRequest("PATCH",
+                new URL(gitHub.getApiUrl() + "/repos/" + rcfg.repository() + "/issues/" + pr.getNumber()),
+                authorization.getEncodedAuthorization(), MAPPER.writeValueAsBytes(Collections.singletonMap("assignees", assignees))))) {
+                if (r.statusCode() != HttpURLConnection.HTTP_OK) {
+                    LOG.error("PR #{}: Unable to add assignees, status {}", pr.getNumber(), r.statusCode());
+                }
+            } catch (IOException e) {
+                LOG.error("PR #{}: Unable to add assignees", pr.getNumber(), e);
+            }
+        });
+    }
+
     /**
      * Requests the review from the given users.
+     * <p>
+     * The call is deferred by the {@link ApiCallScheduler} when the rate limit is low.
      *
      * @param pr pull request
      * @param users users to request review from
@@ -253,11 +228,55 @@ public class GHClient {
     public void requestReviewers(GHPullRequest pr, List<GHUser> users) {
         String logins = users.stream().map(GHPerson::getLogin).collect(Collectors.joining(", "));
         LOG.debug("PR #{}: Requesting review from reviewers: {}", pr.getNumber(), logins);
-        try {
-            pr.requestReviewers(users);
-        } catch (IOException e) {
-            LOG.error("PR #{}: Unable to request reviews", pr.getNumber(), e);
+        scheduler.submit(this, ApiPriority.REVIEW, "PR #" + pr.getNumber() + " review request", () -> {
+            try {
+                pr.requestReviewers(users);
+            } catch (IOException e) {
+                LOG.error("PR #{}: Unable to request reviews", pr.getNumber(), e);
+            }
+        });
+    }
+
+    /**
+     * Removes and adds the given labels to the PR.
+     * <p>
+     * The call is deferred by the {@link ApiCallScheduler} when the rate limit is low. A deferred call is executed outside of the lane of the
+     * pull request, so it reads the current labels first, to keep the labels changed since the event.
+     *
+     * @param pr pull request
+     * @param addLabels labels to add, may be null
+     * @param removeLabels labels to remove, may be null
+     */
+    public void editLabels(GHPullRequest pr, List<String> addLabels, List<String> removeLabels) {
+        scheduler.submit(this, ApiPriority.LABEL, "PR #" + pr.getNumber() + " labels update", () -> {
+            try {
+                setLabels(pr, pr.getLabels(), addLabels, removeLabels);
+            } catch (IOException e) {
+                LOG.error("PR #{}: Unable to modify labels: " + e, pr.getNumber());
+            }
+        }, () -> {
+            try {
+                final GHRepository repository = getRepository();
+                if (repository == null) {
+                    throw new IOException("Unable to get repository " + rcfg.repository());
+                }
+                setLabels(pr, repository.getIssue(pr.getNumber()).getLabels(), addLabels, removeLabels);
+            } catch (IOException e) {
+                LOG.error("PR #{}: Unable to modify labels: " + e, pr.getNumber());
+            }
+        });
+    }
+
+    private static void setLabels(GHPullRequest pr, Collection<GHLabel> current, List<String> addLabels, List<String> removeLabels)
+        throws IOException {
+        Set<String> labels = current.stream().map(GHLabel::getName).collect(Collectors.toCollection(HashSet::new));
+        if (removeLabels != null) {
+            removeLabels.forEach(labels::remove);
+        }
+        if (addLabels != null) {
+            labels.addAll(addLabels);
         }
+        pr.setLabels(labels.toArray(new String[] {}));
     }
 
     /**
@@ -289,18 +308,38 @@ public class GHClient {
         return new ArrayList<>();
     }
 
+    /**
+     * Checks if the given commit is reachable from the head commit, by comparing them on GitHub.
+     *
+     * @param head sha or branch name of the head commit
+     * @param commit sha or branch name of the commit to look for
+     * @return true if the head contains the commit, false otherwise or when the comparison fails
+     */
+    public boolean containsCommit(String head, String commit) {
+        try {
+            return getRepository().getCompare(commit, head).getBehindBy() == 0;
+        } catch (IOException e) {
+            LOG.error("Unable to compare {} with {}", head, commit, e);
+        }
+        return false;
+    }
+
     /**
      * Creates a comment in given PR with given content.
+     * <p>
+     * The call is deferred by the {@link ApiCallScheduler} when the rate limit is low.
      *
      * @param pr pull request
      * @param content comment content
      */
     public void postComment(GHPullRequest pr, String content) {
-        try {
-            pr.comment(content);
-        } catch (IOException e) {
-            LOG.error("PR #{}: Unable to create comment", pr.getNumber(), e);
-        }
+        scheduler.submit(this, ApiPriority.COMMENT, "PR #" + pr.getNumber() + " comment", () -> {
+            try {
+                pr.comment(content);
+            } catch (IOException e) {
+                LOG.error("PR #{}: Unable to create comment", pr.getNumber(), e);
+            }
+        });
     }
 
     /**
@@ -314,87 +353,61 @@ public class GHClient {
     }
 
     /**
-     * Returns the map of checkname-checkstatus for given pull request's HEAD sha for both check-runs and commit statuses.
+     * Returns the map of checkname-conclusion of the check runs of given pull request's HEAD sha.
      *
      * @param pr pull request
-     * @return map of checkname-checkstatus
+     * @return map of checkname-conclusion, empty if the check runs can't be listed
      */
-    public Map<String, String> getChecks(GHPullRequest pr) {
+    public Map<String, String> getCheckRuns(GHPullRequest pr) {
         Map<String, String> checks = new HashMap<>();
-        final String sha = pr.getHead().getSha();
         try {
-            pr.getRepository().getCheckRuns(sha).forEach(cr -> {
+            pr.getRepository().getCheckRuns(pr.getHead().getSha()).forEach(cr -> {
                 GHCheckRun.Conclusion conclusion = cr.getConclusion();
                 checks.put(cr.getName(), conclusion == null ? "unknown" : conclusion.toString());
             });
-            Map<String, String> statuses = new HashMap<>();
-            // Statuses are returned in newest-first order, so revert it and get last state of each status
-            List<GHCommitStatus> ghCommitStatuses = pr.getRepository().listCommitStatuses(sha).toList();
-            for (int i = ghCommitStatuses.size() - 1; i >= 0; i--) {
-                statuses.put(ghCommitStatuses.get(i).getContext(), ghCommitStatuses.get(i).getState().name());
-            }
-            checks.putAll(statuses);
         } catch (IOException e) {
-            LOG.error("Unable to get checkruns or statuses: " + e);
+            LOG.error("Unable to get checkruns: " + e);
         }
         return checks;
     }
 
     /**
-     * Loads the private key from specified file.
+     * Returns the map of context-state of the last commit status of each context of given pull request's HEAD sha.
      *
-     * @return {@link java.security.PrivateKey} instance
+     * @param pr pull request
+     * @return map of context-state, empty if the statuses can't be listed
      */
-    private PrivateKey loadKey() {
+    public Map<String, String> getCommitStatuses(GHPullRequest pr) {
+        Map<String, String> statuses = new HashMap<>();
         try {
-            Security.addProvider(new BouncyCastleProvider());
-            try (InputStreamReader isr = new InputStreamReader(
-                rcfg.keyIsFile() ? new FileInputStream(rcfg.privateKey()) :
-                    new ByteArrayInputStream(Base64.getDecoder().decode(rcfg.privateKey())))) {
-                PEMParser pemParser = new PEMParser(isr);
-                PEMKeyPair keyPair = (PEMKeyPair) pemParser.readObject();
-                JcaPEMKeyConverter converter = new JcaPEMKeyConverter().setProvider("BC");
-                return converter.getPrivateKey(keyPair.getPrivateKeyInfo());
+            // Statuses are returned in newest-first order, so revert it and get last state of each status
+            List<GHCommitStatus> ghCommitStatuses = pr.getRepository().listCommitStatuses(pr.getHead().getSha()).toList();
+            for (int i = ghCommitStatuses.size() - 1; i >= 0; i--) {
+                statuses.put(ghCommitStatuses.get(i).getContext(), ghCommitStatuses.get(i).getState().name());
             }
-        } catch (Exception e) {
-            throw new RuntimeException("Unable to load private key: " + e);
+        } catch (IOException e) {
+            LOG.error("Unable to get statuses: " + e);
         }
-    }
-
-    /**
-     * Creates the JWT token for given application id signed by the specified private key.
-     *
-     * @return JWT token
-     */
-    private String createJWTToken(long appId) {
-        long expiration = 600000L;
-        //The JWT signature algorithm we will be using to sign the token
-        SignatureAlgorithm signatureAlgorithm = SignatureAlgorithm.RS256;
-
-        long nowMillis = System.currentTimeMillis();
-
-        JwtBuilder builder = Jwts.builder()
-            .setIssuedAt(new Date(nowMillis))
-            .setIssuer(appId + "")
-            .signWith(loadKey(), signatureAlgorithm);
-
-        builder.setExpiration(new Date(nowMillis + expiration));
-
-        //Builds the JWT and serializes it to a compact, URL-safe string
-        return builder.compact();
+        return statuses;
     }
 
     /**
      * Creates a check run for the HEAD of the PR.
+     * <p>
+     * The call is deferred by the {@link ApiCallScheduler} when the rate limit is low.
      *
      * @param pr PR
      * @param status CheckRun status
      * @param conclusion CheckRun conclusion
      */
     public void createCheckRun(GHPullRequest pr, GHCheckRun.Status status, GHCheckRun.Conclusion conclusion) {
+        scheduler.submit(this, ApiPriority.CHECK_RUN, "PR #" + pr.getNumber() + " check run", () -> doCreateCheckRun(pr, status, conclusion));
+    }
+
+    private void doCreateCheckRun(GHPullRequest pr, GHCheckRun.Status status, GHCheckRun.Conclusion conclusion) {
         try {
             GHCheckRunBuilder ghCheckRunBuilder =
-                gitHub.getRepository(pr.getRepository().getFullName()).createCheckRun(rcfg.reviewCheckName(), pr.getHead().getSha())
+                repositories.get(gitHub, pr.getRepository().getFullName()).createCheckRun(rcfg.reviewCheckName(), pr.getHead().getSha())
                     .withStatus(status);
             if (conclusion != null) {
                 ghCheckRunBuilder.withConclusion(conclusion);
@@ -406,4 +419,90 @@ public class GHClient {
             LOG.error("PR #{}: Unable to create checkrun", pr.getNumber(), e);
         }
     }
+
+    /**
+     * Runs the GraphQL query.
+     *
+     * @param query GraphQL query
+     * @param variables query variables
+     * @return data of the response
+     * @throws IOException when the request fails or the response contains errors
+     */
+    public JsonNode graphql(String query, Map<String, Object> variables) throws IOException {
+        final Map<String, Object> request = new HashMap<>();
+        request.put("query", query);
+        request.put("variables", variables);
+        final JsonNode response;
+        try (GitHubConnectorResponse r = connector.send(new JsonRequest("POST", new URL(gitHub.getApiUrl() + "/graphql"),
+            authorization.getEncodedAuthorization(), MAPPER.writeValueAsBytes(request)))) {
+            if (r.statusCode() != HttpURLConnection.HTTP_OK) {
+                throw new IOException("GraphQL request failed with status " + r.statusCode());
+            }
+            try (InputStream is = r.bodyStream()) {
+                response = MAPPER.readTree(is);
+            }
+        }
+        if (response.hasNonNull("errors") && response.get("errors").size() > 0) {
+            throw new IOException("GraphQL request failed: " + response.get("errors"));
+        }
+        return response.path("data");
+    }
+
+    /**
+     * Request with a json body sent through the same connector as the GitHub API client requests.
+     */
+    private static final class JsonRequest implements GitHubConnectorRequest {
+        private final String method;
+        private final URL url;
+        private final Map<String, List<String>> headers;
+        private final byte[] body;
+
+        private JsonRequest(String method, URL url, String authorization, byte[] body) {
+            this.method = method;
+            this.url = url;
+            this.body = body;
+            final Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            headers.put("Accept", Collections.singletonList("application/json"));
+            if (authorization != null) {
+                headers.put("Authorization", Collections.singletonList(authorization));
+            }
+            this.headers = Collections.unmodifiableMap(headers);
+        }
+
+        @Override
+        public String method() {
+            return method;
+        }
+
+        @Override
+        public Map<String, List<String>> allHeaders() {
+            return headers;
+        }
+
+        @Override
+        public String header(String name) {
+            final List<String> values = headers.get(name);
+            return values == null ? null : String.join(",", values);
+        }
+
+        @Override
+        public String contentType() {
+            return "application/json";
+        }
+
+        @Override
+        public InputStream body() {
+            return new ByteArrayInputStream(body);
+        }
+
+        @Override
+        public URL url() {
+            return url;
+        }
+
+        @Override
+        public boolean hasBody() {
+            return true;
+        }
+    }
 }
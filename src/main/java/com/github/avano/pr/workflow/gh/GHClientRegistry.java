@@ -0,0 +1,100 @@
+package com.github.avano.pr.workflow.gh;
+
+import org.kohsuke.github.GitHubBuilder;
+import org.kohsuke.github.authorization.AuthorizationProvider;
+import org.kohsuke.github.authorization.ImmutableAuthorizationProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.avano.pr.workflow.config.AuthMethod;
+import com.github.avano.pr.workflow.config.Configuration;
+import com.github.avano.pr.workflow.config.RepositoryConfig;
+import com.github.avano.pr.workflow.config.RepositoryConfigChangedEvent;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of the {@link GHClient} handles for the configured repositories.
+ * <p>
+ * The handles are created on the first use and then shared by all events for the repository. A handle is created again only when the
+ * repository configuration changes.
+ */
+@ApplicationScoped
+public class GHClientRegistry {
+    private static final Logger LOG = LoggerFactory.getLogger(GHClientRegistry.class);
+
+    @Inject
+    Configuration config;
+
+    @Inject
+    InstallationTokenCache tokens;
+
+    @Inject
+    RepositoryCache repositories;
+
+    @Inject
+    CachingGitHubConnector connector;
+
+    @Inject
+    ApiCallScheduler scheduler;
+
+    private final Map<String, GHClient> clients = new ConcurrentHashMap<>();
+
+    /**
+     * Gets the client handle for the given repository.
+     *
+     * @param repository repository full name
+     * @return client handle or null if the repository is not configured
+     */
+    public GHClient get(String repository) {
+        final GHClient client = clients.get(repository);
+        if (client != null) {
+            return client;
+        }
+        // Only the handles for the same repository wait for each other
+        return clients.computeIfAbsent(repository, this::createClient);
+    }
+
+    void onConfigChanged(@Observes RepositoryConfigChangedEvent event) {
+        if (event.repository() == null) {
+            clients.clear();
+        } else {
+            clients.remove(event.repository());
+        }
+    }
+
+    /**
+     * Creates the client handle based on the repository configuration.
+     *
+     * @param repository repository full name
+     * @return client handle or null if the repository is not configured
+     */
+    protected GHClient createClient(String repository) {
+        RepositoryConfig rcfg = config.repositoryConfig(repository);
+        if (rcfg == null) {
+            LOG.warn("No repository configuration for {} found, ignoring", repository);
+            return null;
+        }
+
+        final AuthorizationProvider authorization;
+        if (rcfg.auth() != AuthMethod.APP) {
+            authorization = ImmutableAuthorizationProvider.fromOauthToken(rcfg.token(), rcfg.user());
+        } else {
+            LOG.debug("Initializing GitHub client with app id {}, installation id {}", rcfg.appId(), rcfg.installationId());
+            // The installation token is rotated by the token cache, so the client doesn't need to be recreated when it expires
+            authorization = () -> "token " + tokens.token(rcfg);
+        }
+        try {
+            return new GHClient(rcfg, new GitHubBuilder().withAuthorizationProvider(authorization).withConnector(connector).build(), connector,
+                authorization, repositories, scheduler);
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to create GitHub client instance", e);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.github.avano.pr.workflow.gh;
+
+import org.kohsuke.github.GHPullRequestReviewState;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Merge snapshot fetched with a single GraphQL query.
+ */
+class GraphQLMergeSnapshot implements MergeSnapshot {
+    static final String QUERY = "query($owner: String!, $name: String!, $number: Int!) {"
+        + " repository(owner: $owner, name: $name) {"
+        + "  pullRequest(number: $number) {"
+        + "   merged isDraft mergeable baseRefName headRefOid"
+        + "   author { __typename login }"
+        + "   labels(first: 100) { nodes { name } }"
+        + "   reviews(last: 100) { nodes { author { __typename login } state } }"
+        + "   reviewRequests(first: 100) { nodes { requestedReviewer { __typename } } }"
+        + "   commits(last: 1) { nodes { commit { statusCheckRollup { contexts(first: 100) { nodes {"
+        + "    __typename ... on CheckRun { name conclusion } ... on StatusContext { context state } } } } } } }"
+        + "  }"
+        + " }"
+        + "}";
+
+    private final boolean merged;
+    private final boolean draft;
+    private final Set<String> labels = new HashSet<>();
+    private final String baseBranch;
+    private final String headSha;
+    private final GHClient client;
+    private final RequiredChecksCache requiredChecks;
+    private final Map<String, String> checks = new HashMap<>();
+    private final Boolean mergeable;
+    private final String author;
+    private final Map<String, GHPullRequestReviewState> reviews = new HashMap<>();
+    private final int requestedReviewerCount;
+
+    GraphQLMergeSnapshot(GHClient client, RequiredChecksCache requiredChecks, JsonNode data) throws IOException {
+        this.client = client;
+        this.requiredChecks = requiredChecks;
+        final JsonNode pr = data.path("repository").path("pullRequest");
+        if (!pr.isObject()) {
+            throw new IOException("Pull request not found in the GraphQL response");
+        }
+        merged = pr.path("merged").asBoolean();
+        draft = pr.path("isDraft").asBoolean();
+        baseBranch = pr.path("baseRefName").asText();
+        headSha = pr.path("headRefOid").asText();
+        switch (pr.path("mergeable").asText()) {
+            case "MERGEABLE":
+                mergeable = true;
+                break;
+            case "CONFLICTING":
+                mergeable = false;
+                break;
+            default:
+                // UNKNOWN until GitHub computes it
+                mergeable = null;
+                break;
+        }
+        author = login(pr.path("author"));
+
+        pr.path("labels").path("nodes").forEach(label -> labels.add(label.path("name").asText()));
+
+        // Reviews are returned in chronological order, so the latest review of each user wins
+        for (JsonNode review : pr.path("reviews").path("nodes")) {
+            final String login = login(review.path("author"));
+            if (login != null) {
+                try {
+                    reviews.put(login, GHPullRequestReviewState.valueOf(review.path("state").asText()));
+                } catch (IllegalArgumentException e) {
+                    throw new IOException("Unknown review state " + review.path("state"), e);
+                }
+            }
+        }
+
+        int users = 0;
+        for (JsonNode request : pr.path("reviewRequests").path("nodes")) {
+            // The REST API lists the teams separately from the requested reviewers
+            if ("User".equals(request.path("requestedReviewer").path("__typename").asText())) {
+                users++;
+            }
+        }
+        requestedReviewerCount = users;
+
+        final Map<String, String> statuses = new HashMap<>();
+        for (JsonNode commit : pr.path("commits").path("nodes")) {
+            for (JsonNode context : commit.path("commit").path("statusCheckRollup").path("contexts").path("nodes")) {
+                if ("CheckRun".equals(context.path("__typename").asText())) {
+                    final JsonNode conclusion = context.path("conclusion");
+                    checks.put(context.path("name").asText(), conclusion.isTextual() ? conclusion.asText() : "unknown");
+                } else {
+                    statuses.put(context.path("context").asText(), context.path("state").asText());
+                }
+            }
+        }
+        // Same as with REST, the commit status wins over a check run with the same name
+        checks.putAll(statuses);
+    }
+
+    /**
+     * Gets the login of the actor in the same format as the REST API uses.
+     *
+     * @param actor GraphQL actor
+     * @return login or null if the account no longer exists
+     */
+    private static String login(JsonNode actor) {
+        if (!actor.hasNonNull("login")) {
+            return null;
+        }
+        final String login = actor.path("login").asText();
+        return "Bot".equals(actor.path("__typename").asText()) ? login + "[bot]" : login;
+    }
+
+    @Override
+    public boolean isMerged() {
+        return merged;
+    }
+
+    @Override
+    public boolean isDraft() {
+        return draft;
+    }
+
+    @Override
+    public Set<String> getLabels() {
+        return Collections.unmodifiableSet(labels);
+    }
+
+    @Override
+    public String getBaseBranch() {
+        return baseBranch;
+    }
+
+    @Override
+    public String getHeadSha() {
+        return headSha;
+    }
+
+    @Override
+    public Set<String> getRequiredChecks() {
+        // Protection rules rarely change, so they are cached instead of being part of the query
+        return requiredChecks.get(client, baseBranch);
+    }
+
+    @Override
+    public Map<String, String> getChecks() {
+        return Collections.unmodifiableMap(checks);
+    }
+
+    @Override
+    public Boolean getMergeable() {
+        return mergeable;
+    }
+
+    @Override
+    public String getAuthor() {
+        return author;
+    }
+
+    @Override
+    public Map<String, GHPullRequestReviewState> getReviews() {
+        return new HashMap<>(reviews);
+    }
+
+    @Override
+    public int getRequestedReviewerCount() {
+        return requestedReviewerCount;
+    }
+}
@@ -0,0 +1,196 @@
+package com.github.avano.pr.workflow.gh;
+
+import org.kohsuke.github.GHAppInstallation;
+import org.kohsuke.github.GHAppInstallationToken;
+import org.kohsuke.github.GitHub;
+import org.kohsuke.github.GitHubBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.avano.pr.workflow.config.AuthMethod;
+import com.github.avano.pr.workflow.config.Configuration;
+import com.github.avano.pr.workflow.config.RepositoryConfig;
+import com.github.avano.pr.workflow.config.RepositoryConfigChangedEvent;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import io.quarkus.scheduler.Scheduled;
+
+/**
+ * Cache of the GitHub App installation access tokens, shared by all repositories of the same installation.
+ * <p>
+ * The tokens are created when the repository configuration is loaded and then refreshed in the background before they expire, so that
+ * the events don't need to wait for a new token. A token is created on the event path only when the background refresh failed.
+ * <p>
+ * The tokens are created outside of the map, holding only the lock of their installation, so that the creation doesn't block the lookups
+ * of the other installations.
+ */
+@ApplicationScoped
+public class InstallationTokenCache {
+    private static final Logger LOG = LoggerFactory.getLogger(InstallationTokenCache.class);
+    // Installation tokens are valid for 1 hour
+    static final Duration REFRESH_BEFORE_EXPIRY = Duration.ofMinutes(15);
+
+    @Inject
+    Configuration configuration;
+
+    @Inject
+    AppCredentials credentials;
+
+    @Inject
+    PooledGitHubConnector connector;
+
+    private final Map<Long, InstallationToken> tokens = new ConcurrentHashMap<>();
+    // Installation id -> lock held while creating its token
+    private final Map<Long, Object> locks = new ConcurrentHashMap<>();
+
+    /**
+     * Gets the valid installation token for the installation of given repository.
+     *
+     * @param rcfg repository configuration
+     * @return installation token
+     * @throws IOException when unable to create a new token
+     */
+    public String token(RepositoryConfig rcfg) throws IOException {
+        final InstallationToken token = tokens.get(rcfg.installationId());
+        if (token != null && token.isValid()) {
+            return token.token;
+        }
+        synchronized (lock(rcfg.installationId())) {
+            // Created by another event in the meantime
+            final InstallationToken existing = tokens.get(rcfg.installationId());
+            if (existing != null && existing.isValid()) {
+                return existing.token;
+            }
+            try {
+                final InstallationToken created = create(rcfg);
+                tokens.put(rcfg.installationId(), created);
+                return created.token;
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    void onConfigChanged(@Observes RepositoryConfigChangedEvent event) {
+        // The credentials might have changed, so create the token again using the new configuration
+        if (event.repository() == null) {
+            tokens.clear();
+            return;
+        }
+        invalidate(event.repository(), configuration.repositoryConfig(event.repository()));
+    }
+
+    /**
+     * Drops the tokens of the installations of the changed repository, before and after the change, and creates the token again.
+     *
+     * @param repository repository full name
+     * @param rcfg new repository configuration, null when the repository was removed
+     */
+    void invalidate(String repository, RepositoryConfig rcfg) {
+        // The token is shared by the whole installation, so drop it also when it was created using another repository of the installation
+        final Set<Long> installations = new HashSet<>();
+        tokens.forEach((id, token) -> {
+            if (token.rcfg.repository().equals(repository)) {
+                installations.add(id);
+            }
+        });
+        if (rcfg != null && rcfg.auth() == AuthMethod.APP) {
+            installations.add(rcfg.installationId());
+        }
+        for (Long id : installations) {
+            synchronized (lock(id)) {
+                tokens.remove(id);
+            }
+        }
+        if (rcfg != null && rcfg.auth() == AuthMethod.APP) {
+            try {
+                token(rcfg);
+            } catch (IOException | RuntimeException e) {
+                LOG.warn("Unable to create installation token for repository {}: {}", rcfg.repository(), e.toString());
+            }
+        }
+    }
+
+    /**
+     * Refreshes the tokens that are about to expire.
+     */
+    @Scheduled(every = "60s", delayed = "60s")
+    void refresh() {
+        final Instant refreshAt = Instant.now().plus(REFRESH_BEFORE_EXPIRY);
+        for (Map.Entry<Long, InstallationToken> entry : tokens.entrySet()) {
+            final InstallationToken token = entry.getValue();
+            if (token.expiresAt.isAfter(refreshAt)) {
+                continue;
+            }
+            LOG.debug("Refreshing token for installation id {}", entry.getKey());
+            synchronized (lock(entry.getKey())) {
+                // Don't overwrite the token if it was replaced or dropped in the meantime because of the configuration change
+                if (tokens.get(entry.getKey()) != token) {
+                    continue;
+                }
+                try {
+                    tokens.replace(entry.getKey(), token, create(token.rcfg));
+                } catch (RuntimeException e) {
+                    LOG.warn("Unable to refresh token for installation id {}: {}", entry.getKey(), e.toString());
+                }
+            }
+        }
+    }
+
+    private Object lock(long installationId) {
+        return locks.computeIfAbsent(installationId, id -> new Object());
+    }
+
+    /**
+     * Creates a new installation token.
+     *
+     * @param rcfg repository configuration
+     * @return installation token
+     */
+    protected InstallationToken create(RepositoryConfig rcfg) {
+        LOG.debug("Creating installation token with app id {}, installation id {}", rcfg.appId(), rcfg.installationId());
+        try {
+            GitHub appClient = new GitHubBuilder().withJwtToken(credentials.jwt(rcfg)).withConnector(connector).build();
+            GHAppInstallation appInstallation = appClient.getApp().getInstallationById(rcfg.installationId());
+            GHAppInstallationToken appInstallationToken =
+                appInstallation.createToken().permissions(appInstallation.getPermissions()).create();
+            final Instant expiresAt = appInstallationToken.getExpiresAt().toInstant();
+            LOG.trace("Token for installation id {} expires at: {}", rcfg.installationId(), expiresAt);
+            return new InstallationToken(rcfg, appInstallationToken.getToken(), expiresAt);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to create installation token", e);
+        }
+    }
+
+    /**
+     * Installation token together with the configuration used to create it.
+     */
+    protected static final class InstallationToken {
+        private final RepositoryConfig rcfg;
+        private final String token;
+        private final Instant expiresAt;
+
+        protected InstallationToken(RepositoryConfig rcfg, String token, Instant expiresAt) {
+            this.rcfg = rcfg;
+            this.token = token;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isValid() {
+            // Leave some time for the request to be sent
+            return Instant.now().plusSeconds(60).isBefore(expiresAt);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.github.avano.pr.workflow.gh;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * GitHub reads of one merge evaluation.
+ * <p>
+ * The reads are started on the shared executor, at most <code>concurrency</code> of them at the same time, the others wait until one of
+ * the running reads finishes. All reads need to finish before the deadline of the evaluation. With the concurrency 1, each read is done
+ * in the calling thread when it is started, so the reads are done one after another.
+ */
+class MergeReads {
+    private final Executor executor;
+    private final int concurrency;
+    private final Duration timeout;
+    private final long deadline;
+    private final Queue<Runnable> waiting = new ArrayDeque<>();
+    private int running;
+
+    /**
+     * A read of the GitHub API.
+     *
+     * @param <T> type of the result
+     */
+    @FunctionalInterface
+    interface Read<T> {
+        T get() throws IOException;
+    }
+
+    MergeReads(Executor executor, int concurrency, Duration timeout) {
+        this.executor = executor;
+        this.concurrency = concurrency;
+        this.timeout = timeout;
+        this.deadline = System.nanoTime() + timeout.toNanos();
+    }
+
+    /**
+     * Returns whether the reads are done concurrently.
+     *
+     * @return true/false
+     */
+    boolean isConcurrent() {
+        return concurrency > 1;
+    }
+
+    /**
+     * Starts the read, or queues it when the max number of the reads is already running.
+     *
+     * @param read read to start
+     * @param <T> type of the result
+     * @return future completed with the result of the read
+     */
+    <T> CompletableFuture<T> start(Read<T> read) {
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        final Runnable task = () -> {
+            try {
+                future.complete(read.get());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            } finally {
+                next();
+            }
+        };
+        synchronized (this) {
+            if (running >= concurrency) {
+                waiting.add(task);
+                return future;
+            }
+            running++;
+        }
+        if (isConcurrent()) {
+            execute(task);
+        } else {
+            task.run();
+        }
+        return future;
+    }
+
+    /**
+     * Waits for the result of the read until the deadline of the evaluation.
+     *
+     * @param name name of the read used in the error message
+     * @param future future returned when the read was started
+     * @param <T> type of the result
+     * @return result of the read
+     * @throws IOException when the read failed or didn't finish before the deadline
+     */
+    <T> T await(String name, CompletableFuture<T> future) throws IOException {
+        try {
+            return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw new IOException("Unable to read " + name + " within " + timeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while reading " + name);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException("Unable to read " + name, cause);
+        }
+    }
+
+    private void next() {
+        final Runnable task;
+        synchronized (this) {
+            task = waiting.poll();
+            if (task == null) {
+                running--;
+                return;
+            }
+        }
+        if (isConcurrent()) {
+            execute(task);
+        } else {
+            task.run();
+        }
+    }
+
+    private void execute(Runnable task) {
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            // Shutting down, so finish the read in the calling thread
+            task.run();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.github.avano.pr.workflow.gh;
+
+import org.kohsuke.github.GHPullRequestReviewState;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * State of the pull request needed to decide whether it can be merged.
+ * <p>
+ * The methods throw {@link IOException} when the state can't be fetched from GitHub.
+ */
+public interface MergeSnapshot {
+    /**
+     * Returns if the PR is already merged.
+     *
+     * @return true/false
+     */
+    boolean isMerged() throws IOException;
+
+    /**
+     * Returns if the PR is a draft.
+     *
+     * @return true/false
+     */
+    boolean isDraft() throws IOException;
+
+    /**
+     * Gets the names of the labels of the PR.
+     *
+     * @return set of label names
+     */
+    Set<String> getLabels() throws IOException;
+
+    /**
+     * Gets the name of the branch the PR is merged into.
+     *
+     * @return branch name
+     */
+    String getBaseBranch() throws IOException;
+
+    /**
+     * Gets the sha of the HEAD commit of the PR.
+     *
+     * @return commit sha
+     */
+    String getHeadSha() throws IOException;
+
+    /**
+     * Gets the required check names for the base branch if it is protected.
+     *
+     * @return set of required check names or null if the branch is not protected
+     */
+    Set<String> getRequiredChecks() throws IOException;
+
+    /**
+     * Gets the map of checkname-checkstatus for the PR's HEAD sha for both check-runs and commit statuses.
+     *
+     * @return map of checkname-checkstatus
+     */
+    Map<String, String> getChecks() throws IOException;
+
+    /**
+     * Returns if the PR can be merged without conflicts.
+     *
+     * @return true/false or null if GitHub didn't compute it yet
+     */
+    Boolean getMergeable() throws IOException;
+
+    /**
+     * Gets the login of the author of the PR.
+     *
+     * @return author login
+     */
+    String getAuthor() throws IOException;
+
+    /**
+     * Gets the latest review state of each user.
+     *
+     * @return map with the user login as key and last review state as value
+     */
+    Map<String, GHPullRequestReviewState> getReviews() throws IOException;
+
+    /**
+     * Gets the number of users the review is requested from.
+     *
+     * @return number of requested reviewers
+     */
+    int getRequestedReviewerCount() throws IOException;
+}
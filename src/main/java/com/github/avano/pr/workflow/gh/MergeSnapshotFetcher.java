@@ -0,0 +1,96 @@
+package com.github.avano.pr.workflow.gh;
+
+import org.kohsuke.github.GHPullRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.avano.pr.workflow.config.Configuration;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Fetches the state of the pull request needed for the merge decision.
+ * <p>
+ * The state is fetched with a single GraphQL query. When the query fails, for example because the token lacks the permissions needed
+ * for the GraphQL API, the REST API is used instead. The independent REST reads of one evaluation are done concurrently, up to the
+ * configured concurrency, on threads shared by all evaluations.
+ */
+@ApplicationScoped
+public class MergeSnapshotFetcher {
+    private static final Logger LOG = LoggerFactory.getLogger(MergeSnapshotFetcher.class);
+
+    @Inject
+    Configuration configuration;
+
+    @Inject
+    ReviewLedger reviewLedger;
+
+    @Inject
+    RequiredChecksCache requiredChecks;
+
+    @Inject
+    MeterRegistry registry;
+
+    private ExecutorService executor;
+
+    @PostConstruct
+    void init() {
+        final AtomicInteger threads = new AtomicInteger();
+        // The number of the threads is bounded by the number of lanes times the concurrency of the reads
+        executor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "merge-read-" + threads.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    void stop() {
+        executor.shutdown();
+    }
+
+    /**
+     * Fetches the snapshot of the given PR.
+     *
+     * @param client client for the repository
+     * @param pr pull request
+     * @return merge snapshot
+     * @throws IOException when unable to fetch the PR using the REST API
+     */
+    public MergeSnapshot fetch(GHClient client, GHPullRequest pr) throws IOException {
+        if (configuration.mergeSnapshotGraphql()) {
+            final String[] repository = client.getRepositoryConfiguration().repository().split("/");
+            final Map<String, Object> variables = new HashMap<>();
+            variables.put("owner", repository[0]);
+            variables.put("name", repository[1]);
+            variables.put("number", pr.getNumber());
+            try {
+                final MergeSnapshot snapshot = new GraphQLMergeSnapshot(client, requiredChecks,
+                    client.graphql(GraphQLMergeSnapshot.QUERY, variables));
+                count("graphql");
+                return snapshot;
+            } catch (IOException e) {
+                LOG.warn("PR #{}: Unable to fetch merge snapshot using GraphQL, falling back to REST: {}", pr.getNumber(), e.toString());
+            }
+        }
+        count("rest");
+        final Configuration.MergeReadsConfig config = configuration.mergeReads();
+        return new RestMergeSnapshot(client, reviewLedger, requiredChecks, pr, new MergeReads(executor, config.concurrency(), config.deadline()));
+    }
+
+    private void count(String source) {
+        registry.counter("prw.merge.snapshots", "source", source).increment();
+    }
+}
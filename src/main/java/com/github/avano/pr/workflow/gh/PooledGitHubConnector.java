@@ -0,0 +1,126 @@
+package com.github.avano.pr.workflow.gh;
+
+import org.kohsuke.github.connector.GitHubConnector;
+import org.kohsuke.github.connector.GitHubConnectorRequest;
+import org.kohsuke.github.connector.GitHubConnectorResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.avano.pr.workflow.config.Configuration;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URISyntaxException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * GitHub API connector based on the JDK {@link HttpClient}, shared by all GitHub clients in the application.
+ * <p>
+ * The connections are kept alive in the pool of the HTTP client and reused by all repositories and installations. With HTTP/2 the
+ * concurrent requests are multiplexed over a single connection, so the TLS handshake is done only once per connection.
+ */
+@ApplicationScoped
+public class PooledGitHubConnector implements GitHubConnector {
+    private static final Logger LOG = LoggerFactory.getLogger(PooledGitHubConnector.class);
+    // Read once by the JDK HTTP client, so they need to be set before the first client is created
+    private static final String KEEP_ALIVE_PROPERTY = "jdk.httpclient.keepalive.timeout";
+    private static final String POOL_SIZE_PROPERTY = "jdk.httpclient.connectionPoolSize";
+
+    @Inject
+    Configuration configuration;
+
+    private Configuration.GitHubHttpConfig config;
+    private HttpClient client;
+
+    @PostConstruct
+    void init() {
+        configure(configuration.githubHttp());
+    }
+
+    /**
+     * Creates the HTTP client with the given configuration. Called by the container, or by the benchmarks running without it.
+     *
+     * @param config HTTP client configuration
+     */
+    public void configure(Configuration.GitHubHttpConfig config) {
+        this.config = config;
+        setDefault(KEEP_ALIVE_PROPERTY, String.valueOf(config.keepAlive().toSeconds()));
+        setDefault(POOL_SIZE_PROPERTY, String.valueOf(config.maxConnections()));
+        client = HttpClient.newBuilder()
+            .version(config.http2() ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+            .connectTimeout(config.connectTimeout())
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .build();
+        LOG.debug("Created GitHub HTTP client with version {}, connect timeout {}", client.version(), config.connectTimeout());
+    }
+
+    private static void setDefault(String property, String value) {
+        // The system property set on the command line wins
+        if (System.getProperty(property) == null) {
+            System.setProperty(property, value);
+        }
+    }
+
+    @Override
+    public GitHubConnectorResponse send(GitHubConnectorRequest request) throws IOException {
+        final HttpRequest.Builder builder;
+        try {
+            builder = HttpRequest.newBuilder(request.url().toURI()).timeout(config.requestTimeout());
+        } catch (URISyntaxException e) {
+            throw new IOException("Invalid request url " + request.url(), e);
+        }
+        for (Map.Entry<String, List<String>> header : request.allHeaders().entrySet()) {
+            if (header.getValue() != null) {
+                builder.header(header.getKey(), String.join(", ", header.getValue()));
+            }
+        }
+        final HttpRequest.BodyPublisher body;
+        if (request.hasBody()) {
+            try (InputStream is = request.body()) {
+                body = HttpRequest.BodyPublishers.ofByteArray(is.readAllBytes());
+            }
+        } else {
+            body = HttpRequest.BodyPublishers.noBody();
+        }
+        builder.method(request.method(), body);
+
+        try {
+            return new PooledResponse(request, client.send(builder.build(), HttpResponse.BodyHandlers.ofInputStream()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw (IOException) new InterruptedIOException("Interrupted while waiting for " + request.url()).initCause(e);
+        }
+    }
+
+    /**
+     * Response that returns the connection to the pool when closed, even if the body wasn't read.
+     */
+    private static final class PooledResponse extends GitHubConnectorResponse.ByteArrayResponse {
+        private final HttpResponse<InputStream> response;
+
+        private PooledResponse(GitHubConnectorRequest request, HttpResponse<InputStream> response) {
+            super(request, response.statusCode(), response.headers().map());
+            this.response = response;
+        }
+
+        @Override
+        protected InputStream rawBodyStream() {
+            return response.body();
+        }
+
+        @Override
+        public void close() throws IOException {
+            super.close();
+            response.body().close();
+        }
+    }
+}
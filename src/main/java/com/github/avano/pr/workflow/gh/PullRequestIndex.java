@@ -0,0 +1,242 @@
+package com.github.avano.pr.workflow.gh;
+
+import org.kohsuke.github.GHIssueState;
+import org.kohsuke.github.GHPullRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.avano.pr.workflow.config.RepositoryConfigChangedEvent;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.scheduler.Scheduled;
+
+/**
+ * Index of the open pull requests of each repository by their HEAD commit SHA.
+ * <p>
+ * The index of a repository is seeded from the list of the open pull requests on the first lookup and then updated from the pull request
+ * events. It is periodically compared with the list of the open pull requests to repair a possible drift, for example caused by a missed
+ * webhook delivery.
+ */
+@ApplicationScoped
+public class PullRequestIndex {
+    private static final Logger LOG = LoggerFactory.getLogger(PullRequestIndex.class);
+
+    @Inject
+    GHClientRegistry clients;
+
+    @Inject
+    MeterRegistry registry;
+
+    private final Map<String, RepositoryIndex> indexes = new ConcurrentHashMap<>();
+
+    /**
+     * Gets all open pull requests where the given SHA is the HEAD of the PR.
+     *
+     * @param client client for the repository
+     * @param sha commit sha
+     * @return list of pull requests
+     */
+    public List<GHPullRequest> getPullRequests(GHClient client, String sha) {
+        final RepositoryIndex index = index(client.getRepositoryConfiguration().repository());
+        synchronized (index) {
+            if (!index.seeded) {
+                try {
+                    index.seed(listOpenPullRequests(client));
+                } catch (IOException e) {
+                    LOG.error("Unable to list open pull requests", e);
+                    return Collections.emptyList();
+                }
+            }
+            return index.get(sha);
+        }
+    }
+
+    /**
+     * Adds the open pull request to the index, or updates its HEAD commit SHA.
+     *
+     * @param repository repository full name
+     * @param pr pull request
+     */
+    public void update(String repository, GHPullRequest pr) {
+        final RepositoryIndex index = index(repository);
+        synchronized (index) {
+            // Not seeded index is filled with the current state when seeded
+            if (index.seeded) {
+                index.put(pr);
+            }
+        }
+    }
+
+    /**
+     * Removes the closed pull request from the index.
+     *
+     * @param repository repository full name
+     * @param number pull request number
+     */
+    public void remove(String repository, int number) {
+        final RepositoryIndex index = index(repository);
+        synchronized (index) {
+            index.remove(number);
+        }
+    }
+
+    /**
+     * Drops the index of the given repository, it is seeded again on the next lookup.
+     *
+     * @param repository repository full name
+     */
+    public void invalidate(String repository) {
+        indexes.remove(repository);
+    }
+
+    void onConfigChanged(@Observes RepositoryConfigChangedEvent event) {
+        if (event.repository() == null) {
+            indexes.clear();
+        } else {
+            invalidate(event.repository());
+        }
+    }
+
+    /**
+     * Compares the seeded indexes with the open pull requests in GitHub and repairs them if needed.
+     * <p>
+     * The pull requests changed by the events after the listing started are left as they are, as the listing might not contain the change.
+     */
+    @Scheduled(every = "${prw.pull-request-index-check-interval:30m}", delayed = "${prw.pull-request-index-check-interval:30m}",
+        concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void verify() {
+        for (Map.Entry<String, RepositoryIndex> entry : indexes.entrySet()) {
+            final GHClient client = clients.get(entry.getKey());
+            if (client == null) {
+                continue;
+            }
+            final RepositoryIndex index = entry.getValue();
+            final long listed;
+            synchronized (index) {
+                listed = index.version;
+            }
+            try {
+                final List<GHPullRequest> open = listOpenPullRequests(client);
+                synchronized (index) {
+                    if (!index.seeded) {
+                        continue;
+                    }
+                    final int repaired = index.repair(open, listed);
+                    if (repaired > 0) {
+                        LOG.warn("Open pull request index of repository {} is out of sync, repaired {} pull requests", entry.getKey(), repaired);
+                        registry.counter("prw.pr.index.repairs", "repository", entry.getKey()).increment();
+                    }
+                }
+            } catch (IOException e) {
+                LOG.warn("Unable to verify open pull request index of repository {}: {}", entry.getKey(), e.toString());
+            }
+        }
+    }
+
+    private RepositoryIndex index(String repository) {
+        return indexes.computeIfAbsent(repository, r -> new RepositoryIndex());
+    }
+
+    private List<GHPullRequest> listOpenPullRequests(GHClient client) throws IOException {
+        return client.getRepository().queryPullRequests().state(GHIssueState.OPEN).list().toList();
+    }
+
+    /**
+     * Index of the open pull requests of a single repository, guarded by itself.
+     */
+    private static final class RepositoryIndex {
+        private final Map<Integer, GHPullRequest> pullRequests = new HashMap<>();
+        private final Map<String, Set<Integer>> bySha = new HashMap<>();
+        // Version of the index in which each pull request was last changed by an event
+        private final Map<Integer, Long> changed = new HashMap<>();
+        private long version;
+        private boolean seeded;
+
+        private void seed(List<GHPullRequest> open) {
+            pullRequests.clear();
+            bySha.clear();
+            changed.clear();
+            open.forEach(this::index);
+            seeded = true;
+        }
+
+        private List<GHPullRequest> get(String sha) {
+            final List<GHPullRequest> result = new ArrayList<>();
+            bySha.getOrDefault(sha, Collections.emptySet()).forEach(number -> result.add(pullRequests.get(number)));
+            return result;
+        }
+
+        private void put(GHPullRequest pr) {
+            changed.put(pr.getNumber(), ++version);
+            index(pr);
+        }
+
+        private void remove(int number) {
+            changed.put(number, ++version);
+            unindex(number);
+        }
+
+        /**
+         * Makes the pull requests not changed since the given version match the listed open pull requests.
+         *
+         * @param open open pull requests
+         * @param listed version of the index when the listing started
+         * @return number of the repaired pull requests
+         */
+        private int repair(List<GHPullRequest> open, long listed) {
+            final Map<Integer, GHPullRequest> expected = new HashMap<>();
+            open.forEach(pr -> expected.put(pr.getNumber(), pr));
+            final Set<Integer> numbers = new TreeSet<>(expected.keySet());
+            numbers.addAll(pullRequests.keySet());
+            int repaired = 0;
+            for (Integer number : numbers) {
+                if (changed.getOrDefault(number, 0L) > listed) {
+                    continue;
+                }
+                final GHPullRequest actual = expected.get(number);
+                final GHPullRequest indexed = pullRequests.get(number);
+                if (actual == null) {
+                    unindex(number);
+                } else if (indexed == null || !indexed.getHead().getSha().equals(actual.getHead().getSha())) {
+                    index(actual);
+                } else {
+                    continue;
+                }
+                repaired++;
+            }
+            // Only the changes after the next listing started matter for the next repair
+            changed.values().removeIf(v -> v <= listed);
+            return repaired;
+        }
+
+        private void index(GHPullRequest pr) {
+            unindex(pr.getNumber());
+            pullRequests.put(pr.getNumber(), pr);
+            bySha.computeIfAbsent(pr.getHead().getSha(), s -> new TreeSet<>()).add(pr.getNumber());
+        }
+
+        private void unindex(int number) {
+            final GHPullRequest previous = pullRequests.remove(number);
+            if (previous != null) {
+                bySha.computeIfPresent(previous.getHead().getSha(), (s, numbers) -> {
+                    numbers.remove(number);
+                    return numbers.isEmpty() ? null : numbers;
+                });
+            }
+        }
+    }
+}
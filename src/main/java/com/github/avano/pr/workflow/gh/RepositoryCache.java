@@ -0,0 +1,107 @@
+package com.github.avano.pr.workflow.gh;
+
+import org.kohsuke.github.GHRepository;
+import org.kohsuke.github.GitHub;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.avano.pr.workflow.config.Configuration;
+import com.github.avano.pr.workflow.config.RepositoryConfigChangedEvent;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Cache of the {@link GHRepository} objects shared by all handlers, so that the repository isn't fetched from GitHub for every API call.
+ * <p>
+ * The repositories are fetched again after the configured TTL, when the repository configuration changes (as the cached object is bound to
+ * the GitHub client it was fetched with) and when a repository webhook event is received.
+ */
+@ApplicationScoped
+public class RepositoryCache {
+    private static final Logger LOG = LoggerFactory.getLogger(RepositoryCache.class);
+
+    @Inject
+    Configuration configuration;
+
+    @Inject
+    MeterRegistry registry;
+
+    private final Map<String, CachedRepository> repositories = new ConcurrentHashMap<>();
+
+    /**
+     * Gets the repository, fetching it using the given client if it is not cached.
+     *
+     * @param gitHub GitHub client used to fetch the repository
+     * @param repository repository full name
+     * @return repository object
+     * @throws IOException when unable to fetch the repository
+     */
+    public GHRepository get(GitHub gitHub, String repository) throws IOException {
+        final CachedRepository cached = repositories.get(repository);
+        if (cached != null && cached.isValid()) {
+            count("hit");
+            return cached.repository;
+        }
+        count("miss");
+        LOG.trace("Fetching repository {}", repository);
+        try {
+            return repositories.compute(repository, (r, existing) -> existing != null && existing.isValid() ? existing : fetch(gitHub, r))
+                .repository;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Removes the repository from the cache.
+     *
+     * @param repository repository full name
+     */
+    public void invalidate(String repository) {
+        LOG.debug("Invalidating cached repository {}", repository);
+        repositories.remove(repository);
+    }
+
+    void onConfigChanged(@Observes RepositoryConfigChangedEvent event) {
+        if (event.repository() == null) {
+            repositories.clear();
+        } else {
+            invalidate(event.repository());
+        }
+    }
+
+    private CachedRepository fetch(GitHub gitHub, String repository) {
+        try {
+            return new CachedRepository(gitHub.getRepository(repository), System.nanoTime() + configuration.repositoryCacheTtl().toNanos());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void count(String result) {
+        registry.counter("prw.github.repository.cache", "result", result).increment();
+    }
+
+    private static final class CachedRepository {
+        private final GHRepository repository;
+        private final long expiresAt;
+
+        private CachedRepository(GHRepository repository, long expiresAt) {
+            this.repository = repository;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isValid() {
+            return System.nanoTime() - expiresAt < 0;
+        }
+    }
+}
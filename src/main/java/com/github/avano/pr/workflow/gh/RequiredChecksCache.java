@@ -0,0 +1,140 @@
+package com.github.avano.pr.workflow.gh;
+
+import org.kohsuke.github.GHBranchProtection;
+import org.kohsuke.github.GHRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.avano.pr.workflow.config.Configuration;
+import com.github.avano.pr.workflow.config.RepositoryConfigChangedEvent;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Cache of the required checks of the protected branches, including the branches that are not protected.
+ * <p>
+ * The required checks are fetched again after the configured TTL, when the repository configuration changes and when a branch protection
+ * rule webhook event is received.
+ */
+@ApplicationScoped
+public class RequiredChecksCache {
+    private static final Logger LOG = LoggerFactory.getLogger(RequiredChecksCache.class);
+
+    @Inject
+    Configuration configuration;
+
+    @Inject
+    MeterRegistry registry;
+
+    private final Map<String, RequiredChecks> requiredChecks = new ConcurrentHashMap<>();
+
+    /**
+     * Gets the required check names for given branch if it is protected.
+     *
+     * @param client client for the repository
+     * @param branch branch name
+     * @return set of required check names or null if the branch is not protected or the protection can't be fetched
+     */
+    public Set<String> get(GHClient client, String branch) {
+        final String key = key(client.getRepositoryConfiguration().repository(), branch);
+        RequiredChecks cached = requiredChecks.get(key);
+        if (cached != null && cached.isValid()) {
+            count("hit");
+        } else {
+            count("miss");
+            try {
+                cached = fetch(client, branch);
+            } catch (IOException e) {
+                // Not cached, so that it is fetched again on the next attempt
+                LOG.error("Unable to get protection of branch {} in repository {}", branch, client.getRepositoryConfiguration().repository(), e);
+                return null;
+            }
+            requiredChecks.put(key, cached);
+        }
+        return cached.contexts == null ? null : new HashSet<>(cached.contexts);
+    }
+
+    /**
+     * Returns whether the required checks of given branch are cached, without fetching them.
+     *
+     * @param client client for the repository
+     * @param branch branch name
+     * @return true/false
+     */
+    boolean isCached(GHClient client, String branch) {
+        final RequiredChecks cached = requiredChecks.get(key(client.getRepositoryConfiguration().repository(), branch));
+        return cached != null && cached.isValid();
+    }
+
+    /**
+     * Removes the required checks of all branches of the repository from the cache.
+     *
+     * @param repository repository full name
+     */
+    public void invalidate(String repository) {
+        LOG.debug("Invalidating cached required checks of repository {}", repository);
+        final String prefix = repository + ":";
+        requiredChecks.keySet().removeIf(key -> key.startsWith(prefix));
+    }
+
+    void onConfigChanged(@Observes RepositoryConfigChangedEvent event) {
+        if (event.repository() == null) {
+            requiredChecks.clear();
+        } else {
+            invalidate(event.repository());
+        }
+    }
+
+    private RequiredChecks fetch(GHClient client, String branch) throws IOException {
+        final long expiresAt = System.nanoTime() + configuration.requiredChecksCacheTtl().toNanos();
+        final GHRepository repository = client.getRepository();
+        if (repository == null) {
+            throw new IOException("Unable to get repository " + client.getRepositoryConfiguration().repository());
+        }
+        final GHBranchProtection protection;
+        try {
+            protection = repository.getBranch(branch).getProtection();
+        } catch (FileNotFoundException e) {
+            // 404 is returned for a branch that is not protected
+            LOG.debug("Branch {} in repository {} is not protected", branch, client.getRepositoryConfiguration().repository());
+            return new RequiredChecks(null, expiresAt);
+        }
+        final GHBranchProtection.RequiredStatusChecks checks = protection.getRequiredStatusChecks();
+        return new RequiredChecks(checks == null ? Collections.emptySet() : new HashSet<>(checks.getContexts()), expiresAt);
+    }
+
+    private void count(String result) {
+        registry.counter("prw.github.required.checks.cache", "result", result).increment();
+    }
+
+    private static String key(String repository, String branch) {
+        return repository + ":" + branch;
+    }
+
+    private static final class RequiredChecks {
+        // Null for a branch that is not protected
+        private final Set<String> contexts;
+        private final long expiresAt;
+
+        private RequiredChecks(Set<String> contexts, long expiresAt) {
+            this.contexts = contexts;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isValid() {
+            return System.nanoTime() - expiresAt < 0;
+        }
+    }
+}
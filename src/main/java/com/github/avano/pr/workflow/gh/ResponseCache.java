@@ -0,0 +1,238 @@
+package com.github.avano.pr.workflow.gh;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Size-bounded LRU cache of the GitHub API responses, optionally spilling the entries evicted from memory to the disk.
+ * <p>
+ * The spilled entries are only kept for the lifetime of the application, the directory is cleared when the cache is created.
+ */
+class ResponseCache {
+    private static final Logger LOG = LoggerFactory.getLogger(ResponseCache.class);
+
+    private final long maxSize;
+    private final Path diskDir;
+    private final long diskMaxSize;
+
+    // Both guarded by this
+    private final LinkedHashMap<String, Entry> memory = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String, Long> disk = new LinkedHashMap<>(16, 0.75f, true);
+    private long memorySize;
+    private long diskSize;
+
+    /**
+     * Creates the cache.
+     *
+     * @param maxSize max size of the response bodies kept in memory
+     * @param diskDir directory for the entries evicted from memory, or null if they should be discarded
+     * @param diskMaxSize max size of the response bodies stored on the disk
+     */
+    ResponseCache(long maxSize, Path diskDir, long diskMaxSize) {
+        this.maxSize = maxSize;
+        this.diskDir = diskDir;
+        this.diskMaxSize = diskMaxSize;
+        if (diskDir != null) {
+            try {
+                if (Files.exists(diskDir)) {
+                    try (Stream<Path> files = Files.list(diskDir)) {
+                        for (Path file : files.collect(Collectors.toList())) {
+                            Files.delete(file);
+                        }
+                    }
+                }
+                Files.createDirectories(diskDir);
+            } catch (IOException e) {
+                throw new RuntimeException("Unable to create GitHub cache directory " + diskDir, e);
+            }
+        }
+    }
+
+    /**
+     * Gets the cached response.
+     *
+     * @param key cache key
+     * @return cached response or null if not cached
+     */
+    Entry get(String key) {
+        final String fileName;
+        synchronized (this) {
+            final Entry entry = memory.get(key);
+            if (entry != null || diskDir == null || !disk.containsKey(key)) {
+                return entry;
+            }
+            fileName = fileName(key);
+        }
+        final Entry entry = read(diskDir.resolve(fileName));
+        if (entry != null) {
+            // Move back to memory, the file is removed when the entry is put
+            put(key, entry);
+        }
+        return entry;
+    }
+
+    /**
+     * Puts the response into the cache. Responses bigger than the max size are not cached.
+     *
+     * @param key cache key
+     * @param entry response
+     */
+    void put(String key, Entry entry) {
+        if (entry.body.length > maxSize) {
+            return;
+        }
+        final List<Map.Entry<String, Entry>> evicted = new ArrayList<>();
+        synchronized (this) {
+            removeFromDisk(key);
+            final Entry previous = memory.put(key, entry);
+            if (previous != null) {
+                memorySize -= previous.body.length;
+            }
+            memorySize += entry.body.length;
+            final Iterator<Map.Entry<String, Entry>> it = memory.entrySet().iterator();
+            while (memorySize > maxSize && it.hasNext()) {
+                final Map.Entry<String, Entry> eldest = it.next();
+                it.remove();
+                memorySize -= eldest.getValue().body.length;
+                evicted.add(eldest);
+            }
+        }
+        if (diskDir != null) {
+            evicted.forEach(e -> spill(e.getKey(), e.getValue()));
+        }
+    }
+
+    /**
+     * Gets the size of the response bodies kept in memory.
+     *
+     * @return size in bytes
+     */
+    synchronized long size() {
+        return memorySize;
+    }
+
+    private void spill(String key, Entry entry) {
+        if (entry.body.length > diskMaxSize) {
+            return;
+        }
+        final Path file = diskDir.resolve(fileName(key));
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeUTF(entry.etag);
+            out.writeInt(entry.headers.size());
+            for (Map.Entry<String, List<String>> header : entry.headers.entrySet()) {
+                out.writeUTF(header.getKey());
+                out.writeInt(header.getValue().size());
+                for (String value : header.getValue()) {
+                    out.writeUTF(value);
+                }
+            }
+            out.writeInt(entry.body.length);
+            out.write(entry.body);
+        } catch (IOException e) {
+            LOG.warn("Unable to store GitHub response in {}: {}", file, e.toString());
+            return;
+        }
+        synchronized (this) {
+            final Long previous = disk.put(key, (long) entry.body.length);
+            diskSize += entry.body.length - (previous == null ? 0 : previous);
+            final Iterator<Map.Entry<String, Long>> it = disk.entrySet().iterator();
+            while (diskSize > diskMaxSize && it.hasNext()) {
+                final Map.Entry<String, Long> eldest = it.next();
+                it.remove();
+                diskSize -= eldest.getValue();
+                delete(diskDir.resolve(fileName(eldest.getKey())));
+            }
+        }
+    }
+
+    private Entry read(Path file) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            final String etag = in.readUTF();
+            final Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            final int headerCount = in.readInt();
+            for (int i = 0; i < headerCount; i++) {
+                final String name = in.readUTF();
+                final int valueCount = in.readInt();
+                final List<String> values = new ArrayList<>(valueCount);
+                for (int j = 0; j < valueCount; j++) {
+                    values.add(in.readUTF());
+                }
+                headers.put(name, values);
+            }
+            final byte[] body = new byte[in.readInt()];
+            in.readFully(body);
+            return new Entry(etag, headers, body);
+        } catch (NoSuchFileException e) {
+            // Evicted in the meantime
+            return null;
+        } catch (IOException e) {
+            LOG.warn("Unable to read GitHub response from {}: {}", file, e.toString());
+            return null;
+        }
+    }
+
+    private void removeFromDisk(String key) {
+        final Long size = disk.remove(key);
+        if (size != null) {
+            diskSize -= size;
+            delete(diskDir.resolve(fileName(key)));
+        }
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            LOG.warn("Unable to delete {}: {}", file, e.toString());
+        }
+    }
+
+    private static String fileName(String key) {
+        try {
+            final byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            final StringBuilder sb = new StringBuilder();
+            for (byte b : digest) {
+                sb.append(String.format("%02x", b));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Cached response.
+     */
+    static final class Entry {
+        final String etag;
+        final Map<String, List<String>> headers;
+        final byte[] body;
+
+        Entry(String etag, Map<String, List<String>> headers, byte[] body) {
+            this.etag = etag;
+            this.headers = Collections.unmodifiableMap(headers);
+            this.body = body;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.github.avano.pr.workflow.gh;
+
+import org.kohsuke.github.GHLabel;
+import org.kohsuke.github.GHPullRequest;
+import org.kohsuke.github.GHPullRequestReviewState;
+import org.kohsuke.github.GHUser;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+/**
+ * Merge snapshot backed by the REST API. The values are fetched on the first use, so that the decision stops calling the API as soon as
+ * it is known that the PR can't be merged.
+ * <p>
+ * When the reads are done concurrently, the reads needed by the rules with the same cost are started together: the reviews together
+ * with the refresh of the PR, the check runs together with the commit statuses, and both of them together with the protection of the
+ * base branch when it is not cached.
+ */
+class RestMergeSnapshot implements MergeSnapshot {
+    private final GHClient client;
+    private final ReviewLedger reviewLedger;
+    private final RequiredChecksCache requiredChecks;
+    private final GHPullRequest pr;
+    private final MergeReads reads;
+    private CompletableFuture<Map<GHUser, GHPullRequestReviewState>> reviews;
+    private CompletableFuture<Set<String>> protection;
+    private CompletableFuture<Map<String, String>> checkRuns;
+    private CompletableFuture<Map<String, String>> statuses;
+
+    RestMergeSnapshot(GHClient client, ReviewLedger reviewLedger, RequiredChecksCache requiredChecks, GHPullRequest pr, MergeReads reads)
+        throws IOException {
+        this.client = client;
+        this.reviewLedger = reviewLedger;
+        this.requiredChecks = requiredChecks;
+        this.pr = pr;
+        this.reads = reads;
+        // Refresh the PR to work with latest state
+        final CompletableFuture<Void> refreshed = reads.start(() -> {
+            pr.refresh();
+            return null;
+        });
+        if (reads.isConcurrent()) {
+            // The reviews don't depend on the refreshed state and usually come from the ledger without any call
+            startReviews();
+        }
+        reads.await("pull request", refreshed);
+    }
+
+    @Override
+    public boolean isMerged() throws IOException {
+        return pr.isMerged();
+    }
+
+    @Override
+    public boolean isDraft() throws IOException {
+        return pr.isDraft();
+    }
+
+    @Override
+    public Set<String> getLabels() throws IOException {
+        return pr.getLabels().stream().map(GHLabel::getName).collect(Collectors.toSet());
+    }
+
+    @Override
+    public String getBaseBranch() {
+        return pr.getBase().getRef();
+    }
+
+    @Override
+    public String getHeadSha() {
+        return pr.getHead().getSha();
+    }
+
+    @Override
+    public Set<String> getRequiredChecks() throws IOException {
+        synchronized (this) {
+            if (protection == null) {
+                final String branch = getBaseBranch();
+                if (reads.isConcurrent() && !requiredChecks.isCached(client, branch)) {
+                    // The checks are read together with the protection, as they are most likely needed as well
+                    startChecks();
+                }
+                protection = reads.start(() -> requiredChecks.get(client, branch));
+            }
+        }
+        return reads.await("branch protection", protection);
+    }
+
+    @Override
+    public Map<String, String> getChecks() throws IOException {
+        startChecks();
+        final Map<String, String> checks = new HashMap<>(reads.await("check runs", checkRuns));
+        // The commit status wins over a check run with the same name
+        checks.putAll(reads.await("commit statuses", statuses));
+        return checks;
+    }
+
+    @Override
+    public Boolean getMergeable() throws IOException {
+        return pr.getMergeable();
+    }
+
+    @Override
+    public String getAuthor() {
+        final GHUser author = client.getAuthor(pr);
+        return author == null ? null : author.getLogin();
+    }
+
+    @Override
+    public Map<String, GHPullRequestReviewState> getReviews() throws IOException {
+        startReviews();
+        final Map<String, GHPullRequestReviewState> reviews = new HashMap<>();
+        reads.await("reviews", this.reviews).forEach((user, state) -> reviews.put(user.getLogin(), state));
+        return reviews;
+    }
+
+    @Override
+    public int getRequestedReviewerCount() throws IOException {
+        return pr.getRequestedReviewers().size();
+    }
+
+    private synchronized void startReviews() {
+        if (reviews == null) {
+            reviews = reads.start(() -> reviewLedger.getReviews(client, pr));
+        }
+    }
+
+    private synchronized void startChecks() {
+        if (checkRuns == null) {
+            checkRuns = reads.start(() -> client.getCheckRuns(pr));
+            statuses = reads.start(() -> client.getCommitStatuses(pr));
+        }
+    }
+}
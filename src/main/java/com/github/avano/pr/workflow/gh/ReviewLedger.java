@@ -0,0 +1,173 @@
+package com.github.avano.pr.workflow.gh;
+
+import org.kohsuke.github.GHPullRequest;
+import org.kohsuke.github.GHPullRequestReview;
+import org.kohsuke.github.GHPullRequestReviewState;
+import org.kohsuke.github.GHUser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.avano.pr.workflow.config.RepositoryConfigChangedEvent;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Latest review of each user for each pull request, so that the reviews don't have to be listed from GitHub for every merge attempt.
+ * <p>
+ * The reviews of a pull request are listed from GitHub on the first use and then updated from the review submitted and dismissed events.
+ * When the pull request is updated, the ledger is reset to the state after the dismissal of the reviews.
+ */
+@ApplicationScoped
+public class ReviewLedger {
+    private static final Logger LOG = LoggerFactory.getLogger(ReviewLedger.class);
+
+    @Inject
+    MeterRegistry registry;
+
+    private final Map<String, Map<String, Entry>> ledgers = new ConcurrentHashMap<>();
+
+    /**
+     * Gets the reviews for given PR. User can review multiple times, so for each user it returns the latest review.
+     *
+     * @param client client for the repository
+     * @param pr pull request instance
+     * @return map with the user as key and last review state as value, empty if the reviews can't be listed
+     */
+    public Map<GHUser, GHPullRequestReviewState> getReviews(GHClient client, GHPullRequest pr) {
+        final String key = key(client.getRepositoryConfiguration().repository(), pr.getNumber());
+        Map<String, Entry> ledger = ledgers.get(key);
+        if (ledger == null) {
+            count("miss");
+            LOG.trace("PR #{}: Listing reviews", pr.getNumber());
+            try {
+                ledger = entries(pr.listReviews().toList());
+            } catch (IOException e) {
+                LOG.error("PR #{}: Unable to list reviews", pr.getNumber(), e);
+                return new HashMap<>();
+            }
+            // Keep the ledger if it was reset while the reviews were listed
+            final Map<String, Entry> existing = ledgers.putIfAbsent(key, ledger);
+            if (existing != null) {
+                ledger = existing;
+            }
+        } else {
+            count("hit");
+        }
+
+        final Map<GHUser, GHPullRequestReviewState> reviews = new HashMap<>();
+        synchronized (ledger) {
+            ledger.values().forEach(entry -> reviews.put(entry.user, entry.state));
+        }
+        return reviews;
+    }
+
+    /**
+     * Records the submitted or dismissed review. Reviews older than the latest known review of the same user are ignored.
+     *
+     * @param repository repository full name
+     * @param number pull request number
+     * @param review review from the event
+     */
+    public void record(String repository, int number, GHPullRequestReview review) {
+        final Map<String, Entry> ledger = ledgers.get(key(repository, number));
+        if (ledger == null) {
+            // Not tracked yet, the review will be listed on the first use
+            return;
+        }
+        final Entry entry;
+        try {
+            entry = new Entry(review);
+        } catch (IOException e) {
+            LOG.warn("PR #{}: Unable to record review, it will be listed again: {}", number, e.toString());
+            ledgers.remove(key(repository, number));
+            return;
+        }
+        synchronized (ledger) {
+            ledger.merge(entry.user.getLogin(), entry, (previous, current) -> current.id >= previous.id ? current : previous);
+        }
+    }
+
+    /**
+     * Replaces the recorded reviews of the PR with the given reviews.
+     *
+     * @param repository repository full name
+     * @param number pull request number
+     * @param reviews all reviews of the PR
+     */
+    public void reset(String repository, int number, List<GHPullRequestReview> reviews) {
+        try {
+            ledgers.put(key(repository, number), entries(reviews));
+        } catch (IOException e) {
+            LOG.warn("PR #{}: Unable to record reviews, they will be listed again: {}", number, e.toString());
+            remove(repository, number);
+        }
+    }
+
+    /**
+     * Forgets the reviews of the PR, they are listed again on the next use.
+     *
+     * @param repository repository full name
+     * @param number pull request number
+     */
+    public void remove(String repository, int number) {
+        ledgers.remove(key(repository, number));
+    }
+
+    /**
+     * Forgets the reviews of all PRs in the given repository.
+     *
+     * @param repository repository full name
+     */
+    public void invalidate(String repository) {
+        final String prefix = repository + "#";
+        ledgers.keySet().removeIf(key -> key.startsWith(prefix));
+    }
+
+    void onConfigChanged(@Observes RepositoryConfigChangedEvent event) {
+        if (event.repository() == null) {
+            ledgers.clear();
+        } else {
+            invalidate(event.repository());
+        }
+    }
+
+    private void count(String result) {
+        registry.counter("prw.review.ledger", "result", result).increment();
+    }
+
+    private static String key(String repository, int number) {
+        return repository + "#" + number;
+    }
+
+    private static Map<String, Entry> entries(List<GHPullRequestReview> reviews) throws IOException {
+        final Map<String, Entry> entries = new HashMap<>();
+        // Reviews are listed in chronological order, so the latest review of each user wins
+        for (GHPullRequestReview review : reviews) {
+            final Entry entry = new Entry(review);
+            entries.put(entry.user.getLogin(), entry);
+        }
+        return entries;
+    }
+
+    private static final class Entry {
+        private final long id;
+        private final GHUser user;
+        private final GHPullRequestReviewState state;
+
+        private Entry(GHPullRequestReview review) throws IOException {
+            this.id = review.getId();
+            this.user = review.getUser();
+            this.state = review.getState();
+        }
+    }
+}
@@ -6,12 +6,16 @@ import org.kohsuke.github.GHPullRequest;
 
 import com.github.avano.pr.workflow.config.Constants;
 import com.github.avano.pr.workflow.gh.GHClient;
+import com.github.avano.pr.workflow.gh.PullRequestIndex;
 import com.github.avano.pr.workflow.handler.base.BaseHandler;
+import com.github.avano.pr.workflow.handler.interceptor.Lane;
 import com.github.avano.pr.workflow.handler.interceptor.Log;
 import com.github.avano.pr.workflow.message.BusMessage;
 import com.github.avano.pr.workflow.message.CheckRunMessage;
 import com.github.avano.pr.workflow.message.CommitStatusMessage;
 
+import javax.inject.Inject;
+
 import java.util.List;
 
 import io.quarkus.vertx.ConsumeEvent;
@@ -20,10 +24,17 @@ import io.quarkus.vertx.ConsumeEvent;
  * Handles checkrun and status events.
  */
 public class CheckHandler extends BaseHandler {
+    @Inject
+    MergeTriggerCoalescer coalescer;
+
+    @Inject
+    PullRequestIndex pullRequests;
+
     /**
      * Handles the <a href="https://docs.github.com/en/developers/webhooks-and-events/webhooks/webhook-events-and-payloads#status">commit status changed</a> event.
      * <p>
-     * If the status is successful, it tries to merge the PR.
+     * If the status is successful, it tries to merge the PR. The merge attempts for the same commit are coalesced by the
+     * {@link MergeTriggerCoalescer}.
      *
      * @param msg {@link BusMessage} instance
      */
@@ -33,14 +44,16 @@ public class CheckHandler extends BaseHandler {
         CommitStatusMessage csm = msg.get(CommitStatusMessage.class);
         LOG.debug("Commit {}: Commit status is {}", csm.getCommit().getSHA1(), csm.getStatus().name());
         if (csm.getStatus() == GHCommitState.SUCCESS) {
-            tryToMergePrWithSha(msg.client(), csm.getCommit().getSHA1());
+            final String sha = csm.getCommit().getSHA1();
+            coalescer.submit(msg.client().getRepositoryConfiguration().repository(), sha, () -> tryToMergePrWithSha(msg.client(), sha));
         }
     }
 
     /**
      * Handles the <a href="https://docs.github.com/en/developers/webhooks-and-events/webhooks/webhook-events-and-payloads#check_run">checkrun</a> finished event.
      * <p>
-     * If the check run is successful, it tries to merge the PR.
+     * If the check run is successful, it tries to merge the PR. The merge attempts for the same commit are coalesced by the
+     * {@link MergeTriggerCoalescer}.
      *
      * @param msg {@link BusMessage} instance
      */
@@ -50,7 +63,8 @@ public class CheckHandler extends BaseHandler {
         GHCheckRun cr = msg.get(GHCheckRun.class);
         LOG.info("Commit {}: Commit check run finished, conclusion is: {}", cr.getHeadSha(), cr.getConclusion());
         if (cr.getConclusion() == GHCheckRun.Conclusion.SUCCESS) {
-            tryToMergePrWithSha(msg.client(), cr.getHeadSha());
+            coalescer.submit(msg.client().getRepositoryConfiguration().repository(), cr.getHeadSha(),
+                () -> tryToMergePrWithSha(msg.client(), cr.getHeadSha()));
         }
     }
 
@@ -60,6 +74,7 @@ public class CheckHandler extends BaseHandler {
      * @param msg {@link BusMessage} instance
      */
     @Log
+    @Lane
     @ConsumeEvent(Constants.CHECK_RUN_CREATE)
     public void handleCheckRunCreate(BusMessage msg) {
         CheckRunMessage crm = msg.get(CheckRunMessage.class);
@@ -78,7 +93,7 @@ public class CheckHandler extends BaseHandler {
      */
     private void tryToMergePrWithSha(GHClient client, String sha) {
         // Check if this SHA is a HEAD of some PR
-        List<GHPullRequest> pullRequestList = client.getPullRequests(sha);
+        List<GHPullRequest> pullRequestList = pullRequests.getPullRequests(client, sha);
         if (pullRequestList != null && pullRequestList.size() > 0) {
             for (GHPullRequest pr : pullRequestList) {
                 LOG.debug("Commit {}: This commit is head of PR #{}", sha, pr.getNumber());
@@ -1,18 +1,15 @@
 package com.github.avano.pr.workflow.handler;
 
-import org.kohsuke.github.GHLabel;
 import org.kohsuke.github.GHPullRequest;
 
 import com.github.avano.pr.workflow.config.Constants;
 import com.github.avano.pr.workflow.handler.base.BaseHandler;
+import com.github.avano.pr.workflow.handler.interceptor.Lane;
 import com.github.avano.pr.workflow.handler.interceptor.Log;
 import com.github.avano.pr.workflow.message.BusMessage;
 import com.github.avano.pr.workflow.message.LabelsMessage;
 
-import java.io.IOException;
 import java.util.List;
-import java.util.Set;
-import java.util.stream.Collectors;
 
 import io.quarkus.vertx.ConsumeEvent;
 
@@ -26,6 +23,7 @@ public class LabelHandler extends BaseHandler {
      * @param msg {@link BusMessage} instance
      */
     @Log
+    @Lane
     @ConsumeEvent(Constants.EDIT_LABELS)
     public void modifyLabels(BusMessage msg) {
         LabelsMessage lm = msg.get(LabelsMessage.class);
@@ -34,18 +32,7 @@ public class LabelHandler extends BaseHandler {
         List<String> removeLabels = lm.getRemoveLabels();
         LOG.info("PR #{}: Removing labels {}, adding labels {}", pr.getNumber(), (removeLabels == null ? "[]" : removeLabels),
             (addLabels == null ? "[]" : addLabels));
-        try {
-            Set<String> labels = pr.getLabels().stream().map(GHLabel::getName).collect(Collectors.toSet());
-            if (removeLabels != null) {
-                removeLabels.forEach(labels::remove);
-            }
-            if (addLabels != null) {
-                labels.addAll(addLabels);
-            }
-            pr.setLabels(labels.toArray(new String[] {}));
-        } catch (IOException e) {
-            LOG.error("PR #{}: Unable to modify labels: " + e, pr.getNumber());
-        }
+        msg.client().editLabels(pr, addLabels, removeLabels);
     }
 
     /**
@@ -56,6 +43,7 @@ public class LabelHandler extends BaseHandler {
      * @param msg {@link BusMessage} instance
      */
     @Log
+    @Lane
     @ConsumeEvent(Constants.PR_UNLABELED)
     public void handlePrUnlabeled(BusMessage msg) {
         GHPullRequest pr = msg.get(GHPullRequest.class);
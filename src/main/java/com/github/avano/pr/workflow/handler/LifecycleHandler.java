@@ -1,16 +1,21 @@
 package com.github.avano.pr.workflow.handler;
 
 import org.kohsuke.github.GHPullRequest;
+import org.kohsuke.github.GHPullRequestReview;
 import org.kohsuke.github.GHPullRequestReviewState;
 import org.kohsuke.github.GHUser;
 
 import com.github.avano.pr.workflow.config.Constants;
 import com.github.avano.pr.workflow.gh.GHClient;
+import com.github.avano.pr.workflow.gh.ReviewLedger;
 import com.github.avano.pr.workflow.handler.base.BaseHandler;
+import com.github.avano.pr.workflow.handler.interceptor.Lane;
 import com.github.avano.pr.workflow.handler.interceptor.Log;
 import com.github.avano.pr.workflow.message.BusMessage;
 import com.github.avano.pr.workflow.message.LabelsMessage;
 
+import javax.inject.Inject;
+
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
@@ -23,6 +28,9 @@ import io.quarkus.vertx.ConsumeEvent;
  * Handles Pull Request lifecycle events.
  */
 public class LifecycleHandler extends BaseHandler {
+    @Inject
+    ReviewLedger reviewLedger;
+
     /**
      * Handles the
      * <a href="https://docs.github.com/en/developers/webhooks-and-events/webhooks/webhook-events-and-payloads#pull_request">pull request</a>
@@ -33,6 +41,7 @@ public class LifecycleHandler extends BaseHandler {
      * @param msg {@link BusMessage} instance
      */
     @Log
+    @Lane
     @ConsumeEvent(Constants.PR_REOPENED)
     public void handlePrReopened(BusMessage msg) {
         LOG.info("PR #{}: Pull request reopened - attempting to merge", msg.get(GHPullRequest.class).getNumber());
@@ -52,6 +61,7 @@ public class LifecycleHandler extends BaseHandler {
      * @param msg {@link BusMessage} instance
      */
     @Log
+    @Lane
     @ConsumeEvent(Constants.PR_UPDATED)
     public void handlePrUpdated(BusMessage msg) {
         GHClient client = msg.client();
@@ -60,7 +70,8 @@ public class LifecycleHandler extends BaseHandler {
         LOG.info("PR #{}: Pull request updated - dismissing all reviews", pr.getNumber());
         // Dismiss all approved/changes requested reviews, since the PR was updated
         try {
-            pr.listReviews().toList().stream()
+            final List<GHPullRequestReview> allReviews = pr.listReviews().toList();
+            allReviews.stream()
                 .filter(r -> r.getState() == GHPullRequestReviewState.APPROVED || r.getState() == GHPullRequestReviewState.CHANGES_REQUESTED)
                 .forEach(r -> {
                     try {
@@ -69,14 +80,17 @@ public class LifecycleHandler extends BaseHandler {
                         LOG.error("PR #{}: Unable to dismiss review: " + e, pr.getNumber());
                     }
                 });
+            // The dismissed reviews have the updated state, so they don't have to be listed again
+            reviewLedger.reset(client.getRepositoryConfiguration().repository(), pr.getNumber(), allReviews);
         } catch (IOException e) {
             LOG.error("PR #{}: Unable to list all pull request reviews: " + e, pr.getNumber());
+            reviewLedger.remove(client.getRepositoryConfiguration().repository(), pr.getNumber());
         }
 
         // Re-apply labels to current state
         List<String> addLabels = new ArrayList<>();
         List<String> removeLabels = new ArrayList<>();
-        Map<GHUser, GHPullRequestReviewState> reviews = client.getReviews(pr);
+        Map<GHUser, GHPullRequestReviewState> reviews = reviewLedger.getReviews(client, pr);
         if (!reviews.isEmpty()) {
             // Request review from all previous reviewers (except for the author of the PR - if he responds to some comment, it is counted as
             // "commented" review)
@@ -105,6 +119,7 @@ public class LifecycleHandler extends BaseHandler {
      * @param msg {@link BusMessage} instance
      */
     @Log
+    @Lane
     @ConsumeEvent(Constants.PR_READY_FOR_REVIEW)
     public void handleReadyForReview(BusMessage msg) {
         LOG.info("PR #{}: Marked as ready, attempting to merge", msg.get(GHPullRequest.class).getNumber());
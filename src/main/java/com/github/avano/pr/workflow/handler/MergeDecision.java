@@ -0,0 +1,138 @@
+package com.github.avano.pr.workflow.handler;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Trace of a single merge evaluation of the PR, with the result and the time taken by each evaluated {@link MergeRule}.
+ * <p>
+ * The decision is recorded before the evaluation starts and updated as it goes, so it can be read concurrently.
+ */
+public class MergeDecision {
+    private final String repository;
+    private final int number;
+    private final Instant evaluatedAt = Instant.now();
+    private final List<Step> steps = new ArrayList<>();
+    private Outcome outcome = Outcome.EVALUATING;
+
+    /**
+     * Result of a single rule.
+     */
+    public enum Result {
+        PASS,
+        BLOCK,
+        ERROR
+    }
+
+    /**
+     * Outcome of the whole evaluation.
+     */
+    public enum Outcome {
+        EVALUATING,
+        BLOCKED,
+        ERROR,
+        QUEUED,
+        REJECTED,
+        MERGED,
+        MERGE_FAILED
+    }
+
+    public MergeDecision(String repository, int number) {
+        this.repository = repository;
+        this.number = number;
+    }
+
+    synchronized void step(MergeRule rule, long nanos, Result result, String reason) {
+        steps.add(new Step(rule, nanos / 1000, result, reason));
+        if (result != Result.PASS) {
+            outcome = result == Result.BLOCK ? Outcome.BLOCKED : Outcome.ERROR;
+        }
+    }
+
+    synchronized void setOutcome(Outcome outcome) {
+        this.outcome = outcome;
+    }
+
+    /**
+     * Gets the rule that blocked the merge.
+     *
+     * @return rule or null if no rule blocked the merge
+     */
+    synchronized MergeRule blockedBy() {
+        final Step last = lastBlocking();
+        return last == null ? null : last.mergeRule;
+    }
+
+    /**
+     * Gets the reason why the merge was blocked.
+     *
+     * @return reason or null if no rule blocked the merge
+     */
+    synchronized String blockReason() {
+        final Step last = lastBlocking();
+        return last == null ? null : last.reason;
+    }
+
+    private Step lastBlocking() {
+        final Step last = steps.isEmpty() ? null : steps.get(steps.size() - 1);
+        return last != null && last.result == Result.BLOCK ? last : null;
+    }
+
+    public String getRepository() {
+        return repository;
+    }
+
+    public int getNumber() {
+        return number;
+    }
+
+    public Instant getEvaluatedAt() {
+        return evaluatedAt;
+    }
+
+    public synchronized List<Step> getSteps() {
+        return new ArrayList<>(steps);
+    }
+
+    public synchronized Outcome getOutcome() {
+        return outcome;
+    }
+
+    /**
+     * Result of a single evaluated rule.
+     */
+    public static class Step {
+        private final MergeRule mergeRule;
+        private final long micros;
+        private final Result result;
+        private final String reason;
+
+        Step(MergeRule mergeRule, long micros, Result result, String reason) {
+            this.mergeRule = mergeRule;
+            this.micros = micros;
+            this.result = result;
+            this.reason = reason;
+        }
+
+        public String getRule() {
+            return mergeRule.ruleName();
+        }
+
+        public MergeRule.Cost getCost() {
+            return mergeRule.cost();
+        }
+
+        public Result getResult() {
+            return result;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+
+        public long getMicros() {
+            return micros;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.github.avano.pr.workflow.handler;
+
+import com.github.avano.pr.workflow.config.RepositoryConfigChangedEvent;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Latest {@link MergeDecision} of each open pull request, kept in memory.
+ */
+@ApplicationScoped
+public class MergeDecisions {
+    // "repository#number" -> latest decision
+    private final Map<String, MergeDecision> decisions = new ConcurrentHashMap<>();
+
+    /**
+     * Records the decision as the latest one of its pull request.
+     *
+     * @param decision merge decision
+     */
+    public void record(MergeDecision decision) {
+        decisions.put(key(decision.getRepository(), decision.getNumber()), decision);
+    }
+
+    /**
+     * Gets the latest decision of the pull request.
+     *
+     * @param repository repository full name
+     * @param number pull request number
+     * @return merge decision or null if the pull request wasn't evaluated yet
+     */
+    public MergeDecision get(String repository, int number) {
+        return decisions.get(key(repository, number));
+    }
+
+    /**
+     * Removes the decision of the closed pull request.
+     *
+     * @param repository repository full name
+     * @param number pull request number
+     */
+    public void remove(String repository, int number) {
+        decisions.remove(key(repository, number));
+    }
+
+    /**
+     * Removes all decisions of the given repository.
+     *
+     * @param repository repository full name
+     */
+    public void invalidate(String repository) {
+        decisions.keySet().removeIf(key -> key.startsWith(repository + "#"));
+    }
+
+    void onConfigChanged(@Observes RepositoryConfigChangedEvent event) {
+        // The decisions were made with the previous configuration, or the repository was removed
+        if (event.repository() == null) {
+            decisions.clear();
+        } else {
+            invalidate(event.repository());
+        }
+    }
+
+    private static String key(String repository, int number) {
+        return repository + "#" + number;
+    }
+}
@@ -0,0 +1,469 @@
+package com.github.avano.pr.workflow.handler;
+
+import org.kohsuke.github.GHPullRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.avano.pr.workflow.bus.Bus;
+import com.github.avano.pr.workflow.config.Configuration;
+import com.github.avano.pr.workflow.config.Constants;
+import com.github.avano.pr.workflow.config.RepositoryConfigChangedEvent;
+import com.github.avano.pr.workflow.gh.GHClient;
+import com.github.avano.pr.workflow.gh.GHClientRegistry;
+import com.github.avano.pr.workflow.message.BusMessage;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+
+/**
+ * Queues of the pull requests that are ready to be merged, one for each base branch of each repository.
+ * <p>
+ * Only the pull request at the head of the queue is merged, the others wait until it is merged or leaves the queue, so the merges into one
+ * branch are done one after another and each of them sees the result of the previous one. It is not known when the checks of a pull
+ * request ran, so once a merge into the branch is known, either done by the queue or seen in a pull request event, a pull request is merged
+ * only when it is up to date with the base branch. In the speculative mode it is merged also when it already contains the head of the last
+ * merged pull request.
+ * <p>
+ * The queued pull requests keep the client they were offered with. When the configuration of the repository changes, the client is taken
+ * again from the {@link GHClientRegistry} and when the repository is removed, its queues are dropped.
+ */
+@ApplicationScoped
+public class MergeQueue {
+    private static final Logger LOG = LoggerFactory.getLogger(MergeQueue.class);
+    private static final Duration THROUGHPUT_WINDOW = Duration.ofHours(1);
+
+    @Inject
+    Configuration configuration;
+
+    @Inject
+    MeterRegistry registry;
+
+    @Inject
+    Bus eventBus;
+
+    @Inject
+    GHClientRegistry clients;
+
+    // "repository:branch" -> queue
+    private final Map<String, BranchQueue> queues = new ConcurrentHashMap<>();
+
+    /**
+     * Result of offering the pull request to the queue.
+     */
+    public enum Admission {
+        /**
+         * The pull request is at the head of the queue and can be merged, the queue waits for {@link #complete}.
+         */
+        MERGE,
+        /**
+         * The pull request waits in the queue, it is tried again when it gets to the head.
+         */
+        WAIT,
+        /**
+         * The pull request was removed from the queue, because its checks didn't run with the latest changes of the base branch.
+         */
+        REJECT
+    }
+
+    /**
+     * Adds the pull request ready to be merged to the queue of its base branch, unless it is already queued.
+     *
+     * @param client client for the repository
+     * @param pr pull request
+     * @param branch base branch
+     * @param headSha sha of the HEAD commit the checks passed for
+     * @return whether the pull request can be merged now
+     */
+    public Admission offer(GHClient client, GHPullRequest pr, String branch, String headSha) {
+        final String repository = client.getRepositoryConfiguration().repository();
+        final BranchQueue queue = queue(repository, branch);
+        final Entry entry;
+        final String mergedHead;
+        synchronized (queue) {
+            entry = queue.add(client, pr, headSha);
+            if (queue.merging != null || queue.entries.peekFirst() != entry) {
+                LOG.info("PR #{}: Waiting in the merge queue of {} at position {}", pr.getNumber(), branch, queue.position(entry));
+                return Admission.WAIT;
+            }
+            queue.merging = entry;
+            mergedHead = queue.lastMergedHead;
+        }
+
+        try {
+            // The checks might have run before the last merge into the branch
+            if (mergedHead == null || isTested(client, pr, branch, headSha, mergedHead)) {
+                return Admission.MERGE;
+            }
+        } catch (RuntimeException e) {
+            // Don't block the queue
+            complete(client, pr.getNumber(), branch, false);
+            throw e;
+        }
+        LOG.info("PR #{}: Not merging - branch {} changed while waiting in the merge queue, the PR needs to be updated", pr.getNumber(),
+            branch);
+        complete(client, pr.getNumber(), branch, false);
+        return Admission.REJECT;
+    }
+
+    /**
+     * Checks if the checks of the PR ran with the latest changes of the base branch.
+     *
+     * @param client client for the repository
+     * @param pr pull request
+     * @param branch base branch
+     * @param headSha sha of the HEAD commit of the PR
+     * @param mergedHead sha of the HEAD commit of the last PR merged into the branch
+     * @return true if the PR can be merged without running the checks again
+     */
+    private boolean isTested(GHClient client, GHPullRequest pr, String branch, String headSha, String mergedHead) {
+        if (configuration.mergeQueue().speculative() && mergedHead != null && client.containsCommit(headSha, mergedHead)) {
+            LOG.info("PR #{}: Checks already ran with the previously merged commit {}", pr.getNumber(), mergedHead);
+            return true;
+        }
+        if (client.containsCommit(headSha, branch)) {
+            LOG.debug("PR #{}: Up to date with the base branch {}", pr.getNumber(), branch);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Removes the pull request at the head of the queue after the merge attempt and triggers the merge of the next one.
+     *
+     * @param client client for the repository
+     * @param number pull request number
+     * @param branch base branch
+     * @param merged whether the pull request was merged
+     */
+    public void complete(GHClient client, int number, String branch, boolean merged) {
+        final BranchQueue queue = queues.get(client.getRepositoryConfiguration().repository() + ":" + branch);
+        if (queue == null) {
+            return;
+        }
+        final Entry next;
+        synchronized (queue) {
+            final Entry entry = queue.remove(number);
+            if (queue.merging != null && queue.merging.number == number) {
+                queue.merging = null;
+            }
+            if (entry != null && merged) {
+                queue.recordMerge(entry);
+                registry.timer("prw.merge.queue.wait", queue.tags).record(Duration.between(entry.enqueuedAt, queue.lastMergedAt));
+            }
+            next = queue.merging == null ? queue.entries.peekFirst() : null;
+        }
+        trigger(next);
+    }
+
+    /**
+     * Records a merge into the base branch seen in a pull request event, so that the pull requests queued for the branch are merged only
+     * when their checks ran with it. The merges done by the queue were already recorded by {@link #complete}.
+     *
+     * @param repository repository full name
+     * @param branch base branch
+     * @param headSha sha of the HEAD commit of the merged pull request
+     */
+    public void merged(String repository, String branch, String headSha) {
+        final BranchQueue queue = queue(repository, branch);
+        synchronized (queue) {
+            queue.lastMergedHead = headSha;
+        }
+    }
+
+    /**
+     * Removes the pull request from the queues of the repository, for example when it is no longer ready to be merged.
+     *
+     * @param repository repository full name
+     * @param number pull request number
+     */
+    public void remove(String repository, int number) {
+        for (BranchQueue queue : queues.values()) {
+            if (!queue.repository.equals(repository)) {
+                continue;
+            }
+            Entry next = null;
+            synchronized (queue) {
+                // The merge in progress is completed by the merge handler
+                final boolean head = queue.entries.peekFirst() != null && queue.entries.peekFirst().number == number;
+                if ((queue.merging == null || queue.merging.number != number) && queue.remove(number) != null) {
+                    LOG.debug("PR #{}: Removed from the merge queue of {}", number, queue.branch);
+                    if (head && queue.merging == null) {
+                        next = queue.entries.peekFirst();
+                    }
+                }
+            }
+            trigger(next);
+        }
+    }
+
+    /**
+     * Drops the queues of the given repository, used when the state of the repository is not known anymore.
+     *
+     * @param repository repository full name
+     */
+    public void invalidate(String repository) {
+        final Iterator<BranchQueue> it = queues.values().iterator();
+        while (it.hasNext()) {
+            final BranchQueue queue = it.next();
+            if (queue.repository.equals(repository)) {
+                it.remove();
+                registry.remove(queue.gauge);
+            }
+        }
+    }
+
+    void onConfigChanged(@Observes RepositoryConfigChangedEvent event) {
+        final Set<String> repositories = event.repository() == null
+            ? queues.values().stream().map(q -> q.repository).collect(Collectors.toSet())
+            : Set.of(event.repository());
+        for (String repository : repositories) {
+            if (configuration.repositoryConfig(repository) == null) {
+                invalidate(repository);
+                continue;
+            }
+            for (BranchQueue queue : queues.values()) {
+                if (queue.repository.equals(repository)) {
+                    synchronized (queue) {
+                        // Created again from the new configuration when the entry gets to the head of the queue
+                        queue.entries.forEach(entry -> entry.client = null);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the state of all merge queues.
+     *
+     * @return list of queue states
+     */
+    public List<QueueStatus> status() {
+        final List<QueueStatus> status = new ArrayList<>();
+        final Instant now = Instant.now();
+        for (BranchQueue queue : queues.values()) {
+            synchronized (queue) {
+                queue.pruneMergeTimes(now);
+                final List<EntryStatus> entries = new ArrayList<>();
+                int position = 1;
+                for (Entry entry : queue.entries) {
+                    entries.add(new EntryStatus(entry.number, position++, entry == queue.merging,
+                        Duration.between(entry.enqueuedAt, now).toSeconds()));
+                }
+                status.add(new QueueStatus(queue.repository, queue.branch, entries, queue.mergeTimes.size(),
+                    queue.merges == 0 ? 0 : queue.totalWait.dividedBy(queue.merges).toSeconds()));
+            }
+        }
+        return status;
+    }
+
+    private void trigger(Entry next) {
+        if (next == null) {
+            return;
+        }
+        final GHClient client = next.client == null ? clients.get(next.repository) : next.client;
+        if (client == null) {
+            LOG.warn("PR #{}: Repository {} is no longer configured, not merging", next.number, next.repository);
+            return;
+        }
+        LOG.info("PR #{}: Next in the merge queue", next.number);
+        eventBus.publish(Constants.PR_MERGE, new BusMessage(client, next.pr));
+    }
+
+    private BranchQueue queue(String repository, String branch) {
+        return queues.computeIfAbsent(repository + ":" + branch, k -> createQueue(repository, branch));
+    }
+
+    private BranchQueue createQueue(String repository, String branch) {
+        final BranchQueue queue = new BranchQueue(repository, branch);
+        queue.gauge = Gauge.builder("prw.merge.queue.size", queue, BranchQueue::size).tags(queue.tags).register(registry);
+        return queue;
+    }
+
+    /**
+     * Queue of one base branch, guarded by its own monitor.
+     */
+    private static final class BranchQueue {
+        private final String repository;
+        private final String branch;
+        private final Tags tags;
+        private final Deque<Entry> entries = new LinkedList<>();
+        private final Deque<Instant> mergeTimes = new ArrayDeque<>();
+        private Gauge gauge;
+        private Entry merging;
+        private Instant lastMergedAt;
+        private String lastMergedHead;
+        private long merges;
+        private Duration totalWait = Duration.ZERO;
+
+        private BranchQueue(String repository, String branch) {
+            this.repository = repository;
+            this.branch = branch;
+            this.tags = Tags.of("repository", repository, "branch", branch);
+        }
+
+        private Entry add(GHClient client, GHPullRequest pr, String headSha) {
+            for (Entry entry : entries) {
+                if (entry.number == pr.getNumber()) {
+                    // New commits with passing checks, the PR keeps its place
+                    entry.headSha = headSha;
+                    entry.client = client;
+                    entry.pr = pr;
+                    return entry;
+                }
+            }
+            final Entry entry = new Entry(client, pr, headSha);
+            entries.addLast(entry);
+            return entry;
+        }
+
+        private Entry remove(int number) {
+            final Iterator<Entry> it = entries.iterator();
+            while (it.hasNext()) {
+                final Entry entry = it.next();
+                if (entry.number == number) {
+                    it.remove();
+                    return entry;
+                }
+            }
+            return null;
+        }
+
+        private int position(Entry entry) {
+            int position = 1;
+            for (Entry e : entries) {
+                if (e == entry) {
+                    return position;
+                }
+                position++;
+            }
+            return -1;
+        }
+
+        private void recordMerge(Entry entry) {
+            lastMergedAt = Instant.now();
+            lastMergedHead = entry.headSha;
+            merges++;
+            totalWait = totalWait.plus(Duration.between(entry.enqueuedAt, lastMergedAt));
+            mergeTimes.addLast(lastMergedAt);
+            pruneMergeTimes(lastMergedAt);
+        }
+
+        private void pruneMergeTimes(Instant now) {
+            while (!mergeTimes.isEmpty() && mergeTimes.peekFirst().isBefore(now.minus(THROUGHPUT_WINDOW))) {
+                mergeTimes.removeFirst();
+            }
+        }
+
+        private synchronized int size() {
+            return entries.size();
+        }
+    }
+
+    private static final class Entry {
+        private final String repository;
+        private final int number;
+        private final Instant enqueuedAt = Instant.now();
+        // Null when the repository configuration changed since the PR was offered
+        private volatile GHClient client;
+        private GHPullRequest pr;
+        private String headSha;
+
+        private Entry(GHClient client, GHPullRequest pr, String headSha) {
+            this.repository = client.getRepositoryConfiguration().repository();
+            this.number = pr.getNumber();
+            this.client = client;
+            this.pr = pr;
+            this.headSha = headSha;
+        }
+    }
+
+    /**
+     * State of one merge queue.
+     */
+    public static class QueueStatus {
+        private final String repository;
+        private final String branch;
+        private final List<EntryStatus> pullRequests;
+        private final int mergesLastHour;
+        private final long averageWaitSeconds;
+
+        QueueStatus(String repository, String branch, List<EntryStatus> pullRequests, int mergesLastHour, long averageWaitSeconds) {
+            this.repository = repository;
+            this.branch = branch;
+            this.pullRequests = pullRequests;
+            this.mergesLastHour = mergesLastHour;
+            this.averageWaitSeconds = averageWaitSeconds;
+        }
+
+        public String getRepository() {
+            return repository;
+        }
+
+        public String getBranch() {
+            return branch;
+        }
+
+        public List<EntryStatus> getPullRequests() {
+            return pullRequests;
+        }
+
+        public int getMergesLastHour() {
+            return mergesLastHour;
+        }
+
+        public long getAverageWaitSeconds() {
+            return averageWaitSeconds;
+        }
+    }
+
+    /**
+     * State of one pull request in the merge queue.
+     */
+    public static class EntryStatus {
+        private final int number;
+        private final int position;
+        private final boolean merging;
+        private final long waitingSeconds;
+
+        EntryStatus(int number, int position, boolean merging, long waitingSeconds) {
+            this.number = number;
+            this.position = position;
+            this.merging = merging;
+            this.waitingSeconds = waitingSeconds;
+        }
+
+        public int getNumber() {
+            return number;
+        }
+
+        public int getPosition() {
+            return position;
+        }
+
+        public boolean isMerging() {
+            return merging;
+        }
+
+        public long getWaitingSeconds() {
+            return waitingSeconds;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.github.avano.pr.workflow.handler;
+
+import org.kohsuke.github.GHPullRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.avano.pr.workflow.bus.Bus;
+import com.github.avano.pr.workflow.config.Configuration;
+import com.github.avano.pr.workflow.config.Constants;
+import com.github.avano.pr.workflow.config.RepositoryConfigChangedEvent;
+import com.github.avano.pr.workflow.gh.GHClient;
+import com.github.avano.pr.workflow.gh.GHClientRegistry;
+import com.github.avano.pr.workflow.message.BusMessage;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Schedules the merge attempts again when GitHub is still computing the mergeable state of the pull request.
+ * <p>
+ * GitHub computes the mergeable state in the background after a push to the pull request or to its base branch, so right after that the
+ * state is not known yet. Instead of waiting for an unrelated event, the merge attempt is repeated with an exponential backoff, at most
+ * one scheduled attempt for each pull request at a time.
+ * <p>
+ * When the configuration of the repository changes, the scheduled attempt takes the client again from the {@link GHClientRegistry}, and
+ * when the repository is removed, its rechecks are dropped.
+ */
+@ApplicationScoped
+public class MergeRecheckScheduler {
+    private static final Logger LOG = LoggerFactory.getLogger(MergeRecheckScheduler.class);
+
+    @Inject
+    Configuration configuration;
+
+    @Inject
+    MeterRegistry registry;
+
+    @Inject
+    Bus eventBus;
+
+    @Inject
+    GHClientRegistry clients;
+
+    // "repository#number" -> recheck
+    private final Map<String, Recheck> rechecks = new ConcurrentHashMap<>();
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    void init() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "merge-recheck");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    void stop() {
+        scheduler.shutdown();
+    }
+
+    /**
+     * Schedules the next merge attempt for the pull request with unknown mergeable state, unless there is one already scheduled.
+     *
+     * @param client client for the repository
+     * @param pr pull request
+     */
+    public void schedule(GHClient client, GHPullRequest pr) {
+        final Configuration.MergeRecheckConfig config = configuration.mergeRecheck();
+        final String repository = client.getRepositoryConfiguration().repository();
+        final String key = key(repository, pr.getNumber());
+        final Recheck recheck = rechecks.computeIfAbsent(key, k -> new Recheck(repository));
+        final Duration delay;
+        synchronized (recheck) {
+            if (recheck.scheduled) {
+                LOG.debug("PR #{}: Merge attempt already scheduled", pr.getNumber());
+                return;
+            }
+            if (recheck.attempts >= config.maxAttempts()) {
+                LOG.warn("PR #{}: Mergeable state still not known after {} attempts, giving up", pr.getNumber(), recheck.attempts);
+                rechecks.remove(key);
+                registry.counter("prw.merge.rechecks", "result", "exhausted").increment();
+                return;
+            }
+            delay = backoff(config, recheck.attempts++);
+            recheck.scheduled = true;
+            recheck.client = client;
+        }
+        LOG.info("PR #{}: Mergeable state not known yet, trying again in {}", pr.getNumber(), delay);
+        registry.counter("prw.merge.rechecks", "result", "scheduled").increment();
+        scheduler.schedule(() -> {
+            final GHClient current;
+            synchronized (recheck) {
+                recheck.scheduled = false;
+                current = recheck.client == null ? clients.get(repository) : recheck.client;
+            }
+            if (current == null) {
+                LOG.warn("PR #{}: Repository {} is no longer configured, not trying to merge again", pr.getNumber(), repository);
+                rechecks.remove(key, recheck);
+                return;
+            }
+            eventBus.publish(Constants.PR_MERGE, new BusMessage(current, pr));
+        }, delay.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Forgets the rechecks of the pull request once its mergeable state was known in the merge attempt.
+     *
+     * @param repository repository full name
+     * @param number pull request number
+     * @param merged whether the pull request was merged
+     */
+    public void complete(String repository, int number, boolean merged) {
+        final String key = key(repository, number);
+        final Recheck recheck = rechecks.get(key);
+        if (recheck == null) {
+            return;
+        }
+        synchronized (recheck) {
+            // The state was not known in this attempt and the next one is scheduled
+            if (recheck.scheduled) {
+                return;
+            }
+            rechecks.remove(key);
+        }
+        if (merged) {
+            final Duration latency = Duration.between(recheck.firstSeen, Instant.now());
+            LOG.info("PR #{}: Merged after {} recheck(s) of the mergeable state", number, recheck.attempts);
+            registry.counter("prw.merge.rechecks", "result", "rescued").increment();
+            registry.timer("prw.merge.recheck.latency").record(latency);
+        }
+    }
+
+    /**
+     * Drops the rechecks of the given repository, the scheduled attempts are still done.
+     *
+     * @param repository repository full name
+     */
+    public void invalidate(String repository) {
+        rechecks.keySet().removeIf(key -> key.startsWith(repository + "#"));
+    }
+
+    void onConfigChanged(@Observes RepositoryConfigChangedEvent event) {
+        for (Recheck recheck : rechecks.values()) {
+            if (event.repository() != null && !event.repository().equals(recheck.repository)) {
+                continue;
+            }
+            if (configuration.repositoryConfig(recheck.repository) == null) {
+                invalidate(recheck.repository);
+                continue;
+            }
+            synchronized (recheck) {
+                // Created again from the new configuration when the scheduled attempt is done
+                recheck.client = null;
+            }
+        }
+    }
+
+    private static Duration backoff(Configuration.MergeRecheckConfig config, int attempt) {
+        final Duration delay = config.initialDelay().multipliedBy(1L << Math.min(attempt, 30));
+        return delay.compareTo(config.maxDelay()) > 0 ? config.maxDelay() : delay;
+    }
+
+    private static String key(String repository, int number) {
+        return repository + "#" + number;
+    }
+
+    private static final class Recheck {
+        private final String repository;
+        // When the mergeable state was not known for the first time
+        private final Instant firstSeen = Instant.now();
+        private int attempts;
+        private boolean scheduled;
+        // Null when the repository configuration changed since the attempt was scheduled
+        private GHClient client;
+
+        private Recheck(String repository) {
+            this.repository = repository;
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.github.avano.pr.workflow.handler;
+
+import org.kohsuke.github.GHPullRequestReviewState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.avano.pr.workflow.config.ApprovalStrategy;
+import com.github.avano.pr.workflow.config.Constants;
+import com.github.avano.pr.workflow.config.RepositoryConfig;
+import com.github.avano.pr.workflow.gh.GHClient;
+import com.github.avano.pr.workflow.gh.MergeSnapshot;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Preconditions of the merge, each of them tagged with the cost of the data it needs.
+ * <p>
+ * The rules are evaluated from the cheapest to the most expensive one and the evaluation stops at the first rule that blocks the merge, so
+ * the data needed only by the more expensive rules is not fetched at all.
+ */
+public enum MergeRule {
+    /**
+     * The PR is not merged yet.
+     */
+    NOT_MERGED(Cost.PULL_REQUEST) {
+        @Override
+        String check(GHClient client, int number, MergeSnapshot snapshot) throws IOException {
+            return snapshot.isMerged() ? "already merged" : null;
+        }
+    },
+    /**
+     * The PR is not a draft.
+     */
+    NOT_DRAFT(Cost.PULL_REQUEST) {
+        @Override
+        String check(GHClient client, int number, MergeSnapshot snapshot) throws IOException {
+            return snapshot.isDraft() ? "draft state" : null;
+        }
+    },
+    /**
+     * The PR doesn't have the work in progress label.
+     */
+    NOT_WORK_IN_PROGRESS(Cost.PULL_REQUEST) {
+        @Override
+        String check(GHClient client, int number, MergeSnapshot snapshot) throws IOException {
+            return snapshot.getLabels().contains(client.getRepositoryConfiguration().wipLabel()) ? "work in progress" : null;
+        }
+    },
+    /**
+     * The PR can be merged without conflicts.
+     */
+    MERGEABLE(Cost.PULL_REQUEST) {
+        @Override
+        String check(GHClient client, int number, MergeSnapshot snapshot) throws IOException {
+            final Boolean mergeable = snapshot.getMergeable();
+            if (mergeable == null) {
+                return "mergeable state not known yet";
+            }
+            return mergeable ? null : "not mergeable";
+        }
+    },
+    /**
+     * The PR is approved according to the approval strategy, or it is automerged without the reviews.
+     */
+    REVIEWS(Cost.REVIEWS) {
+        @Override
+        String check(GHClient client, int number, MergeSnapshot snapshot) throws IOException {
+            final RepositoryConfig rcfg = client.getRepositoryConfiguration();
+            final String author = snapshot.getAuthor();
+            if (Constants.DEPENDABOT_NAME.equals(author) && rcfg.automergeDependabot()) {
+                LOG.info("PR #{}: Automerging dependabot PR", number);
+                return null;
+            }
+            if (rcfg.automergeOwnerPRs() && rcfg.repository().split("/")[0].equals(author)) {
+                LOG.info("PR #{}: Automerging owner's PR", number);
+                return null;
+            }
+
+            Map<String, GHPullRequestReviewState> reviews = snapshot.getReviews();
+            if (reviews.isEmpty()) {
+                return "no reviews";
+            }
+            if (reviews.values().stream().noneMatch(r -> r == GHPullRequestReviewState.APPROVED)) {
+                return "no approvals";
+            }
+            if (reviews.containsValue(GHPullRequestReviewState.CHANGES_REQUESTED)) {
+                return "at least one \"changes requested\" review present";
+            }
+            if (ApprovalStrategy.ALL == rcfg.approvalStrategy() && (snapshot.getRequestedReviewerCount() != reviews.size()
+                || reviews.values().stream().anyMatch(r -> r != GHPullRequestReviewState.APPROVED))) {
+                return "approval from some reviewer missing (using \"all\" strategy)";
+            }
+            return null;
+        }
+    },
+    /**
+     * All required checks of the base branch passed.
+     */
+    REQUIRED_CHECKS(Cost.CHECKS) {
+        @Override
+        String check(GHClient client, int number, MergeSnapshot snapshot) throws IOException {
+            final Set<String> requiredChecks = snapshot.getRequiredChecks();
+            if (requiredChecks == null || requiredChecks.isEmpty()) {
+                LOG.debug("PR #{}: No required checks defined for branch {}", number, snapshot.getBaseBranch());
+                return null;
+            }
+            LOG.info("PR #{}: Required checks: {}", number, String.join(", ", requiredChecks));
+            final Map<String, String> checks = snapshot.getChecks();
+            LOG.info("PR #{}: Checks - {}", number, checks.entrySet().stream().map(e -> "[" + e.getKey() + ": " + e.getValue() + "]")
+                .collect(Collectors.joining(", ")));
+            checks.forEach((name, result) -> {
+                if ("success".equalsIgnoreCase(result)) {
+                    requiredChecks.remove(name);
+                }
+            });
+            return requiredChecks.isEmpty() ? null : "some of the required checks did not pass";
+        }
+    };
+
+    private static final Logger LOG = LoggerFactory.getLogger(MergeRule.class);
+    // Stable sort keeps the declaration order of the rules with the same cost
+    private static final List<MergeRule> ORDERED =
+        Arrays.stream(values()).sorted(Comparator.comparing(MergeRule::cost)).collect(Collectors.toUnmodifiableList());
+
+    /**
+     * Data needed by the rule, from the cheapest.
+     */
+    public enum Cost {
+        /**
+         * State of the PR itself, part of the snapshot.
+         */
+        PULL_REQUEST,
+        /**
+         * Reviews of the PR, usually taken from the review ledger.
+         */
+        REVIEWS,
+        /**
+         * Protection of the base branch and the check runs and statuses of the HEAD commit.
+         */
+        CHECKS
+    }
+
+    private final Cost cost;
+
+    MergeRule(Cost cost) {
+        this.cost = cost;
+    }
+
+    public Cost cost() {
+        return cost;
+    }
+
+    /**
+     * Gets the name of the rule used in the decision trace.
+     *
+     * @return rule name
+     */
+    public String ruleName() {
+        return name().toLowerCase().replace('_', '-');
+    }
+
+    /**
+     * Checks the rule.
+     *
+     * @param client client for the repository
+     * @param number PR number
+     * @param snapshot merge snapshot of the PR
+     * @return null when the rule passed, otherwise the reason why it blocks the merge
+     */
+    abstract String check(GHClient client, int number, MergeSnapshot snapshot) throws IOException;
+
+    /**
+     * Evaluates the rules from the cheapest one until the first one that blocks the merge and records them in the decision.
+     *
+     * @param client client for the repository
+     * @param snapshot merge snapshot of the PR
+     * @param decision decision to record the trace of the evaluated rules in
+     * @throws IOException when the data needed by a rule can't be fetched
+     */
+    static void evaluate(GHClient client, MergeSnapshot snapshot, MergeDecision decision) throws IOException {
+        for (MergeRule rule : ORDERED) {
+            final long start = System.nanoTime();
+            final String reason;
+            try {
+                reason = rule.check(client, decision.getNumber(), snapshot);
+            } catch (IOException | RuntimeException e) {
+                decision.step(rule, System.nanoTime() - start, MergeDecision.Result.ERROR, e.getMessage());
+                throw e;
+            }
+            decision.step(rule, System.nanoTime() - start, reason == null ? MergeDecision.Result.PASS : MergeDecision.Result.BLOCK, reason);
+            if (reason != null) {
+                return;
+            }
+        }
+    }
+}
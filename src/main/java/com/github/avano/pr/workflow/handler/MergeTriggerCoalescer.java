@@ -0,0 +1,89 @@
+package com.github.avano.pr.workflow.handler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.avano.pr.workflow.config.Configuration;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Coalesces the merge attempts triggered by the successful statuses and check runs of the same commit.
+ * <p>
+ * The first trigger for a (repository, commit) pair opens a window and all triggers for the same pair that come during the window are
+ * absorbed into a single merge attempt that is done when the window closes.
+ */
+@ApplicationScoped
+public class MergeTriggerCoalescer {
+    private static final Logger LOG = LoggerFactory.getLogger(MergeTriggerCoalescer.class);
+
+    @Inject
+    Configuration configuration;
+
+    @Inject
+    MeterRegistry registry;
+
+    // "repository@sha" -> number of triggers in the open window
+    private final Map<String, Integer> windows = new ConcurrentHashMap<>();
+    private DistributionSummary absorbed;
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    void init() {
+        absorbed = registry.summary("prw.merge.coalesced.triggers");
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "merge-coalescer");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    void stop() {
+        scheduler.shutdown();
+    }
+
+    /**
+     * Submits the merge attempt for the given commit. The attempt is done when the coalescing window for the commit closes, unless there is
+     * already an attempt for the same commit waiting.
+     *
+     * @param repository repository full name
+     * @param sha commit sha
+     * @param attempt merge attempt
+     */
+    public void submit(String repository, String sha, Runnable attempt) {
+        final long window = configuration.mergeCoalesceWindow().toMillis();
+        if (window <= 0) {
+            attempt.run();
+            return;
+        }
+
+        final String key = repository + "@" + sha;
+        if (windows.merge(key, 1, Integer::sum) > 1) {
+            LOG.debug("Commit {}: Merge attempt already scheduled", sha);
+            return;
+        }
+        scheduler.schedule(() -> {
+            final int triggers = windows.remove(key);
+            absorbed.record(triggers);
+            LOG.debug("Commit {}: Trying to merge after {} trigger(s)", sha, triggers);
+            try {
+                attempt.run();
+            } catch (Exception e) {
+                LOG.error("Commit {}: Merge attempt failed", sha, e);
+            }
+        }, window, TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,75 @@
+package com.github.avano.pr.workflow.handler;
+
+import org.kohsuke.github.GHLabel;
+import org.kohsuke.github.GHPullRequest;
+import org.kohsuke.github.GHPullRequestReviewState;
+import org.kohsuke.github.GHUser;
+
+import com.github.avano.pr.workflow.config.Constants;
+import com.github.avano.pr.workflow.config.RepositoryConfig;
+import com.github.avano.pr.workflow.gh.GHClient;
+import com.github.avano.pr.workflow.gh.ReviewLedger;
+import com.github.avano.pr.workflow.handler.base.BaseHandler;
+import com.github.avano.pr.workflow.handler.interceptor.Lane;
+import com.github.avano.pr.workflow.handler.interceptor.Log;
+import com.github.avano.pr.workflow.message.BusMessage;
+import com.github.avano.pr.workflow.message.LabelsMessage;
+
+import javax.inject.Inject;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import io.quarkus.vertx.ConsumeEvent;
+
+/**
+ * Handles the pull requests found by the {@link ReconciliationSweeper}.
+ */
+public class ReconciliationHandler extends BaseHandler {
+    @Inject
+    ReviewLedger reviewLedger;
+
+    /**
+     * Brings the pull request whose events might have been missed to the state it would have after the events.
+     * <p>
+     * The approved and changes requested labels are corrected according to the latest reviews and then it is tried to merge the PR.
+     *
+     * @param msg {@link BusMessage} instance
+     */
+    @Log
+    @Lane
+    @ConsumeEvent(Constants.PR_RECONCILE)
+    public void reconcile(BusMessage msg) {
+        GHClient client = msg.client();
+        GHPullRequest pr = msg.get(GHPullRequest.class);
+        LOG.info("PR #{}: Reconciling", pr.getNumber());
+        correctLabels(client, pr);
+        eventBus.publish(Constants.PR_MERGE, msg);
+    }
+
+    private void correctLabels(GHClient client, GHPullRequest pr) {
+        final RepositoryConfig rcfg = client.getRepositoryConfiguration();
+        final Map<GHUser, GHPullRequestReviewState> reviews = reviewLedger.getReviews(client, pr);
+        final List<String> expected;
+        final List<String> unexpected;
+        if (reviews.containsValue(GHPullRequestReviewState.CHANGES_REQUESTED)) {
+            expected = rcfg.changesRequestedLabels();
+            unexpected = rcfg.approvedLabels();
+        } else if (reviews.containsValue(GHPullRequestReviewState.APPROVED)) {
+            expected = rcfg.approvedLabels();
+            unexpected = rcfg.changesRequestedLabels();
+        } else {
+            return;
+        }
+        // The labels are part of the listed pull request
+        final Set<String> labels = pr.getLabels().stream().map(GHLabel::getName).collect(Collectors.toSet());
+        final List<String> addLabels = expected.stream().filter(label -> !labels.contains(label)).collect(Collectors.toList());
+        final List<String> removeLabels = unexpected.stream().filter(labels::contains).collect(Collectors.toList());
+        if (!addLabels.isEmpty() || !removeLabels.isEmpty()) {
+            LOG.info("PR #{}: Labels don't match the reviews", pr.getNumber());
+            eventBus.publish(Constants.EDIT_LABELS, new BusMessage(client, new LabelsMessage(pr, addLabels, removeLabels)));
+        }
+    }
+}
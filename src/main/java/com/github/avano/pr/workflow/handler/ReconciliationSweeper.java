@@ -0,0 +1,221 @@
+package com.github.avano.pr.workflow.handler;
+
+import org.kohsuke.github.GHDirection;
+import org.kohsuke.github.GHIssueState;
+import org.kohsuke.github.GHPullRequest;
+import org.kohsuke.github.GHPullRequestQueryBuilder;
+import org.kohsuke.github.GHRepository;
+import org.kohsuke.github.PagedIterator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.avano.pr.workflow.bus.Bus;
+import com.github.avano.pr.workflow.config.Configuration;
+import com.github.avano.pr.workflow.config.Constants;
+import com.github.avano.pr.workflow.config.RepositoryConfigChangedEvent;
+import com.github.avano.pr.workflow.gh.ApiCallScheduler;
+import com.github.avano.pr.workflow.gh.GHClient;
+import com.github.avano.pr.workflow.gh.GHClientRegistry;
+import com.github.avano.pr.workflow.message.BusMessage;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.scheduler.Scheduled;
+
+/**
+ * Periodically reconciles the open pull requests whose events might have been missed, for example because of a restart or a failed
+ * webhook delivery.
+ * <p>
+ * The open pull requests of each repository are walked from the most recently updated one, a page in each step. A walk can span multiple
+ * cycles, the next cycle continues on the page where the previous one stopped. A walk ends at the pull requests that were not updated
+ * since the previous walk started, so only the first walk after the start goes through all open pull requests. A pull request is stale
+ * when it was not updated recently and it was not evaluated for the merge since its last update. The stale pull requests are sent to the
+ * {@link ReconciliationHandler} in the lane of the pull request.
+ * <p>
+ * Each cycle calls the GitHub API at most the configured number of times, each page of the pull requests counts as one call and each
+ * reconciled pull request as the usual number of calls of its evaluation. The repositories whose rate limit is down to the reserve are
+ * skipped, and the cycle starts with a different repository each time.
+ */
+@ApplicationScoped
+public class ReconciliationSweeper {
+    private static final Logger LOG = LoggerFactory.getLogger(ReconciliationSweeper.class);
+    private static final int PAGE_SIZE = 30;
+    // Reviews, refresh of the PR, check runs and statuses, with the branch protection cached
+    private static final int RECONCILE_CALLS = 4;
+
+    @Inject
+    Configuration configuration;
+
+    @Inject
+    GHClientRegistry clients;
+
+    @Inject
+    ApiCallScheduler scheduler;
+
+    @Inject
+    MergeDecisions decisions;
+
+    @Inject
+    MeterRegistry registry;
+
+    @Inject
+    Bus eventBus;
+
+    private final Map<String, Walk> walks = new ConcurrentHashMap<>();
+    // Walks end at the pull requests updated before this time
+    private final Map<String, Instant> since = new ConcurrentHashMap<>();
+    private int offset;
+
+    @Scheduled(every = "${prw.reconciliation.interval:10m}", delayed = "${prw.reconciliation.interval:10m}")
+    void sweep() {
+        sweep(configuration.reconciliation().budget());
+    }
+
+    /**
+     * Reconciles the repositories, starting with the next repository after the one the previous cycle started with.
+     *
+     * @param budget max number of the API calls
+     * @return number of the API calls used
+     */
+    synchronized int sweep(int budget) {
+        final List<String> repositories = configuration.repositories();
+        int remaining = budget;
+        for (int i = 0; i < repositories.size() && remaining > 0; i++) {
+            final String repository = repositories.get((offset + i) % repositories.size());
+            final GHClient client = clients.get(repository);
+            if (client == null) {
+                continue;
+            }
+            if (!scheduler.isAboveReserve(client)) {
+                LOG.debug("Skipping reconciliation of repository {}, the rate limit is down to the reserve", repository);
+                continue;
+            }
+            remaining = sweep(client, remaining);
+        }
+        offset++;
+        final int used = budget - remaining;
+        if (used > 0) {
+            registry.counter("prw.reconciliation.calls").increment(used);
+        }
+        return used;
+    }
+
+    /**
+     * Drops the walk of the given repository, the next cycle starts a new one through all open pull requests.
+     *
+     * @param repository repository full name
+     */
+    public void invalidate(String repository) {
+        walks.remove(repository);
+        since.remove(repository);
+    }
+
+    void onConfigChanged(@Observes RepositoryConfigChangedEvent event) {
+        if (event.repository() == null) {
+            walks.clear();
+            since.clear();
+        } else {
+            invalidate(event.repository());
+        }
+    }
+
+    private int sweep(GHClient client, int budget) {
+        final String repository = client.getRepositoryConfiguration().repository();
+        int remaining = budget;
+        try {
+            final Walk walk = walks.computeIfAbsent(repository, r -> new Walk(client, since.get(r)));
+            while (remaining > 0) {
+                if (walk.pending.isEmpty()) {
+                    remaining--;
+                    if (!walk.pages.hasNext()) {
+                        complete(repository, walk);
+                        break;
+                    }
+                    walk.pending.addAll(walk.pages.nextPage());
+                    continue;
+                }
+                final GHPullRequest pr = walk.pending.peek();
+                final Instant updatedAt = updatedAt(pr);
+                if (walk.since != null && updatedAt.isBefore(walk.since)) {
+                    // The rest was walked by the previous walk and not updated since
+                    complete(repository, walk);
+                    break;
+                }
+                if (!walk.visited.contains(pr.getNumber()) && isStale(repository, pr, updatedAt)) {
+                    if (remaining < RECONCILE_CALLS) {
+                        break;
+                    }
+                    remaining -= RECONCILE_CALLS;
+                    LOG.info("PR #{}: Not evaluated since the last update at {}, reconciling", pr.getNumber(), updatedAt);
+                    registry.counter("prw.reconciliation.pull.requests", "repository", repository).increment();
+                    eventBus.publish(Constants.PR_RECONCILE, new BusMessage(client, pr));
+                }
+                // The pull requests updated during the walk move to its start, so the remaining ones can be seen again
+                walk.visited.add(pr.getNumber());
+                walk.pending.poll();
+            }
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Unable to reconcile pull requests of repository {}: {}", repository, e.toString());
+            // Started again in the next cycle
+            walks.remove(repository);
+        }
+        return remaining;
+    }
+
+    private boolean isStale(String repository, GHPullRequest pr, Instant updatedAt) {
+        if (updatedAt.isAfter(Instant.now().minus(configuration.reconciliation().staleAfter()))) {
+            // Its events might still be delivered
+            return false;
+        }
+        final MergeDecision decision = decisions.get(repository, pr.getNumber());
+        return decision == null || decision.getEvaluatedAt().isBefore(updatedAt);
+    }
+
+    private void complete(String repository, Walk walk) {
+        LOG.debug("Reconciled all pull requests of repository {} updated since {}", repository, walk.since == null ? "the start" : walk.since);
+        walks.remove(repository);
+        // The pull requests updated shortly before the walk started were not stale yet, so the next walk goes through them again
+        since.put(repository, walk.startedAt.minus(configuration.reconciliation().staleAfter()));
+    }
+
+    private static Instant updatedAt(GHPullRequest pr) throws IOException {
+        final Date updatedAt = pr.getUpdatedAt();
+        return updatedAt == null ? Instant.EPOCH : updatedAt.toInstant();
+    }
+
+    /**
+     * Walk through the open pull requests of a single repository.
+     */
+    private static final class Walk {
+        private final Instant startedAt = Instant.now();
+        // Null for the walk through all open pull requests
+        private final Instant since;
+        private final PagedIterator<GHPullRequest> pages;
+        private final Queue<GHPullRequest> pending = new ArrayDeque<>();
+        private final Set<Integer> visited = new HashSet<>();
+
+        private Walk(GHClient client, Instant since) {
+            this.since = since;
+            final GHRepository repository = client.getRepository();
+            if (repository == null) {
+                throw new IllegalStateException("Unable to get repository " + client.getRepositoryConfiguration().repository());
+            }
+            this.pages = repository.queryPullRequests().state(GHIssueState.OPEN).sort(GHPullRequestQueryBuilder.Sort.UPDATED)
+                .direction(GHDirection.DESC).list().withPageSize(PAGE_SIZE).iterator();
+        }
+    }
+}
@@ -6,6 +6,7 @@ import org.kohsuke.github.GHPullRequest;
 import com.github.avano.pr.workflow.config.Constants;
 import com.github.avano.pr.workflow.gh.GHClient;
 import com.github.avano.pr.workflow.handler.base.BaseHandler;
+import com.github.avano.pr.workflow.handler.interceptor.Lane;
 import com.github.avano.pr.workflow.handler.interceptor.Log;
 import com.github.avano.pr.workflow.message.BusMessage;
 import com.github.avano.pr.workflow.message.CheckRunMessage;
@@ -25,6 +26,7 @@ public class ReviewRequestHandler extends BaseHandler {
      * @param msg {@link BusMessage} instance
      */
     @Log
+    @Lane
     @ConsumeEvent(Constants.PR_REVIEW_REQUESTED)
     public void handleReviewRequested(BusMessage msg) {
         GHClient client = msg.client();
@@ -49,6 +51,7 @@ public class ReviewRequestHandler extends BaseHandler {
      * @param msg {@link BusMessage} instance
      */
     @Log
+    @Lane
     @ConsumeEvent(Constants.PR_REVIEW_REQUEST_REMOVED)
     public void handleReviewRequestRemoved(BusMessage msg) {
         GHClient client = msg.client();
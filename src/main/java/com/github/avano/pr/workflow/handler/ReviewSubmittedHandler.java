@@ -3,16 +3,21 @@ package com.github.avano.pr.workflow.handler;
 import org.kohsuke.github.GHCheckRun;
 import org.kohsuke.github.GHPullRequest;
 import org.kohsuke.github.GHPullRequestReview;
+import org.kohsuke.github.GHPullRequestReviewState;
 import org.kohsuke.github.GHUser;
 
 import com.github.avano.pr.workflow.config.Constants;
 import com.github.avano.pr.workflow.gh.GHClient;
+import com.github.avano.pr.workflow.gh.ReviewLedger;
 import com.github.avano.pr.workflow.handler.base.BaseHandler;
+import com.github.avano.pr.workflow.handler.interceptor.Lane;
 import com.github.avano.pr.workflow.handler.interceptor.Log;
 import com.github.avano.pr.workflow.message.BusMessage;
 import com.github.avano.pr.workflow.message.CheckRunMessage;
 import com.github.avano.pr.workflow.message.LabelsMessage;
 
+import javax.inject.Inject;
+
 import java.util.ArrayList;
 import java.util.List;
 
@@ -22,6 +27,9 @@ import io.quarkus.vertx.ConsumeEvent;
  * Handles the review events.
  */
 public class ReviewSubmittedHandler extends BaseHandler {
+    @Inject
+    ReviewLedger reviewLedger;
+
     /**
      * Handles the
      * <a href="https://docs.github.com/en/developers/webhooks-and-events/webhooks/webhook-events-and-payloads#pull_request_review">pull request review</a> submitted event.
@@ -39,6 +47,7 @@ public class ReviewSubmittedHandler extends BaseHandler {
      * @param msg {@link BusMessage} instance
      */
     @Log
+    @Lane
     @ConsumeEvent(Constants.PR_REVIEW_SUBMITTED)
     public void handleReview(BusMessage msg) {
         GHClient client = msg.client();
@@ -61,7 +70,7 @@ public class ReviewSubmittedHandler extends BaseHandler {
                 }
 
                 // Only add approved label if there are no "changes required" reviews left
-                if (!client.changesRequested(pr)) {
+                if (!reviewLedger.getReviews(client, pr).containsValue(GHPullRequestReviewState.CHANGES_REQUESTED)) {
                     addLabels.addAll(client.getRepositoryConfiguration().approvedLabels());
                     removeLabels.addAll(client.getRepositoryConfiguration().changesRequestedLabels());
                     eventBus.publish(Constants.CHECK_RUN_CREATE,
@@ -0,0 +1,17 @@
+package com.github.avano.pr.workflow.handler.interceptor;
+
+import javax.interceptor.InterceptorBinding;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Handlers of the pull request events that are processed in the lane of the pull request, in order with its other events.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.TYPE})
+@InterceptorBinding
+public @interface Lane {
+}
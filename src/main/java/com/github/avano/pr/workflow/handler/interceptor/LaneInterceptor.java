@@ -0,0 +1,48 @@
+package com.github.avano.pr.workflow.handler.interceptor;
+
+import org.kohsuke.github.GHPullRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.avano.pr.workflow.bus.PullRequestLanes;
+import com.github.avano.pr.workflow.message.BusMessage;
+
+import javax.annotation.Priority;
+import javax.inject.Inject;
+import javax.interceptor.AroundInvoke;
+import javax.interceptor.Interceptor;
+import javax.interceptor.InvocationContext;
+
+/**
+ * Moves the invocation of the handler to the lane of the pull request from the {@link BusMessage}. The messages that are not about a
+ * single pull request are processed right away.
+ * <p>
+ * Runs before the {@link LoggingInterceptor}, so that the logging and the error handling happen in the lane.
+ */
+@Lane
+@Priority(-1)
+@Interceptor
+public class LaneInterceptor {
+    private static final Logger LOG = LoggerFactory.getLogger(LaneInterceptor.class);
+
+    @Inject
+    PullRequestLanes lanes;
+
+    @AroundInvoke
+    Object executeInLane(InvocationContext context) throws Exception {
+        final Object[] parameters = context.getParameters();
+        final BusMessage msg = parameters.length == 1 && parameters[0] instanceof BusMessage ? (BusMessage) parameters[0] : null;
+        final GHPullRequest pr = msg == null ? null : msg.pullRequest();
+        if (pr == null) {
+            return context.proceed();
+        }
+        lanes.execute(msg.client().getRepositoryConfiguration().repository(), pr.getNumber(), () -> {
+            try {
+                context.proceed();
+            } catch (Exception e) {
+                LOG.error("PR #{}: Unable to proceed with method invocation", pr.getNumber(), e);
+            }
+        });
+        return null;
+    }
+}
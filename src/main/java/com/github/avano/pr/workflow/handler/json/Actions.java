@@ -0,0 +1,17 @@
+package com.github.avano.pr.workflow.handler.json;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Lists the event actions that are processed by the json event handler method.
+ * <p>
+ * Deliveries with other actions are dropped already in the webhook endpoint. When the handler method isn't annotated, all actions are processed.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Actions {
+    String[] value();
+}
@@ -0,0 +1,31 @@
+package com.github.avano.pr.workflow.handler.json;
+
+import org.kohsuke.github.GHEventPayload;
+
+import com.github.avano.pr.workflow.config.Constants;
+import com.github.avano.pr.workflow.gh.RequiredChecksCache;
+import com.github.avano.pr.workflow.handler.interceptor.Log;
+import com.github.avano.pr.workflow.message.WebhookMessage;
+
+import javax.inject.Inject;
+
+import io.quarkus.vertx.ConsumeEvent;
+
+/**
+ * Handles the incoming json related to the
+ * <a href="https://docs.github.com/en/webhooks/webhook-events-and-payloads#branch_protection_rule">branch protection rule</a> events.
+ */
+public class BranchProtectionRule extends JsonEventHandler<GHEventPayload> {
+    @Inject
+    RequiredChecksCache requiredChecks;
+
+    /**
+     * Handles the incoming branch protection rule event.
+     */
+    @Log
+    @ConsumeEvent(Constants.BRANCH_PROTECTION_RULE_EVENT)
+    public void handleBranchProtectionRuleEvent(WebhookMessage webhookMessage) {
+        // The rule name is a pattern that can match any of the cached branches
+        requiredChecks.invalidate(webhookMessage.getRepository());
+    }
+}
@@ -5,11 +5,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.github.avano.pr.workflow.config.Constants;
+import com.github.avano.pr.workflow.gh.GHClient;
 import com.github.avano.pr.workflow.handler.interceptor.Log;
 import com.github.avano.pr.workflow.message.BusMessage;
+import com.github.avano.pr.workflow.message.WebhookMessage;
 
 import io.quarkus.vertx.ConsumeEvent;
-import io.vertx.core.json.JsonObject;
 
 /**
  * Handles the incoming json related to the
@@ -22,16 +23,20 @@ public class CheckRun extends JsonEventHandler<GHEventPayload.CheckRun> {
      * Handles the incoming check run event.
      */
     @Log
+    @Actions("completed")
     @ConsumeEvent(Constants.CHECKRUN_EVENT)
-    public void handleCheckRunEvent(JsonObject jsonEvent) {
-        if (!init(jsonEvent, GHEventPayload.CheckRun.class)) {
+    public void handleCheckRunEvent(WebhookMessage webhookMessage) {
+        final ParsedEvent<GHEventPayload.CheckRun> parsed = init(webhookMessage, GHEventPayload.CheckRun.class);
+        if (parsed == null) {
             return;
         }
+        final GHClient client = parsed.client();
+        final GHEventPayload.CheckRun event = parsed.event();
 
-        if ("completed".equals(jsonEvent.getString("action"))) {
+        if ("completed".equals(event.getAction())) {
             eventBus.publish(Constants.CHECK_RUN_FINISHED, new BusMessage(client, event.getCheckRun()));
         } else {
-            LOG.debug("Ignoring check run action: \"{}\"", jsonEvent.getString("action"));
+            LOG.debug("Ignoring check run action: \"{}\"", event.getAction());
         }
     }
 }
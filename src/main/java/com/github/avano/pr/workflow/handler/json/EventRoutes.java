@@ -0,0 +1,74 @@
+package com.github.avano.pr.workflow.handler.json;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.inject.Any;
+import javax.enterprise.inject.Instance;
+import javax.inject.Inject;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import io.quarkus.vertx.ConsumeEvent;
+
+/**
+ * Routing table of the webhook events and actions that are consumed by some json event handler.
+ * <p>
+ * The table is built from the {@link ConsumeEvent} and {@link Actions} annotations of the json event handlers.
+ */
+@ApplicationScoped
+public class EventRoutes {
+    private static final Logger LOG = LoggerFactory.getLogger(EventRoutes.class);
+    // Event name -> consumed actions, null value means that all actions are consumed
+    private final Map<String, Set<String>> routes = new HashMap<>();
+
+    @Inject
+    @Any
+    Instance<JsonEventHandler<?>> handlers;
+
+    @PostConstruct
+    void init() {
+        for (JsonEventHandler<?> handler : handlers) {
+            // Walk the hierarchy, as the instance may be a generated subclass
+            for (Class<?> clazz = handler.getClass(); clazz != null && clazz != Object.class; clazz = clazz.getSuperclass()) {
+                for (Method method : clazz.getDeclaredMethods()) {
+                    ConsumeEvent consumeEvent = method.getAnnotation(ConsumeEvent.class);
+                    if (consumeEvent != null) {
+                        addRoute(consumeEvent.value(), method.getAnnotation(Actions.class));
+                    }
+                }
+            }
+        }
+        LOG.debug("Webhook routes: {}", routes);
+    }
+
+    private void addRoute(String event, Actions actions) {
+        if (actions == null) {
+            routes.put(event, null);
+        } else if (!routes.containsKey(event) || routes.get(event) != null) {
+            routes.computeIfAbsent(event, e -> new HashSet<>()).addAll(Arrays.asList(actions.value()));
+        }
+    }
+
+    /**
+     * Checks if there is a handler for the given event and action.
+     *
+     * @param event event name
+     * @param action event action, may be null
+     * @return true if the event should be processed, false otherwise
+     */
+    public boolean isRouted(String event, String action) {
+        if (!routes.containsKey(event)) {
+            return false;
+        }
+        Set<String> actions = routes.get(event);
+        return actions == null || actions.contains(action);
+    }
+}
@@ -3,46 +3,59 @@ package com.github.avano.pr.workflow.handler.json;
 import org.kohsuke.github.GHEventPayload;
 
 import com.github.avano.pr.workflow.bus.Bus;
-import com.github.avano.pr.workflow.config.Constants;
 import com.github.avano.pr.workflow.gh.GHClient;
+import com.github.avano.pr.workflow.gh.GHClientRegistry;
+import com.github.avano.pr.workflow.message.WebhookMessage;
 
 import javax.inject.Inject;
-import javax.inject.Provider;
-
-import io.vertx.core.json.JsonObject;
 
 /**
  * Base class for all json event handlers.
+ * <p>
+ * The handlers are singletons processing events concurrently, so the per-event state is kept in the {@link ParsedEvent} only.
  * @param <E> event payload type
  */
 public class JsonEventHandler<E extends GHEventPayload> {
-    protected E event;
-    protected GHClient client;
-
     @Inject
     Bus eventBus;
 
     @Inject
-    Provider<GHClient> clientProvider;
+    GHClientRegistry clients;
 
     /**
-     * Inits the client and if a configuration for given repository exists, parses the payload into its class.
-     * @param event json event
+     * Gets the client and if a configuration for given repository exists, parses the payload into its class.
+     * @param event webhook message
      * @param eventClass class to parse the event to
-     * @return true if successful, false otherwise
+     * @return parsed event or null if unsuccessful
+     */
+    protected ParsedEvent<E> init(WebhookMessage event, Class<E> eventClass) {
+        final GHClient client = clients.get(event.getRepository());
+        if (client == null) {
+            return null;
+        }
+        final E payload = client.parseEvent(event, eventClass);
+        return payload == null ? null : new ParsedEvent<>(client, payload);
+    }
+
+    /**
+     * Event payload together with the client for its repository.
+     * @param <E> event payload type
      */
-    protected boolean init(JsonObject event, Class<E> eventClass) {
-        final GHClient client = clientProvider.get();
-        final String repository = event.getJsonObject(Constants.JSON_REPOSITORY).getString(Constants.JSON_REPOSITORY_NAME);
-        if (!client.init(repository)) {
-            return false;
-        } else {
+    protected static final class ParsedEvent<E> {
+        private final GHClient client;
+        private final E event;
+
+        private ParsedEvent(GHClient client, E event) {
             this.client = client;
-            this.event = client.parseEvent(event, eventClass);
-            if (this.event == null) {
-                return false;
-            }
+            this.event = event;
+        }
+
+        public GHClient client() {
+            return client;
+        }
+
+        public E event() {
+            return event;
         }
-        return true;
     }
 }
@@ -1,62 +1,112 @@
 package com.github.avano.pr.workflow.handler.json;
 
 import org.kohsuke.github.GHEventPayload;
+import org.kohsuke.github.GHUser;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import com.github.avano.pr.workflow.config.Constants;
+import com.github.avano.pr.workflow.gh.GHClient;
+import com.github.avano.pr.workflow.gh.PullRequestIndex;
+import com.github.avano.pr.workflow.gh.ReviewLedger;
+import com.github.avano.pr.workflow.handler.MergeDecisions;
+import com.github.avano.pr.workflow.handler.MergeQueue;
 import com.github.avano.pr.workflow.handler.interceptor.Log;
 import com.github.avano.pr.workflow.message.BusMessage;
+import com.github.avano.pr.workflow.message.WebhookMessage;
+
+import javax.inject.Inject;
 
 import io.quarkus.vertx.ConsumeEvent;
-import io.vertx.core.json.JsonObject;
 
 /**
  * Handles the incoming json related to the
  * <a href="https://docs.github.com/en/developers/webhooks-and-events/webhooks/webhook-events-and-payloads#pull_request">pull request</a> events.
  */
-public class PullRequest extends JsonEventHandler<GHEventPayload.PullRequest> {
+public class PullRequest extends JsonEventHandler<PullRequest.Payload> {
     private static final Logger LOG = LoggerFactory.getLogger(PullRequest.class);
 
+    @Inject
+    PullRequestIndex pullRequests;
+
+    @Inject
+    ReviewLedger reviewLedger;
+
+    @Inject
+    MergeQueue mergeQueue;
+
+    @Inject
+    MergeDecisions mergeDecisions;
+
     /**
      * Handles the incoming pull request event.
      */
     @Log
+    @Actions({"opened", "closed", "reopened", "review_requested", "review_request_removed", "ready_for_review", "synchronize", "unlabeled"})
     @ConsumeEvent(Constants.PULL_REQUEST_EVENT)
-    public void handlePullRequestEvent(JsonObject jsonEvent) {
-        if (!init(jsonEvent, GHEventPayload.PullRequest.class)) {
+    public void handlePullRequestEvent(WebhookMessage webhookMessage) {
+        final ParsedEvent<Payload> parsed = init(webhookMessage, Payload.class);
+        if (parsed == null) {
             return;
         }
+        final GHClient client = parsed.client();
+        final Payload event = parsed.event();
 
         BusMessage msg = new BusMessage(client, event.getPullRequest()).withSender(event.getSender());
 
-        switch (jsonEvent.getString("action")) {
+        final String repository = client.getRepositoryConfiguration().repository();
+        switch (event.getAction()) {
+            case "opened":
+                pullRequests.update(repository, event.getPullRequest());
+                break;
+            case "closed":
+                pullRequests.remove(repository, event.getPullRequest().getNumber());
+                reviewLedger.remove(repository, event.getPullRequest().getNumber());
+                mergeQueue.remove(repository, event.getPullRequest().getNumber());
+                if (event.getPullRequest().getMergedAt() != null) {
+                    mergeQueue.merged(repository, event.getPullRequest().getBase().getRef(), event.getPullRequest().getHead().getSha());
+                }
+                mergeDecisions.remove(repository, event.getPullRequest().getNumber());
+                break;
             case "reopened":
+                pullRequests.update(repository, event.getPullRequest());
                 eventBus.publish(Constants.PR_REOPENED, msg);
                 break;
             case "review_requested":
-                msg.with(BusMessage.REQUESTED_REVIEWER,
-                    jsonEvent.getJsonObject(Constants.JSON_REQUESTED_REVIEWER).getString(Constants.JSON_REQUESTED_REVIEWER_LOGIN));
+                msg.with(BusMessage.REQUESTED_REVIEWER, event.getRequestedReviewerLogin());
                 eventBus.publish(Constants.PR_REVIEW_REQUESTED, msg);
                 break;
             case "review_request_removed":
-                msg.with(BusMessage.REQUESTED_REVIEWER,
-                    jsonEvent.getJsonObject(Constants.JSON_REQUESTED_REVIEWER).getString(Constants.JSON_REQUESTED_REVIEWER_LOGIN));
+                msg.with(BusMessage.REQUESTED_REVIEWER, event.getRequestedReviewerLogin());
                 eventBus.publish(Constants.PR_REVIEW_REQUEST_REMOVED, msg);
                 break;
             case "ready_for_review":
                 eventBus.publish(Constants.PR_READY_FOR_REVIEW, msg);
                 break;
             case "synchronize":
+                pullRequests.update(repository, event.getPullRequest());
                 eventBus.publish(Constants.PR_UPDATED, msg);
                 break;
             case "unlabeled":
-                msg.with(BusMessage.LABEL, jsonEvent.getJsonObject(Constants.JSON_LABEL).getString(Constants.JSON_LABEL_NAME));
+                msg.with(BusMessage.LABEL, event.getLabel().getName());
                 eventBus.publish(Constants.PR_UNLABELED, msg);
                 break;
             default:
-                LOG.debug("Ignoring pull request action \"{}\"", jsonEvent.getString("action"));
+                LOG.debug("Ignoring pull request action \"{}\"", event.getAction());
                 break;
         }
     }
+
+    /**
+     * Pull request event payload extended with the requested reviewer, as that is not part of the GitHub API payload class.
+     */
+    public static class Payload extends GHEventPayload.PullRequest {
+        @JsonProperty("requested_reviewer")
+        private GHUser requestedReviewer;
+
+        public String getRequestedReviewerLogin() {
+            return requestedReviewer == null ? null : requestedReviewer.getLogin();
+        }
+    }
 }
@@ -0,0 +1,31 @@
+package com.github.avano.pr.workflow.handler.json;
+
+import org.kohsuke.github.GHEventPayload;
+
+import com.github.avano.pr.workflow.config.Constants;
+import com.github.avano.pr.workflow.gh.RepositoryCache;
+import com.github.avano.pr.workflow.handler.interceptor.Log;
+import com.github.avano.pr.workflow.message.WebhookMessage;
+
+import javax.inject.Inject;
+
+import io.quarkus.vertx.ConsumeEvent;
+
+/**
+ * Handles the incoming json related to the
+ * <a href="https://docs.github.com/en/developers/webhooks-and-events/webhooks/webhook-events-and-payloads#repository">repository</a> events.
+ */
+public class Repository extends JsonEventHandler<GHEventPayload.Repository> {
+    @Inject
+    RepositoryCache repositories;
+
+    /**
+     * Handles the incoming repository event.
+     */
+    @Log
+    @ConsumeEvent(Constants.REPOSITORY_EVENT)
+    public void handleRepositoryEvent(WebhookMessage webhookMessage) {
+        // Any change to the repository makes the cached repository object outdated
+        repositories.invalidate(webhookMessage.getRepository());
+    }
+}
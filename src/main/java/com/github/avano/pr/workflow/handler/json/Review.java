@@ -5,11 +5,15 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.github.avano.pr.workflow.config.Constants;
+import com.github.avano.pr.workflow.gh.GHClient;
+import com.github.avano.pr.workflow.gh.ReviewLedger;
 import com.github.avano.pr.workflow.handler.interceptor.Log;
 import com.github.avano.pr.workflow.message.BusMessage;
+import com.github.avano.pr.workflow.message.WebhookMessage;
+
+import javax.inject.Inject;
 
 import io.quarkus.vertx.ConsumeEvent;
-import io.vertx.core.json.JsonObject;
 
 /**
  * Handles the incoming json related to the
@@ -19,24 +23,38 @@ import io.vertx.core.json.JsonObject;
 public class Review extends JsonEventHandler<GHEventPayload.PullRequestReview> {
     private static final Logger LOG = LoggerFactory.getLogger(Review.class);
 
+    @Inject
+    ReviewLedger reviewLedger;
+
     /**
      * Handles the incoming pull request review event.
      */
     @Log
+    @Actions({"submitted", "dismissed"})
     @ConsumeEvent(Constants.REVIEW_EVENT)
-    public void handleReviewEvent(JsonObject jsonEvent) {
-        if (!init(jsonEvent, GHEventPayload.PullRequestReview.class)) {
+    public void handleReviewEvent(WebhookMessage webhookMessage) {
+        final ParsedEvent<GHEventPayload.PullRequestReview> parsed = init(webhookMessage, GHEventPayload.PullRequestReview.class);
+        if (parsed == null) {
             return;
         }
+        final GHClient client = parsed.client();
+        final GHEventPayload.PullRequestReview event = parsed.event();
 
         // Also save PR object, because we can't get to PR from the Review object
         BusMessage msg = new BusMessage(client, event.getReview()).withSender(event.getSender())
             .with(BusMessage.INFO_PR_KEY, event.getPullRequest());
 
-        if ("submitted".equals(jsonEvent.getString("action"))) {
-            eventBus.publish(Constants.PR_REVIEW_SUBMITTED, msg);
-        } else {
-            LOG.debug("Ignoring pull request review action: \"{}\"", jsonEvent.getString("action"));
+        switch (event.getAction()) {
+            case "submitted":
+                reviewLedger.record(client.getRepositoryConfiguration().repository(), event.getPullRequest().getNumber(), event.getReview());
+                eventBus.publish(Constants.PR_REVIEW_SUBMITTED, msg);
+                break;
+            case "dismissed":
+                reviewLedger.record(client.getRepositoryConfiguration().repository(), event.getPullRequest().getNumber(), event.getReview());
+                break;
+            default:
+                LOG.debug("Ignoring pull request review action: \"{}\"", event.getAction());
+                break;
         }
     }
 }
@@ -3,12 +3,13 @@ package com.github.avano.pr.workflow.handler.json;
 import org.kohsuke.github.GHEventPayload;
 
 import com.github.avano.pr.workflow.config.Constants;
+import com.github.avano.pr.workflow.gh.GHClient;
 import com.github.avano.pr.workflow.handler.interceptor.Log;
 import com.github.avano.pr.workflow.message.BusMessage;
 import com.github.avano.pr.workflow.message.CommitStatusMessage;
+import com.github.avano.pr.workflow.message.WebhookMessage;
 
 import io.quarkus.vertx.ConsumeEvent;
-import io.vertx.core.json.JsonObject;
 
 /**
  * Handles the incoming json related to the
@@ -20,10 +21,13 @@ public class Status extends JsonEventHandler<GHEventPayload.Status> {
      */
     @Log
     @ConsumeEvent(Constants.STATUS_EVENT)
-    public void handleStatusEvent(JsonObject jsonEvent) {
-        if (!init(jsonEvent, GHEventPayload.Status.class)) {
+    public void handleStatusEvent(WebhookMessage webhookMessage) {
+        final ParsedEvent<GHEventPayload.Status> parsed = init(webhookMessage, GHEventPayload.Status.class);
+        if (parsed == null) {
             return;
         }
+        final GHClient client = parsed.client();
+        final GHEventPayload.Status event = parsed.event();
 
         eventBus.publish(Constants.STATUS_CHANGED,
             new BusMessage(client, new CommitStatusMessage(event.getCommit(), event.getState(), event.getContext())));
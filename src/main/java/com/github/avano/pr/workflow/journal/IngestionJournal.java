@@ -0,0 +1,239 @@
+package com.github.avano.pr.workflow.journal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.avano.pr.workflow.bus.Bus;
+import com.github.avano.pr.workflow.config.Configuration;
+import com.github.avano.pr.workflow.config.IngestionMode;
+import com.github.avano.pr.workflow.config.RepositoryConfig;
+import com.github.avano.pr.workflow.message.WebhookMessage;
+import com.github.avano.pr.workflow.rest.AdmissionControl;
+import com.github.avano.pr.workflow.util.PayloadScanner;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+
+/**
+ * Durable ingestion of the webhook deliveries used in the {@link IngestionMode#JOURNAL} ingestion mode.
+ * <p>
+ * The deliveries are appended to the {@link Journal} in the data directory and a replayer thread publishes them to the event bus, saving the
+ * offset of the last published delivery as a checkpoint. After a restart, the replay continues from the checkpoint, so the deliveries that
+ * were acknowledged, but not yet published, are not lost.
+ * <p>
+ * The replayer publishes the deliveries once they are admitted by the {@link AdmissionControl}. The deliveries of a repository over its
+ * rate limit are kept aside in the order of the journal until they are admitted, while the deliveries of the other repositories are still
+ * published. The checkpoint never passes a delivery that was kept aside, so these are replayed again after a restart. When there are more
+ * deliveries kept aside than the admission queue size, the replayer stops reading the journal until some of them are published.
+ * <p>
+ * The publishing doesn't wait for the handlers, so the checkpoint covers the published deliveries, not the processed ones. The deliveries
+ * published shortly before a crash may not have been processed, and they are not replayed, in the same way as the events in progress in
+ * the direct ingestion mode. The pull requests affected by them are reconciled by the periodic reconciliation.
+ */
+@ApplicationScoped
+public class IngestionJournal {
+    private static final Logger LOG = LoggerFactory.getLogger(IngestionJournal.class);
+    private static final String JOURNAL_DIR = "journal";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+    private static final long THROTTLE_INTERVAL_MS = 50L;
+
+    @Inject
+    Configuration configuration;
+
+    @Inject
+    Bus eventBus;
+
+    @Inject
+    AdmissionControl admission;
+
+    @Inject
+    MeterRegistry registry;
+
+    private Journal journal;
+    private Path checkpointFile;
+    private Thread replayer;
+    private volatile long checkpoint;
+    private volatile boolean running;
+    // Offset of the next record to read, the records between the checkpoint and this offset are either published or pending
+    private long readOffset;
+    // Deliveries not admitted yet for each repository, used only by the replayer thread
+    private final Map<String, Deque<PendingDelivery>> pending = new LinkedHashMap<>();
+    private int pendingCount;
+
+    void onStart(@Observes StartupEvent ev) throws IOException {
+        if (configuration.ingestionMode() != IngestionMode.JOURNAL) {
+            return;
+        }
+        final Path dir = Paths.get(configuration.dataDir(), JOURNAL_DIR);
+        final DistributionSummary batches = registry.summary("prw.journal.flush.batch");
+        journal = new Journal(dir, configuration.journal().segmentSize(), configuration.journal().batchSize(), batches::record);
+
+        checkpointFile = dir.resolve(CHECKPOINT_FILE);
+        checkpoint = loadCheckpoint();
+        readOffset = checkpoint;
+        registry.gauge("prw.journal.lag", this, j -> j.journal.committed() - j.checkpoint);
+
+        running = true;
+        replayer = new Thread(this::replayLoop, "journal-replayer");
+        replayer.setDaemon(true);
+        replayer.start();
+        LOG.info("Ingestion journal started in {}, replaying from offset {}", dir, checkpoint);
+    }
+
+    void onStop(@Observes ShutdownEvent ev) {
+        if (journal == null) {
+            return;
+        }
+        journal.close();
+        running = false;
+        replayer.interrupt();
+        try {
+            replayer.join(5000L);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Appends the delivery to the journal.
+     *
+     * @param event event name
+     * @param payload raw payload
+     * @return future completed once the delivery is durably stored
+     */
+    public CompletableFuture<Long> append(String event, byte[] payload) {
+        return journal.append(event, payload);
+    }
+
+    private void replayLoop() {
+        while (running) {
+            try {
+                publishPending();
+                if (pendingCount < configuration.admission().queueSize()) {
+                    // Wake up regularly to publish the pending deliveries as the buckets are refilled
+                    journal.awaitCommitted(readOffset, pendingCount == 0 ? 1000L : THROTTLE_INTERVAL_MS);
+                    readOffset = journal.read(readOffset, configuration.journal().batchSize(), this::replay);
+                } else {
+                    Thread.sleep(THROTTLE_INTERVAL_MS);
+                }
+                final long offset = pending.values().stream().mapToLong(d -> d.getFirst().offset).min().orElse(readOffset);
+                if (offset != checkpoint) {
+                    saveCheckpoint(offset);
+                    journal.deleteBefore(offset);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (IOException e) {
+                LOG.error("Unable to replay the journal", e);
+                sleep();
+            }
+        }
+    }
+
+    private boolean replay(long offset, String event, byte[] payload) {
+        if (pendingCount >= configuration.admission().queueSize()) {
+            return false;
+        }
+        final WebhookMessage message;
+        try {
+            message = PayloadScanner.scan(payload);
+        } catch (IOException e) {
+            // Only valid payloads are stored in the journal, so this should never happen
+            LOG.warn("Unable to read journaled payload for event {}, skipping: {}", event, e.getMessage());
+            return true;
+        }
+        final Deque<PendingDelivery> deliveries = pending.get(message.getRepository());
+        // The deliveries of a repository with pending deliveries wait for them to keep the order
+        if (deliveries == null && admit(message.getRepository())) {
+            publish(event, message);
+        } else {
+            pending.computeIfAbsent(message.getRepository(), r -> new ArrayDeque<>()).add(new PendingDelivery(offset, event, message));
+            pendingCount++;
+        }
+        return true;
+    }
+
+    private void publishPending() {
+        final Iterator<Map.Entry<String, Deque<PendingDelivery>>> it = pending.entrySet().iterator();
+        while (it.hasNext()) {
+            final Map.Entry<String, Deque<PendingDelivery>> entry = it.next();
+            final Deque<PendingDelivery> deliveries = entry.getValue();
+            while (!deliveries.isEmpty() && admit(entry.getKey())) {
+                final PendingDelivery delivery = deliveries.removeFirst();
+                pendingCount--;
+                publish(delivery.event, delivery.message);
+            }
+            if (deliveries.isEmpty()) {
+                it.remove();
+            }
+        }
+    }
+
+    private boolean admit(String repository) {
+        final RepositoryConfig rcfg = configuration.repositoryConfig(repository);
+        // The repository might have been removed since, the handlers ignore the event then
+        return rcfg == null || admission.tryAdmit(rcfg);
+    }
+
+    private void publish(String event, WebhookMessage message) {
+        LOG.debug("Replaying event {}", event);
+        eventBus.publish(event, message);
+    }
+
+    private long loadCheckpoint() throws IOException {
+        long offset = 0;
+        if (Files.exists(checkpointFile)) {
+            offset = ByteBuffer.wrap(Files.readAllBytes(checkpointFile)).getLong();
+        }
+        // The checkpoint may point to a deleted segment or beyond a truncated tail
+        return Math.min(Math.max(offset, journal.first()), journal.committed());
+    }
+
+    private void saveCheckpoint(long offset) throws IOException {
+        final Path tmp = checkpointFile.resolveSibling(CHECKPOINT_FILE + ".tmp");
+        Files.write(tmp, ByteBuffer.allocate(Long.BYTES).putLong(offset).array());
+        Files.move(tmp, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        checkpoint = offset;
+    }
+
+    private void sleep() {
+        try {
+            Thread.sleep(1000L);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+
+    private static final class PendingDelivery {
+        private final long offset;
+        private final String event;
+        private final WebhookMessage message;
+
+        private PendingDelivery(long offset, String event, WebhookMessage message) {
+            this.offset = offset;
+            this.event = event;
+            this.message = message;
+        }
+    }
+}
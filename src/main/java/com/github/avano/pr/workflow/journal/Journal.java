@@ -0,0 +1,395 @@
+package com.github.avano.pr.workflow.journal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Segmented append-only journal of the webhook deliveries.
+ * <p>
+ * Each record is stored as <code>[length][crc32][event name length][event name][payload]</code>. The offset of a record is its position
+ * in the journal as a whole, the segment files are named by the offset of their first record. The appends are written by a single writer
+ * thread that fsyncs all the records queued in the meantime at once and completes their futures afterwards. When the write of a batch
+ * fails, the journal is truncated back to the end of the committed data. The checksum of each record is verified when it is read.
+ */
+public class Journal implements Closeable {
+    private static final Logger LOG = LoggerFactory.getLogger(Journal.class);
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int HEADER_SIZE = 8;
+
+    private final Path dir;
+    private final long segmentSize;
+    private final int batchSize;
+    private final IntConsumer flushListener;
+    // Segment base offset -> segment file
+    private final ConcurrentSkipListMap<Long, Path> segments = new ConcurrentSkipListMap<>();
+    private final BlockingQueue<PendingRecord> queue = new LinkedBlockingQueue<>();
+    private final Object commitMonitor = new Object();
+    private final Thread writer;
+
+    private FileChannel active;
+    private long activeBase;
+    // End offset of the data that is already fsynced
+    private volatile long committed;
+    private volatile boolean closed;
+
+    /**
+     * Opens the journal in the given directory, truncating the torn tail of the last segment if present.
+     *
+     * @param dir journal directory
+     * @param segmentSize size in bytes after which a new segment is started
+     * @param batchSize max number of records written with a single fsync
+     * @param flushListener called with the number of records after each fsync
+     * @throws IOException when the journal can't be opened
+     */
+    public Journal(Path dir, long segmentSize, int batchSize, IntConsumer flushListener) throws IOException {
+        this.dir = dir;
+        this.segmentSize = segmentSize;
+        this.batchSize = batchSize;
+        this.flushListener = flushListener;
+        recover();
+        writer = new Thread(this::writeLoop, "journal-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Appends the delivery to the journal.
+     *
+     * @param event event name
+     * @param payload raw payload
+     * @return future completed with the end offset of the record once the record is fsynced
+     */
+    public CompletableFuture<Long> append(String event, byte[] payload) {
+        final PendingRecord pending = new PendingRecord(encode(event, payload));
+        if (closed) {
+            pending.future.completeExceptionally(new IOException("Journal is closed"));
+        } else {
+            queue.add(pending);
+        }
+        return pending.future;
+    }
+
+    /**
+     * Gets the end offset of the data that is already fsynced.
+     *
+     * @return committed offset
+     */
+    public long committed() {
+        return committed;
+    }
+
+    /**
+     * Gets the offset of the first record that is still present in the journal.
+     *
+     * @return first offset
+     */
+    public long first() {
+        return segments.firstKey();
+    }
+
+    /**
+     * Waits until there is some committed data after the given offset.
+     *
+     * @param offset offset
+     * @param timeout timeout in milliseconds
+     * @throws InterruptedException when interrupted while waiting
+     */
+    public void awaitCommitted(long offset, long timeout) throws InterruptedException {
+        synchronized (commitMonitor) {
+            if (committed <= offset) {
+                commitMonitor.wait(timeout);
+            }
+        }
+    }
+
+    /**
+     * Reads up to max committed records starting at the given offset. The reading stops early when the consumer doesn't accept a record.
+     *
+     * @param offset offset of the first record
+     * @param max max number of records to read
+     * @param consumer consumer of the records
+     * @return offset after the last record accepted
+     * @throws IOException when the journal can't be read
+     */
+    public long read(long offset, int max, RecordConsumer consumer) throws IOException {
+        final long end = committed;
+        int count = 0;
+        while (offset < end && count < max) {
+            final Map.Entry<Long, Path> segment = segments.floorEntry(offset);
+            final Long next = segments.higherKey(segment.getKey());
+            final long segmentEnd = next == null ? end : next;
+            if (offset >= segmentEnd) {
+                offset = next;
+                continue;
+            }
+            try (FileChannel channel = FileChannel.open(segment.getValue(), StandardOpenOption.READ)) {
+                channel.position(offset - segment.getKey());
+                while (offset < segmentEnd && count < max) {
+                    final ByteBuffer header = readFully(channel, HEADER_SIZE);
+                    final int length = header.getInt();
+                    if (length <= 0 || offset + HEADER_SIZE + length > segmentEnd) {
+                        throw new IOException("Invalid journal record length " + length + " at offset " + offset);
+                    }
+                    final ByteBuffer body = readFully(channel, length);
+                    if (crc(body) != header.getInt()) {
+                        throw new IOException("Corrupted journal record at offset " + offset);
+                    }
+                    if (!decode(offset, body, consumer)) {
+                        return offset;
+                    }
+                    offset += HEADER_SIZE + body.capacity();
+                    count++;
+                }
+            }
+        }
+        return offset;
+    }
+
+    /**
+     * Deletes the segments that contain only records before the given offset. The active segment is never deleted.
+     *
+     * @param offset offset
+     */
+    public void deleteBefore(long offset) {
+        for (Map.Entry<Long, Path> segment : segments.headMap(segments.floorKey(offset)).entrySet()) {
+            try {
+                Files.deleteIfExists(segment.getValue());
+                segments.remove(segment.getKey());
+                LOG.debug("Deleted journal segment {}", segment.getValue());
+            } catch (IOException e) {
+                LOG.warn("Unable to delete journal segment {}: {}", segment.getValue(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Stops accepting new records, writes the queued ones and closes the journal.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            active.close();
+        } catch (IOException e) {
+            LOG.warn("Unable to close journal segment: {}", e.getMessage());
+        }
+    }
+
+    private void recover() throws IOException {
+        Files.createDirectories(dir);
+        try (Stream<Path> files = Files.list(dir)) {
+            files.filter(p -> p.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                .forEach(p -> segments.put(baseOffset(p), p));
+        }
+        if (segments.isEmpty()) {
+            segments.put(0L, segmentPath(0L));
+        }
+        activeBase = segments.lastKey();
+        active = FileChannel.open(segments.lastEntry().getValue(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        // Find the end of the last complete record, anything after it is a write interrupted by a crash
+        long position = 0;
+        final long size = active.size();
+        active.position(0);
+        while (position + HEADER_SIZE <= size) {
+            final ByteBuffer header = readFully(active, HEADER_SIZE);
+            final int length = header.getInt();
+            if (length <= 0 || position + HEADER_SIZE + length > size) {
+                break;
+            }
+            final ByteBuffer body = readFully(active, length);
+            if (crc(body) != header.getInt()) {
+                break;
+            }
+            position += HEADER_SIZE + length;
+        }
+        if (position < size) {
+            LOG.warn("Truncating journal segment {} from {} to {} bytes", segments.lastEntry().getValue(), size, position);
+            active.truncate(position);
+        }
+        active.position(position);
+        committed = activeBase + position;
+        LOG.debug("Journal {} opened, offsets {} - {}", dir, segments.firstKey(), committed);
+    }
+
+    private void writeLoop() {
+        final List<PendingRecord> batch = new ArrayList<>(batchSize);
+        while (!closed || !queue.isEmpty()) {
+            try {
+                final PendingRecord first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (IOException e) {
+                LOG.error("Unable to write to the journal", e);
+                batch.forEach(p -> p.future.completeExceptionally(e));
+                rollback();
+            }
+            batch.clear();
+        }
+    }
+
+    private void write(List<PendingRecord> batch) throws IOException {
+        final long[] ends = new long[batch.size()];
+        for (int i = 0; i < batch.size(); i++) {
+            final ByteBuffer record = batch.get(i).record;
+            if (active.position() > 0 && active.position() + record.remaining() > segmentSize) {
+                roll();
+            }
+            while (record.hasRemaining()) {
+                active.write(record);
+            }
+            ends[i] = activeBase + active.position();
+        }
+        active.force(false);
+        synchronized (commitMonitor) {
+            committed = ends[ends.length - 1];
+            commitMonitor.notifyAll();
+        }
+        flushListener.accept(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).future.complete(ends[i]);
+        }
+    }
+
+    /**
+     * Removes the records of the failed batch, so that the next batch is appended right after the committed data.
+     */
+    private void rollback() {
+        try {
+            final long base = segments.floorKey(committed);
+            // The segments started by the failed batch contain only its records
+            for (Map.Entry<Long, Path> segment : segments.tailMap(base, false).entrySet()) {
+                if (segment.getKey() == activeBase) {
+                    active.close();
+                }
+                Files.deleteIfExists(segment.getValue());
+                segments.remove(segment.getKey());
+            }
+            if (activeBase != base || !active.isOpen()) {
+                active = FileChannel.open(segments.get(base), StandardOpenOption.READ, StandardOpenOption.WRITE);
+                activeBase = base;
+            }
+            active.truncate(committed - activeBase);
+            active.position(committed - activeBase);
+        } catch (IOException e) {
+            LOG.error("Unable to truncate the journal to offset {}, not accepting new records", committed, e);
+            closed = true;
+        }
+    }
+
+    private void roll() throws IOException {
+        active.force(false);
+        final long base = activeBase + active.position();
+        final Path segment = segmentPath(base);
+        // The current segment stays active when the new one can't be created
+        final FileChannel next = FileChannel.open(segment, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        active.close();
+        active = next;
+        activeBase = base;
+        segments.put(base, segment);
+        LOG.debug("Started journal segment {}", segment);
+    }
+
+    private Path segmentPath(long base) {
+        return dir.resolve(String.format("%020d%s", base, SEGMENT_SUFFIX));
+    }
+
+    private static long baseOffset(Path segment) {
+        final String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static ByteBuffer encode(String event, byte[] payload) {
+        final byte[] eventBytes = event.getBytes(StandardCharsets.UTF_8);
+        final ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + Short.BYTES + eventBytes.length + payload.length);
+        record.position(HEADER_SIZE);
+        record.putShort((short) eventBytes.length).put(eventBytes).put(payload);
+        final ByteBuffer body = record.duplicate();
+        body.position(HEADER_SIZE).limit(record.capacity());
+        record.putInt(0, record.capacity() - HEADER_SIZE).putInt(Integer.BYTES, crc(body));
+        record.rewind();
+        return record;
+    }
+
+    private static boolean decode(long offset, ByteBuffer body, RecordConsumer consumer) {
+        final byte[] event = new byte[body.getShort()];
+        body.get(event);
+        final byte[] payload = new byte[body.remaining()];
+        body.get(payload);
+        return consumer.accept(offset, new String(event, StandardCharsets.UTF_8), payload);
+    }
+
+    private static int crc(ByteBuffer body) {
+        final CRC32 crc = new CRC32();
+        crc.update(body.duplicate());
+        return (int) crc.getValue();
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, int length) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new IOException("Unexpected end of the journal segment");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Consumer of the records read from the journal.
+     */
+    @FunctionalInterface
+    public interface RecordConsumer {
+        /**
+         * Consumes the record.
+         *
+         * @param offset offset of the record
+         * @param event event name
+         * @param payload raw payload
+         * @return true if the record was consumed, false to stop the reading before this record
+         */
+        boolean accept(long offset, String event, byte[] payload);
+    }
+
+    private static final class PendingRecord {
+        private final ByteBuffer record;
+        private final CompletableFuture<Long> future = new CompletableFuture<>();
+
+        private PendingRecord(ByteBuffer record) {
+            this.record = record;
+        }
+    }
+}
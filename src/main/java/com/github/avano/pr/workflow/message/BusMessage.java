@@ -1,5 +1,6 @@
 package com.github.avano.pr.workflow.message;
 
+import org.kohsuke.github.GHPullRequest;
 import org.kohsuke.github.GHUser;
 
 import com.github.avano.pr.workflow.gh.GHClient;
@@ -54,6 +55,25 @@ public class BusMessage {
         return this;
     }
 
+    /**
+     * Gets the pull request the message is about.
+     *
+     * @return pull request or null if the message is not about a single pull request
+     */
+    public GHPullRequest pullRequest() {
+        if (ghObject instanceof GHPullRequest) {
+            return (GHPullRequest) ghObject;
+        }
+        if (ghObject instanceof LabelsMessage) {
+            return ((LabelsMessage) ghObject).getPr();
+        }
+        if (ghObject instanceof CheckRunMessage) {
+            return ((CheckRunMessage) ghObject).getPr();
+        }
+        final Object pr = info.get(INFO_PR_KEY);
+        return pr instanceof GHPullRequest ? (GHPullRequest) pr : null;
+    }
+
     public GHUser getSender() {
         return sender;
     }
@@ -0,0 +1,45 @@
+package com.github.avano.pr.workflow.message;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Represents the bus message with the webhook event as it was received from GitHub.
+ * <p>
+ * The payload is kept as the original bytes, so that it is parsed only once by the event handler. Only the fields needed for the routing are
+ * extracted upfront.
+ */
+public class WebhookMessage {
+    private final String action;
+    private final String repository;
+    private final byte[] payload;
+
+    public WebhookMessage(String action, String repository, byte[] payload) {
+        this.action = action;
+        this.repository = repository;
+        this.payload = payload;
+    }
+
+    public String getAction() {
+        return action;
+    }
+
+    public String getRepository() {
+        return repository;
+    }
+
+    public byte[] getPayload() {
+        return payload;
+    }
+
+    /**
+     * Creates a new reader over the original payload.
+     *
+     * @return reader
+     */
+    public Reader reader() {
+        return new InputStreamReader(new ByteArrayInputStream(payload), StandardCharsets.UTF_8);
+    }
+}
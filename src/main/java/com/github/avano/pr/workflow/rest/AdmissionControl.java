@@ -0,0 +1,249 @@
+package com.github.avano.pr.workflow.rest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.avano.pr.workflow.config.Configuration;
+import com.github.avano.pr.workflow.config.RepositoryConfig;
+import com.github.avano.pr.workflow.config.RepositoryConfigChangedEvent;
+import com.github.avano.pr.workflow.util.TokenBucket;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Priority;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import javax.interceptor.Interceptor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.runtime.ShutdownEvent;
+
+/**
+ * Admission control of the webhook deliveries, so that one busy repository can't starve the other repositories.
+ * <p>
+ * Each repository has its own token bucket configured in its {@link RepositoryConfig} and there is also a global token bucket shared by all
+ * repositories. The deliveries over the limit are deferred into a bounded overflow queue, which is drained as the buckets are refilled,
+ * keeping the order of the deliveries for each repository. The deliveries are rejected only when the overflow queue is full.
+ * <p>
+ * The overflow queue is kept only in memory, so it is not used in the journal ingestion mode. There the journal replayer asks for the
+ * admission of each delivery and keeps the deliveries that were not admitted until they are, without passing them with its checkpoint.
+ */
+@ApplicationScoped
+public class AdmissionControl {
+    private static final Logger LOG = LoggerFactory.getLogger(AdmissionControl.class);
+    private static final long DRAIN_INTERVAL_MS = 50L;
+
+    /**
+     * Result of the admission.
+     */
+    public enum Admission {
+        /**
+         * The delivery should be dispatched right away.
+         */
+        ACCEPTED,
+        /**
+         * The delivery was deferred and it will be dispatched later by the admission control.
+         */
+        DEFERRED,
+        /**
+         * The delivery was rejected.
+         */
+        SHED
+    }
+
+    @Inject
+    Configuration configuration;
+
+    @Inject
+    MeterRegistry registry;
+
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    // Guarded by itself, together with the deferred counts
+    private final LinkedList<Deferred> queue = new LinkedList<>();
+    private final Map<String, Integer> deferredCounts = new HashMap<>();
+    private TokenBucket global;
+    private ScheduledExecutorService drainer;
+
+    @PostConstruct
+    void init() {
+        global = new TokenBucket(configuration.admission().globalRateLimit(), configuration.admission().globalRateLimitBurst());
+        registry.gauge("prw.admission.queue.size", queue, q -> queueSize());
+        drainer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "admission-drainer");
+            t.setDaemon(true);
+            return t;
+        });
+        drainer.scheduleWithFixedDelay(this::drain, DRAIN_INTERVAL_MS, DRAIN_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        drainer.shutdown();
+    }
+
+    // Before the delivery deduplicator saves its snapshot
+    void onStop(@Observes @Priority(Interceptor.Priority.LIBRARY_BEFORE) ShutdownEvent ev) {
+        final List<Deferred> dropped;
+        synchronized (queue) {
+            dropped = new ArrayList<>(queue);
+            queue.clear();
+            deferredCounts.clear();
+        }
+        if (!dropped.isEmpty()) {
+            LOG.warn("Dropping {} deferred deliveries", dropped.size());
+            dropped.forEach(this::drop);
+        }
+    }
+
+    void onConfigChanged(@Observes RepositoryConfigChangedEvent event) {
+        // The limits might have changed, so create the bucket again when needed
+        if (event.repository() == null) {
+            buckets.clear();
+        } else {
+            buckets.remove(event.repository());
+        }
+    }
+
+    /**
+     * Decides if the delivery for the given repository can be dispatched right away.
+     *
+     * @param rcfg repository config
+     * @param dispatch dispatch of the delivery, invoked later when the delivery is deferred
+     * @param drop invoked when the deferred delivery can't be dispatched
+     * @return admission result
+     */
+    public Admission admit(RepositoryConfig rcfg, Runnable dispatch, Runnable drop) {
+        final String repository = rcfg.repository();
+        Admission admission;
+        synchronized (queue) {
+            // When there are some deferred deliveries for the repository, the new ones need to wait for them to keep the order
+            if (!deferredCounts.containsKey(repository) && tryAcquire(rcfg)) {
+                admission = Admission.ACCEPTED;
+            } else if (queue.size() < configuration.admission().queueSize()) {
+                queue.add(new Deferred(rcfg, dispatch, drop));
+                deferredCounts.merge(repository, 1, Integer::sum);
+                admission = Admission.DEFERRED;
+            } else {
+                admission = Admission.SHED;
+            }
+        }
+        LOG.trace("Delivery for repository {} {}", repository, admission);
+        count(repository, admission.name());
+        return admission;
+    }
+
+    /**
+     * Decides if the delivery for the given repository can be dispatched right away, without deferring it.
+     *
+     * @param rcfg repository config
+     * @return true if the delivery was admitted, false if it needs to wait
+     */
+    public boolean tryAdmit(RepositoryConfig rcfg) {
+        final boolean admitted;
+        synchronized (queue) {
+            admitted = !deferredCounts.containsKey(rcfg.repository()) && tryAcquire(rcfg);
+        }
+        if (admitted) {
+            count(rcfg.repository(), Admission.ACCEPTED.name());
+        }
+        return admitted;
+    }
+
+    /**
+     * Dispatches the deferred deliveries for which there are tokens available.
+     */
+    void drain() {
+        final List<Deferred> ready = new ArrayList<>();
+        synchronized (queue) {
+            final Set<String> exhausted = new HashSet<>();
+            final Iterator<Deferred> it = queue.iterator();
+            while (it.hasNext()) {
+                final Deferred deferred = it.next();
+                final String repository = deferred.rcfg.repository();
+                if (exhausted.contains(repository)) {
+                    continue;
+                }
+                if (!bucket(deferred.rcfg).tryAcquire()) {
+                    exhausted.add(repository);
+                    continue;
+                }
+                if (!global.tryAcquire()) {
+                    bucket(deferred.rcfg).refund();
+                    break;
+                }
+                it.remove();
+                deferredCounts.computeIfPresent(repository, (r, count) -> count == 1 ? null : count - 1);
+                ready.add(deferred);
+            }
+        }
+        for (Deferred deferred : ready) {
+            try {
+                deferred.dispatch.run();
+            } catch (Exception e) {
+                LOG.error("Unable to dispatch deferred delivery for repository {}", deferred.rcfg.repository(), e);
+                drop(deferred);
+            }
+        }
+    }
+
+    private void drop(Deferred deferred) {
+        count(deferred.rcfg.repository(), "dropped");
+        try {
+            deferred.drop.run();
+        } catch (Exception e) {
+            LOG.error("Unable to drop deferred delivery for repository {}", deferred.rcfg.repository(), e);
+        }
+    }
+
+    private void count(String repository, String result) {
+        registry.counter("prw.admission.deliveries", "repository", repository, "result", result.toLowerCase()).increment();
+    }
+
+    private boolean tryAcquire(RepositoryConfig rcfg) {
+        final TokenBucket bucket = bucket(rcfg);
+        if (!bucket.tryAcquire()) {
+            return false;
+        }
+        if (!global.tryAcquire()) {
+            bucket.refund();
+            return false;
+        }
+        return true;
+    }
+
+    private TokenBucket bucket(RepositoryConfig rcfg) {
+        return buckets.computeIfAbsent(rcfg.repository(), r -> new TokenBucket(rcfg.rateLimit(), rcfg.rateLimitBurst()));
+    }
+
+    private int queueSize() {
+        synchronized (queue) {
+            return queue.size();
+        }
+    }
+
+    private static final class Deferred {
+        private final RepositoryConfig rcfg;
+        private final Runnable dispatch;
+        private final Runnable drop;
+
+        private Deferred(RepositoryConfig rcfg, Runnable dispatch, Runnable drop) {
+            this.rcfg = rcfg;
+            this.dispatch = dispatch;
+            this.drop = drop;
+        }
+    }
+}
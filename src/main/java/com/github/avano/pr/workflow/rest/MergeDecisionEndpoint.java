@@ -0,0 +1,32 @@
+package com.github.avano.pr.workflow.rest;
+
+import com.github.avano.pr.workflow.handler.MergeDecision;
+import com.github.avano.pr.workflow.handler.MergeDecisions;
+
+import javax.inject.Inject;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+@Path("/prs")
+public class MergeDecisionEndpoint {
+    @Inject
+    MergeDecisions decisions;
+
+    /**
+     * Returns the trace of the latest merge evaluation of the pull request, or 404 when it wasn't evaluated since the application start.
+     */
+    @Path("/{owner}/{repository}/{number}/merge-decision")
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getDecision(@PathParam("owner") String owner, @PathParam("repository") String repository, @PathParam("number") int number) {
+        final MergeDecision decision = decisions.get(owner + "/" + repository, number);
+        if (decision == null) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+        return Response.ok().entity(decision).build();
+    }
+}
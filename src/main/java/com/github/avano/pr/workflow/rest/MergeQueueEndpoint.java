@@ -0,0 +1,26 @@
+package com.github.avano.pr.workflow.rest;
+
+import com.github.avano.pr.workflow.handler.MergeQueue;
+
+import javax.inject.Inject;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+@Path("/merge-queue")
+public class MergeQueueEndpoint {
+    @Inject
+    MergeQueue mergeQueue;
+
+    /**
+     * Returns the pull requests waiting in the merge queues together with the throughput of each queue.
+     */
+    @Path("/")
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getQueues() {
+        return Response.ok().entity(mergeQueue.status()).build();
+    }
+}
@@ -0,0 +1,57 @@
+package com.github.avano.pr.workflow.rest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.avano.pr.workflow.config.Configuration;
+import com.github.avano.pr.workflow.config.WebhookEndpointMode;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.ext.web.Router;
+import io.vertx.ext.web.RoutingContext;
+import io.vertx.ext.web.handler.BodyHandler;
+
+/**
+ * Reactive variant of the {@link WebhookEndpoint}, enabled by the <code>prw.webhook-endpoint=reactive</code> configuration.
+ * <p>
+ * The delivery is verified and dispatched on the event loop, without handing the request over to a worker thread.
+ */
+@ApplicationScoped
+public class ReactiveWebhookRoute {
+    private static final Logger LOG = LoggerFactory.getLogger(ReactiveWebhookRoute.class);
+    // Max payload size of a GitHub webhook
+    private static final long BODY_LIMIT = 25L * 1024 * 1024;
+
+    @Inject
+    Configuration configuration;
+
+    @Inject
+    WebhookIngestion ingestion;
+
+    void init(@Observes Router router) {
+        if (configuration.webhookEndpoint() != WebhookEndpointMode.REACTIVE) {
+            return;
+        }
+        LOG.info("Using reactive webhook endpoint");
+        // Routes registered here take precedence over the RESTEasy resources
+        router.post("/webhook").consumes("application/json").handler(BodyHandler.create(false).setBodyLimit(BODY_LIMIT)).handler(this::handle);
+    }
+
+    private void handle(RoutingContext ctx) {
+        final Buffer body = ctx.body().buffer();
+        ingestion.ingest(ctx.request().getHeader("X-GitHub-Event"), ctx.request().getHeader("X-Hub-Signature-256"),
+            ctx.request().getHeader("X-Hub-Signature"), ctx.request().getHeader("X-GitHub-Delivery"), body == null ? new byte[0] : body.getBytes())
+            .whenComplete((status, e) -> {
+                if (e != null) {
+                    LOG.error("Unable to process the webhook delivery", e);
+                    ctx.response().setStatusCode(500).end();
+                } else {
+                    ctx.response().setStatusCode(status.getStatusCode()).end();
+                }
+            });
+    }
+}
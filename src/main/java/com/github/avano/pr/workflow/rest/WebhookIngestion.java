@@ -0,0 +1,165 @@
+package com.github.avano.pr.workflow.rest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.avano.pr.workflow.bus.Bus;
+import com.github.avano.pr.workflow.config.Configuration;
+import com.github.avano.pr.workflow.config.IngestionMode;
+import com.github.avano.pr.workflow.config.RepositoryConfig;
+import com.github.avano.pr.workflow.handler.json.EventRoutes;
+import com.github.avano.pr.workflow.journal.IngestionJournal;
+import com.github.avano.pr.workflow.message.WebhookMessage;
+import com.github.avano.pr.workflow.util.DeliveryDeduplicator;
+import com.github.avano.pr.workflow.util.PayloadScanner;
+import com.github.avano.pr.workflow.util.Signature;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.ws.rs.core.Response;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Verifies the incoming webhook deliveries and dispatches them to the event handlers.
+ * <p>
+ * Used by both the blocking and the reactive webhook endpoint. Nothing in the processing blocks, so it is safe to call it from the event
+ * loop.
+ */
+@ApplicationScoped
+public class WebhookIngestion {
+    private static final Logger LOG = LoggerFactory.getLogger(WebhookIngestion.class);
+    private static final CompletionStage<Response.Status> NO_CONTENT = CompletableFuture.completedFuture(Response.Status.NO_CONTENT);
+
+    @Inject
+    Configuration configuration;
+
+    @Inject
+    Bus eventBus;
+
+    @Inject
+    Signature signature;
+
+    @Inject
+    EventRoutes routes;
+
+    @Inject
+    IngestionJournal journal;
+
+    @Inject
+    DeliveryDeduplicator deduplicator;
+
+    @Inject
+    AdmissionControl admission;
+
+    @Inject
+    MeterRegistry registry;
+
+    /**
+     * Processes the webhook delivery.
+     * <p>
+     * Redelivered webhooks, recognized by the delivery ID that was already accepted before, are dropped before reading the payload. Only the
+     * action and the repository name are read from the payload up front and the deliveries that no handler consumes are dropped right away.
+     * The signature is computed over the raw bytes, so that it is computed over exactly the same content that GitHub signed.
+     * <p>
+     * The deliveries over the rate limits of the {@link AdmissionControl} are acknowledged with 202 and dispatched later, or rejected with 429
+     * when there are too many deferred deliveries.
+     * <p>
+     * In the journal ingestion mode, the delivery is acknowledged with 202 as soon as it is stored in the ingestion journal and it is published
+     * to the bus later by the journal replayer. The rate limits are applied by the replayer, so that no acknowledged delivery is kept only in
+     * memory.
+     *
+     * @param eventType X-GitHub-Event header
+     * @param sha256Signature X-Hub-Signature-256 header
+     * @param sha1Signature X-Hub-Signature header
+     * @param deliveryId X-GitHub-Delivery header
+     * @param body raw JSON GitHub event
+     * @return response status to send back
+     */
+    public CompletionStage<Response.Status> ingest(String eventType, String sha256Signature, String sha1Signature, String deliveryId, byte[] body) {
+        if (eventType == null) {
+            LOG.warn("Missing X-GitHub-Event header, ignoring request");
+            return NO_CONTENT;
+        }
+
+        if (!deduplicator.claim(deliveryId)) {
+            LOG.debug("Delivery {} was already received, ignoring request", deliveryId);
+            return NO_CONTENT;
+        }
+
+        WebhookMessage message;
+        try {
+            message = PayloadScanner.scan(body);
+        } catch (IOException e) {
+            LOG.warn("Unable to read event payload, ignoring request: " + e);
+            deduplicator.release(deliveryId);
+            return CompletableFuture.completedFuture(Response.Status.BAD_REQUEST);
+        }
+
+        String event = eventType.toLowerCase();
+        if (!routes.isRouted(event, message.getAction())) {
+            LOG.trace("No handler for event {} with action {}, ignoring request", event, message.getAction());
+            count(event, message.getAction(), "dropped");
+            return NO_CONTENT;
+        }
+
+        RepositoryConfig rcfg = configuration.repositoryConfig(message.getRepository());
+        if (rcfg == null) {
+            LOG.warn("Unconfigured repository {}, ignoring request", message.getRepository());
+            deduplicator.release(deliveryId);
+            return NO_CONTENT;
+        }
+
+        if (rcfg.webhookSecret() != null && !signature.isValid(rcfg.webhookSecret(), sha256Signature, sha1Signature, body)) {
+            LOG.warn("Signature of the request doesn't match with expected signature, ignoring request");
+            deduplicator.release(deliveryId);
+            return NO_CONTENT;
+        }
+
+        LOG.debug("Received event {}", event);
+        count(event, message.getAction(), "routed");
+        if (configuration.ingestionMode() == IngestionMode.JOURNAL) {
+            return append(event, message, deliveryId);
+        }
+        // A redelivery of the deferred delivery that is not dispatched in the end is not a duplicate
+        switch (admission.admit(rcfg, () -> eventBus.publish(event, message), () -> deduplicator.release(deliveryId))) {
+            case DEFERRED:
+                return CompletableFuture.completedFuture(Response.Status.ACCEPTED);
+            case SHED:
+                LOG.warn("Too many deferred events, rejecting event {} for repository {}", event, message.getRepository());
+                deduplicator.release(deliveryId);
+                return CompletableFuture.completedFuture(Response.Status.TOO_MANY_REQUESTS);
+            default:
+                eventBus.publish(event, message);
+                return NO_CONTENT;
+        }
+    }
+
+    /**
+     * Stores the verified delivery in the ingestion journal, from which it is published to the event handlers.
+     *
+     * @param event event name
+     * @param message webhook message
+     * @param deliveryId X-GitHub-Delivery header
+     * @return response status to send back
+     */
+    private CompletionStage<Response.Status> append(String event, WebhookMessage message, String deliveryId) {
+        return journal.append(event, message.getPayload()).orTimeout(10, TimeUnit.SECONDS).handle((offset, e) -> {
+            if (e != null) {
+                LOG.error("Unable to store event {} in the ingestion journal: {}", event, e.toString());
+                deduplicator.release(deliveryId);
+                return Response.Status.SERVICE_UNAVAILABLE;
+            }
+            return Response.Status.ACCEPTED;
+        });
+    }
+
+    private void count(String event, String action, String result) {
+        registry.counter("prw.webhook.deliveries", "event", event, "action", action == null ? "none" : action, "result", result).increment();
+    }
+}
@@ -0,0 +1,194 @@
+package com.github.avano.pr.workflow.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.avano.pr.workflow.config.Configuration;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+
+/**
+ * Index of the recently accepted webhook delivery IDs (<code>X-GitHub-Delivery</code> header) used to drop the redelivered webhooks.
+ * <p>
+ * The index keeps the delivery IDs in the order in which they were received together with the time of receiving. The entries older than
+ * the configured TTL are evicted lazily and the oldest entries are also evicted when the index is full. The index is periodically saved to
+ * the data directory and loaded on startup, so that it survives the application restarts.
+ */
+@ApplicationScoped
+public class DeliveryDeduplicator {
+    private static final Logger LOG = LoggerFactory.getLogger(DeliveryDeduplicator.class);
+    private static final String SNAPSHOT_FILE = "deliveries";
+
+    @Inject
+    Configuration configuration;
+
+    @Inject
+    MeterRegistry registry;
+
+    // Delivery ID -> time of receiving in millis, in insertion order
+    private final LinkedHashMap<String, Long> deliveries = new LinkedHashMap<>();
+    private Counter hits;
+    private Counter misses;
+    private Counter ttlEvictions;
+    private Counter sizeEvictions;
+    private boolean dirty;
+
+    @PostConstruct
+    void init() {
+        hits = registry.counter("prw.dedup.lookups", "result", "hit");
+        misses = registry.counter("prw.dedup.lookups", "result", "miss");
+        ttlEvictions = registry.counter("prw.dedup.evictions", "reason", "ttl");
+        sizeEvictions = registry.counter("prw.dedup.evictions", "reason", "size");
+        registry.gauge("prw.dedup.size", deliveries, d -> size());
+    }
+
+    void onStart(@Observes StartupEvent ev) {
+        load();
+    }
+
+    void onStop(@Observes ShutdownEvent ev) {
+        snapshot();
+    }
+
+    /**
+     * Claims the given delivery ID. When the same delivery ID was already claimed in the dedup window, the delivery is a duplicate.
+     *
+     * @param deliveryId delivery ID, may be null
+     * @return true if the delivery should be processed, false if it is a duplicate
+     */
+    public boolean claim(String deliveryId) {
+        if (deliveryId == null) {
+            return true;
+        }
+        final long now = System.currentTimeMillis();
+        synchronized (deliveries) {
+            evictExpired(now);
+            if (deliveries.containsKey(deliveryId)) {
+                hits.increment();
+                return false;
+            }
+            misses.increment();
+            deliveries.put(deliveryId, now);
+            dirty = true;
+            if (deliveries.size() > configuration.dedup().maxEntries()) {
+                final Iterator<String> it = deliveries.keySet().iterator();
+                it.next();
+                it.remove();
+                sizeEvictions.increment();
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Releases the previously claimed delivery ID, used when the delivery was not accepted, so that its redelivery is processed.
+     *
+     * @param deliveryId delivery ID, may be null
+     */
+    public void release(String deliveryId) {
+        if (deliveryId == null) {
+            return;
+        }
+        synchronized (deliveries) {
+            if (deliveries.remove(deliveryId) != null) {
+                dirty = true;
+            }
+        }
+    }
+
+    /**
+     * Saves the index to the data directory, if it changed since the last snapshot.
+     */
+    @Scheduled(every = "${prw.dedup.snapshot-interval:60s}", delayed = "${prw.dedup.snapshot-interval:60s}")
+    void snapshot() {
+        final List<Map.Entry<String, Long>> entries;
+        synchronized (deliveries) {
+            if (!dirty) {
+                return;
+            }
+            entries = new ArrayList<>(deliveries.entrySet());
+            dirty = false;
+        }
+        final Path file = snapshotFile();
+        final Path tmp = file.resolveSibling(SNAPSHOT_FILE + ".tmp");
+        try {
+            Files.createDirectories(file.getParent());
+            try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                for (Map.Entry<String, Long> entry : entries) {
+                    writer.write(entry.getKey() + " " + entry.getValue());
+                    writer.newLine();
+                }
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            LOG.trace("Saved {} delivery IDs to {}", entries.size(), file);
+        } catch (IOException e) {
+            LOG.warn("Unable to save delivery IDs to {}: {}", file, e.getMessage());
+            synchronized (deliveries) {
+                dirty = true;
+            }
+        }
+    }
+
+    private void load() {
+        final Path file = snapshotFile();
+        if (!Files.exists(file)) {
+            return;
+        }
+        try {
+            final long expiry = System.currentTimeMillis() - configuration.dedup().ttl().toMillis();
+            synchronized (deliveries) {
+                for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                    final String[] parts = line.split(" ");
+                    if (parts.length == 2 && Long.parseLong(parts[1]) > expiry) {
+                        deliveries.put(parts[0], Long.parseLong(parts[1]));
+                    }
+                }
+                LOG.debug("Loaded {} delivery IDs from {}", deliveries.size(), file);
+            }
+        } catch (IOException | NumberFormatException e) {
+            LOG.warn("Unable to load delivery IDs from {}: {}", file, e.getMessage());
+        }
+    }
+
+    private void evictExpired(long now) {
+        final long expiry = now - configuration.dedup().ttl().toMillis();
+        final Iterator<Long> it = deliveries.values().iterator();
+        while (it.hasNext() && it.next() <= expiry) {
+            it.remove();
+            ttlEvictions.increment();
+            dirty = true;
+        }
+    }
+
+    private int size() {
+        synchronized (deliveries) {
+            return deliveries.size();
+        }
+    }
+
+    private Path snapshotFile() {
+        return Paths.get(configuration.dataDir(), SNAPSHOT_FILE);
+    }
+}
@@ -0,0 +1,70 @@
+package com.github.avano.pr.workflow.util;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.github.avano.pr.workflow.config.Constants;
+import com.github.avano.pr.workflow.message.WebhookMessage;
+
+import java.io.IOException;
+
+/**
+ * Utility class for extracting the routing fields from the raw webhook payload.
+ * <p>
+ * The payload is read as a token stream, so no object tree is created for it.
+ */
+public final class PayloadScanner {
+    private static final JsonFactory FACTORY = new JsonFactory();
+
+    private PayloadScanner() {
+    }
+
+    /**
+     * Reads the top-level action and the repository full name from the given payload.
+     *
+     * @param payload raw payload
+     * @return {@link WebhookMessage} instance wrapping the payload
+     * @throws IOException when the payload is not a valid json object
+     */
+    public static WebhookMessage scan(byte[] payload) throws IOException {
+        String action = null;
+        String repository = null;
+        try (JsonParser parser = FACTORY.createParser(payload)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Payload is not a json object");
+            }
+            while ((action == null || repository == null) && parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String field = parser.getCurrentName();
+                final JsonToken value = parser.nextToken();
+                if (Constants.JSON_ACTION.equals(field) && value == JsonToken.VALUE_STRING) {
+                    action = parser.getText();
+                } else if (Constants.JSON_REPOSITORY.equals(field) && value == JsonToken.START_OBJECT) {
+                    repository = repositoryName(parser);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return new WebhookMessage(action, repository, payload);
+    }
+
+    /**
+     * Reads the full name from the repository object, the parser is expected to be positioned at the start of the object.
+     *
+     * @param parser json parser
+     * @return repository full name or null if not present
+     * @throws IOException when the payload is not a valid json
+     */
+    private static String repositoryName(JsonParser parser) throws IOException {
+        String name = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String field = parser.getCurrentName();
+            if (parser.nextToken() == JsonToken.VALUE_STRING && Constants.JSON_REPOSITORY_NAME.equals(field)) {
+                name = parser.getText();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return name;
+    }
+}
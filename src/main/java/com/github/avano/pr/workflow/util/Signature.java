@@ -4,49 +4,169 @@ import org.apache.commons.codec.binary.Hex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.github.avano.pr.workflow.config.RepositoryConfigChangedEvent;
+
 import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
 import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
 
-import java.security.InvalidKeyException;
-import java.security.NoSuchAlgorithmException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
  * Utility class for working with signatures.
+ * <p>
+ * Initialized {@link Mac} instances are pooled per algorithm and webhook secret, so that the key setup is done only once and not for every
+ * request. The pools are dropped whenever a repository configuration changes.
  */
 @ApplicationScoped
 public class Signature {
     private static final Logger LOG = LoggerFactory.getLogger(Signature.class);
-    private static final String GH_SIGNATURE_ALGORITHM = "HmacSHA1";
+    private static final String SHA1_ALGORITHM = "HmacSHA1";
+    private static final String SHA256_ALGORITHM = "HmacSHA256";
+    private static final String SHA1_PREFIX = "sha1=";
+    private static final String SHA256_PREFIX = "sha256=";
+
+    private final Map<String, MacPool> sha1Pools = new ConcurrentHashMap<>();
+    private final Map<String, MacPool> sha256Pools = new ConcurrentHashMap<>();
 
     /**
-     * Computes the signature of given payload using the configured secret.
+     * Computes the SHA-1 signature of given payload using the configured secret.
      *
      * @param secret repository secret
      * @param payload payload
      * @return signature in expected form
      */
     public String compute(String secret, byte[] payload) {
+        byte[] digest = digest(sha1Pools, SHA1_ALGORITHM, secret, payload);
+        return digest == null ? null : SHA1_PREFIX + new String(Hex.encodeHex(digest));
+    }
+
+    /**
+     * Computes the SHA-256 signature of given payload using the configured secret.
+     *
+     * @param secret repository secret
+     * @param payload payload
+     * @return signature in expected form
+     */
+    public String computeSha256(String secret, byte[] payload) {
+        byte[] digest = digest(sha256Pools, SHA256_ALGORITHM, secret, payload);
+        return digest == null ? null : SHA256_PREFIX + new String(Hex.encodeHex(digest));
+    }
+
+    /**
+     * Checks if the actual signature of the request matches the expected signature.
+     * <p>
+     * The SHA-256 signature is preferred, the SHA-1 signature is used only when the SHA-256 one is not present.
+     *
+     * @param webhookSecret webhook secret for given repository
+     * @param sha256Signature actual SHA-256 signature sent by github, may be null
+     * @param sha1Signature actual SHA-1 signature sent by github, may be null
+     * @param payload event payload
+     * @return true/false
+     */
+    public boolean isValid(String webhookSecret, String sha256Signature, String sha1Signature, byte[] payload) {
+        if (sha256Signature != null) {
+            return matches(sha256Signature, SHA256_PREFIX, digest(sha256Pools, SHA256_ALGORITHM, webhookSecret, payload));
+        }
+        if (sha1Signature != null) {
+            return matches(sha1Signature, SHA1_PREFIX, digest(sha1Pools, SHA1_ALGORITHM, webhookSecret, payload));
+        }
+        LOG.debug("No signature present in the request");
+        return false;
+    }
+
+    /**
+     * Drops all pooled instances when some repository configuration changes, as the secrets may have changed.
+     *
+     * @param event config changed event
+     */
+    void onConfigChanged(@Observes RepositoryConfigChangedEvent event) {
+        sha1Pools.clear();
+        sha256Pools.clear();
+    }
+
+    /**
+     * Computes the digest of the payload using a pooled mac instance.
+     *
+     * @param pools pools for given algorithm
+     * @param algorithm mac algorithm
+     * @param secret secret
+     * @param payload payload
+     * @return digest bytes or null if unable to compute
+     */
+    private byte[] digest(Map<String, MacPool> pools, String algorithm, String secret, byte[] payload) {
+        MacPool pool = pools.computeIfAbsent(secret, s -> new MacPool(algorithm, s));
         Mac mac;
         try {
-            mac = Mac.getInstance(GH_SIGNATURE_ALGORITHM);
-            mac.init(new SecretKeySpec(secret.getBytes(), GH_SIGNATURE_ALGORITHM));
-        } catch (NoSuchAlgorithmException | InvalidKeyException e) {
+            mac = pool.borrow();
+        } catch (GeneralSecurityException e) {
             LOG.error("Unable to compute signature: " + e);
             return null;
         }
-        return "sha1=" + new String(Hex.encodeHex(mac.doFinal(payload)));
+        try {
+            return mac.doFinal(payload);
+        } finally {
+            pool.release(mac);
+        }
     }
 
     /**
-     * Checks if the actual signature of the request matches the expected signature.
+     * Compares the hex signature from the header with the computed digest in constant time.
      *
-     * @param webhookSecret webhook secret for given repository
-     * @param actual actual signature sent by github
-     * @param payload event payload
-     * @return true/false
+     * @param actual actual signature header value
+     * @param prefix expected prefix of the signature
+     * @param expected expected digest
+     * @return true if the signature matches the digest
      */
-    public boolean isValid(String webhookSecret, String actual, byte[] payload) {
-        return actual.equals(compute(webhookSecret, payload));
+    private static boolean matches(String actual, String prefix, byte[] expected) {
+        if (expected == null || !actual.startsWith(prefix) || actual.length() - prefix.length() != expected.length * 2) {
+            return false;
+        }
+        byte[] decoded = new byte[expected.length];
+        for (int i = 0; i < decoded.length; i++) {
+            int high = Character.digit(actual.charAt(prefix.length() + 2 * i), 16);
+            int low = Character.digit(actual.charAt(prefix.length() + 2 * i + 1), 16);
+            if (high == -1 || low == -1) {
+                return false;
+            }
+            decoded[i] = (byte) ((high << 4) | low);
+        }
+        return MessageDigest.isEqual(decoded, expected);
+    }
+
+    /**
+     * Pool of initialized mac instances for a single algorithm and secret.
+     */
+    private static final class MacPool {
+        private final String algorithm;
+        private final SecretKeySpec key;
+        private final Queue<Mac> macs = new ConcurrentLinkedQueue<>();
+
+        private MacPool(String algorithm, String secret) {
+            this.algorithm = algorithm;
+            this.key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), algorithm);
+        }
+
+        private Mac borrow() throws GeneralSecurityException {
+            Mac mac = macs.poll();
+            if (mac == null) {
+                mac = Mac.getInstance(algorithm);
+                mac.init(key);
+            }
+            return mac;
+        }
+
+        private void release(Mac mac) {
+            // doFinal resets the mac, but the computation may have failed in the middle
+            mac.reset();
+            macs.offer(mac);
+        }
     }
 }
@@ -0,0 +1,53 @@
+package com.github.avano.pr.workflow.util;
+
+/**
+ * Token bucket rate limiter.
+ * <p>
+ * The bucket is refilled continuously with the given rate up to its capacity and each acquire takes one token from it.
+ */
+public class TokenBucket {
+    private final double ratePerNano;
+    private final double capacity;
+    private double tokens;
+    private long refilledAt;
+
+    /**
+     * Creates a new full bucket.
+     *
+     * @param ratePerSecond refill rate in tokens per second
+     * @param capacity max number of tokens
+     */
+    public TokenBucket(double ratePerSecond, int capacity) {
+        this.ratePerNano = ratePerSecond / 1_000_000_000d;
+        this.capacity = Math.max(1, capacity);
+        this.tokens = this.capacity;
+        this.refilledAt = System.nanoTime();
+    }
+
+    /**
+     * Takes one token from the bucket, if available.
+     *
+     * @return true if the token was taken, false otherwise
+     */
+    public synchronized boolean tryAcquire() {
+        refill();
+        if (tokens >= 1) {
+            tokens--;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the token taken by {@link #tryAcquire()} back to the bucket.
+     */
+    public synchronized void refund() {
+        tokens = Math.min(capacity, tokens + 1);
+    }
+
+    private void refill() {
+        final long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - refilledAt) * ratePerNano);
+        refilledAt = now;
+    }
+}
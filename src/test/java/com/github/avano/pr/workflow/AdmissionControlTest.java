@@ -0,0 +1,123 @@
+package com.github.avano.pr.workflow;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.avano.pr.workflow.config.RepositoryConfig;
+import com.github.avano.pr.workflow.config.RepositoryConfigChangedEvent;
+import com.github.avano.pr.workflow.rest.AdmissionControl;
+import com.github.avano.pr.workflow.rest.AdmissionControl.Admission;
+
+import javax.enterprise.event.Event;
+import javax.inject.Inject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.test.junit.QuarkusTest;
+
+@QuarkusTest
+public class AdmissionControlTest extends TestParent {
+    @Inject
+    AdmissionControl admission;
+
+    @Inject
+    MeterRegistry registry;
+
+    @Inject
+    Event<RepositoryConfigChangedEvent> configChanged;
+
+    private final List<Integer> dispatched = Collections.synchronizedList(new ArrayList<>());
+
+    private RepositoryConfig repositoryConfig(String repository, double rateLimit, int burst) {
+        RepositoryConfig rcfg = new RepositoryConfig();
+        rcfg.setRepository(repository);
+        rcfg.setRateLimit(rateLimit);
+        rcfg.setRateLimitBurst(burst);
+        return rcfg;
+    }
+
+    private Admission admit(RepositoryConfig rcfg, Runnable dispatch) {
+        return admission.admit(rcfg, dispatch, () -> { });
+    }
+
+    private double count(String repository, String result) {
+        return registry.counter("prw.admission.deliveries", "repository", repository, "result", result).count();
+    }
+
+    @Test
+    public void shouldAcceptWithinBurstTest() {
+        RepositoryConfig rcfg = repositoryConfig("admission/burst", 1, 3);
+        for (int i = 0; i < 3; i++) {
+            assertThat(admit(rcfg, () -> dispatched.add(0))).isEqualTo(Admission.ACCEPTED);
+        }
+        assertThat(count("admission/burst", "accepted")).isEqualTo(3);
+        // Accepted deliveries are dispatched by the caller
+        assertThat(dispatched).isEmpty();
+    }
+
+    @Test
+    public void shouldDeferAndDispatchInOrderTest() {
+        RepositoryConfig rcfg = repositoryConfig("admission/defer", 10, 1);
+        assertThat(admit(rcfg, () -> dispatched.add(0))).isEqualTo(Admission.ACCEPTED);
+        for (int i = 1; i <= 5; i++) {
+            final int id = i;
+            assertThat(admit(rcfg, () -> dispatched.add(id))).isEqualTo(Admission.DEFERRED);
+        }
+        waitFor(() -> dispatched.size() == 5, 3);
+        assertThat(dispatched).containsExactly(1, 2, 3, 4, 5);
+        assertThat(count("admission/defer", "deferred")).isEqualTo(5);
+    }
+
+    @Test
+    public void shouldNotStarveOtherRepositoriesTest() {
+        RepositoryConfig busy = repositoryConfig("admission/busy", 0.001, 1);
+        admit(busy, () -> { });
+        for (int i = 0; i < 5; i++) {
+            assertThat(admit(busy, () -> dispatched.add(-1))).isEqualTo(Admission.DEFERRED);
+        }
+        assertThat(admit(repositoryConfig("admission/quiet", 10, 10), () -> { })).isEqualTo(Admission.ACCEPTED);
+
+        // Let the deferred deliveries through
+        busy.setRateLimit(1000);
+        busy.setRateLimitBurst(1000);
+        configChanged.fire(new RepositoryConfigChangedEvent("admission/busy"));
+        waitFor(() -> dispatched.size() == 5, 3);
+        assertThat(dispatched).hasSize(5);
+    }
+
+    @Test
+    public void shouldShedWhenQueueIsFullTest() {
+        RepositoryConfig rcfg = repositoryConfig("admission/shed", 0.001, 1);
+        admit(rcfg, () -> { });
+        // Queue size is 20 in tests
+        List<Admission> admissions = IntStream.range(0, 21).mapToObj(i -> admit(rcfg, () -> dispatched.add(i)))
+            .collect(Collectors.toList());
+        assertThat(admissions.subList(0, 20)).containsOnly(Admission.DEFERRED);
+        assertThat(admissions.get(20)).isEqualTo(Admission.SHED);
+        assertThat(count("admission/shed", "shed")).isEqualTo(1);
+
+        rcfg.setRateLimit(1000);
+        rcfg.setRateLimitBurst(1000);
+        configChanged.fire(new RepositoryConfigChangedEvent("admission/shed"));
+        waitFor(() -> dispatched.size() == 20, 3);
+        assertThat(dispatched).hasSize(20);
+    }
+
+    @Test
+    public void shouldDropFailedDeferredDeliveryTest() {
+        RepositoryConfig rcfg = repositoryConfig("admission/drop", 10, 1);
+        assertThat(admit(rcfg, () -> { })).isEqualTo(Admission.ACCEPTED);
+        assertThat(admission.admit(rcfg, () -> {
+            throw new IllegalStateException("Unable to publish");
+        }, () -> dispatched.add(-1))).isEqualTo(Admission.DEFERRED);
+        waitFor(() -> !dispatched.isEmpty(), 3);
+        assertThat(dispatched).containsExactly(-1);
+        assertThat(count("admission/drop", "dropped")).isEqualTo(1);
+    }
+}
@@ -23,6 +23,7 @@ import com.github.tomakehurst.wiremock.client.WireMock;
 
 import javax.inject.Inject;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import io.quarkus.test.junit.QuarkusTest;
 
 @QuarkusTest
@@ -34,6 +35,9 @@ public class CheckHandlerTest extends TestParent {
     @Inject
     CheckHandler checkHandler;
 
+    @Inject
+    MeterRegistry registry;
+
     private final GHPullRequest pr1 = getInstance(GHPullRequest.class, fields("number", 1,
         "owner", getInstance(GHRepository.class, fields("full_name", TEST_REPO))));
     private final GHPullRequest pr3 = getInstance(GHPullRequest.class, fields("number", 3,
@@ -73,6 +77,24 @@ public class CheckHandlerTest extends TestParent {
         assertThat(busInvocations.get(1).getMessage().get(GHPullRequest.class).getNumber()).isEqualTo(pr3.getNumber());
     }
 
+    @Test
+    public void shouldCoalesceSuccessfulChecksOfSameCommitTest() {
+        final long attempts = registry.summary("prw.merge.coalesced.triggers").count();
+        GHCommit commit = getInstance(GHCommit.class, fields("sha", SHA));
+        for (int i = 0; i < 5; i++) {
+            checkHandler.handleStatusChanged(new BusMessage(client, new CommitStatusMessage(commit, GHCommitState.SUCCESS, "status-" + i)));
+        }
+        GHCheckRun checkRun = getInstance(GHCheckRun.class, fields("headSha", SHA, "conclusion", "success", "name", SUCCESS_CHECK_NAME));
+        checkHandler.handleCheckRunFinished(new BusMessage(client, checkRun));
+
+        // One merge attempt for both PRs with the given head
+        waitForInvocations(3);
+        assertThat(getInvocations(Constants.PR_MERGE)).hasSize(2);
+        assertThat(registry.summary("prw.merge.coalesced.triggers").count()).isEqualTo(attempts + 1);
+        assertThat(registry.summary("prw.merge.coalesced.triggers").max()).isEqualTo(6);
+        WireMock.verify(1, WireMock.getRequestedFor(urlEqualTo("/repos/" + TEST_REPO + "/pulls?state=open")));
+    }
+
     @Test
     public void shouldNotTryToMergeWhenStatusFailedTest() {
         GHCommit commit = getInstance(GHCommit.class, fields("sha", SHA));
@@ -0,0 +1,80 @@
+package com.github.avano.pr.workflow;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.ok;
+import static com.github.tomakehurst.wiremock.client.WireMock.status;
+import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+
+import org.junit.jupiter.api.Test;
+
+import org.kohsuke.github.GHPullRequest;
+import org.kohsuke.github.GHPullRequestReviewState;
+
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.verification.LoggedRequest;
+
+import javax.inject.Inject;
+
+import java.util.List;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.test.junit.QuarkusTest;
+
+@QuarkusTest
+public class GitHubCacheTest extends TestParent {
+    private static final String REVIEWS_URL = "/repos/" + TEST_REPO + "/pulls/" + PULL_REQUEST_ID + "/reviews";
+    private static final String REVIEWS_ENDPOINT = "/repos/{repo}/pulls/{id}/reviews";
+
+    @Inject
+    MeterRegistry registry;
+
+    private double cacheRequests(String result) {
+        return registry.counter("prw.github.cache.requests", "endpoint", REVIEWS_ENDPOINT, "result", result).count();
+    }
+
+    private void stubReviews(String etag, String bodyFile) {
+        // Not modified when the client already has the current version
+        stubFor(WireMock.get(urlPathEqualTo(REVIEWS_URL)).atPriority(1).withHeader("If-None-Match", equalTo(etag))
+            .willReturn(status(304).withHeader("ETag", etag)));
+        stubFor(WireMock.get(urlPathEqualTo(REVIEWS_URL)).atPriority(2)
+            .willReturn(ok().withHeader("ETag", etag).withBodyFile(bodyFile)));
+    }
+
+    @Test
+    public void shouldServeNotModifiedResponseFromCacheTest() {
+        stubReviews("\"etag-1\"", "lifecycle/reviews.json");
+        final double hits = cacheRequests("hit");
+        final double misses = cacheRequests("miss");
+        final double saved = registry.counter("prw.github.ratelimit.saved").count();
+
+        GHPullRequest pr = loadPullRequest(PULL_REQUEST_ID);
+        assertThat(client.getReviews(pr)).containsValue(GHPullRequestReviewState.APPROVED);
+        assertThat(client.getReviews(pr)).containsValue(GHPullRequestReviewState.APPROVED);
+
+        List<LoggedRequest> requests = getRequests(getRequestedFor(urlPathEqualTo(REVIEWS_URL)));
+        assertThat(requests).hasSize(2);
+        assertThat(requests.get(1).getHeader("If-None-Match")).isEqualTo("\"etag-1\"");
+        assertThat(cacheRequests("miss")).isEqualTo(misses + 1);
+        assertThat(cacheRequests("hit")).isEqualTo(hits + 1);
+        assertThat(registry.counter("prw.github.ratelimit.saved").count()).isEqualTo(saved + 1);
+    }
+
+    @Test
+    public void shouldReplaceModifiedResponseInCacheTest() {
+        stubReviews("\"etag-2\"", "lifecycle/reviews.json");
+        GHPullRequest pr = loadPullRequest(PULL_REQUEST_ID);
+        assertThat(client.getReviews(pr)).containsValue(GHPullRequestReviewState.APPROVED);
+
+        // The reviews changed
+        server.resetMappings();
+        stubReviews("\"etag-3\"", "reviews/changesRequested.json");
+        final double hits = cacheRequests("hit");
+        assertThat(client.getReviews(pr)).containsValue(GHPullRequestReviewState.CHANGES_REQUESTED);
+        assertThat(client.getReviews(pr)).containsValue(GHPullRequestReviewState.CHANGES_REQUESTED);
+        assertThat(cacheRequests("hit")).isEqualTo(hits + 1);
+    }
+}
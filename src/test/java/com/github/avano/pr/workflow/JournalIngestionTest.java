@@ -0,0 +1,192 @@
+package com.github.avano.pr.workflow;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.apache.commons.io.FileUtils;
+
+import com.github.avano.pr.workflow.config.Configuration;
+import com.github.avano.pr.workflow.config.Constants;
+import com.github.avano.pr.workflow.config.RepositoryConfig;
+import com.github.avano.pr.workflow.config.RepositoryConfigChangedEvent;
+import com.github.avano.pr.workflow.message.WebhookMessage;
+import com.github.avano.pr.workflow.util.IOUtils;
+import com.github.avano.pr.workflow.util.Signature;
+
+import javax.enterprise.event.Event;
+import javax.inject.Inject;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Map;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.test.common.http.TestHTTPResource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+
+@QuarkusTest
+@TestProfile(JournalIngestionTest.JournalProfile.class)
+public class JournalIngestionTest extends TestParent {
+    private static final String DATA_DIR = "target/journal-test";
+
+    @TestHTTPResource("/webhook")
+    private URL url;
+
+    @Inject
+    Signature signature;
+
+    @Inject
+    Configuration configuration;
+
+    @Inject
+    MeterRegistry registry;
+
+    @Inject
+    Event<RepositoryConfigChangedEvent> configChanged;
+
+    public static class JournalProfile implements QuarkusTestProfile {
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            // Start with an empty journal, so that nothing is replayed from the previous runs
+            try {
+                FileUtils.deleteDirectory(new File(DATA_DIR));
+            } catch (IOException e) {
+                fail("Unable to delete " + DATA_DIR, e);
+            }
+            return Map.of("prw.ingestion-mode", "journal", "prw.data-dir", DATA_DIR);
+        }
+    }
+
+    @BeforeEach
+    public void setup() {
+        super.setup();
+        RepositoryConfig rcfg = client.getRepositoryConfiguration();
+        rcfg.setRepository("test/repo");
+        configuration.addRepositoryConfigFile("test", rcfg);
+    }
+
+    private int sendRequest(String header, String content) {
+        try {
+            HttpURLConnection con = (HttpURLConnection) url.openConnection();
+            con.setRequestMethod("POST");
+            con.setRequestProperty("Content-Type", "application/json");
+            con.setRequestProperty("X-GitHub-Event", header);
+            con.setRequestProperty("x-hub-signature", signature.compute("testsecret", content.getBytes(StandardCharsets.UTF_8)));
+            con.setDoOutput(true);
+            con.getOutputStream().write(content.getBytes(StandardCharsets.UTF_8));
+            return con.getResponseCode();
+        } catch (IOException e) {
+            fail("Unable to send HTTP request", e);
+        }
+        return -1;
+    }
+
+    private String readFile(String fileName) {
+        return IOUtils.readFile(Paths.get("src", "test", "resources", "__files", "endpoint", fileName));
+    }
+
+    @Test
+    public void shouldAcknowledgeAndReplayEventTest() {
+        final String content = readFile("statusEvent.json");
+        assertThat(sendRequest("status", content)).isEqualTo(202);
+        waitForInvocations(2);
+        assertThat(busInvocations).hasSize(1);
+        assertThat(lastDestination()).isEqualTo(Constants.STATUS_EVENT);
+        assertThat(busInvocations.get(0).getMessageAs(WebhookMessage.class).getPayload()).isEqualTo(content.getBytes(StandardCharsets.UTF_8));
+        assertThat(busInvocations.get(0).getMessageAs(WebhookMessage.class).getRepository()).isEqualTo(TEST_REPO);
+    }
+
+    @Test
+    public void shouldCheckpointReplayedEventsTest() {
+        assertThat(sendRequest("check_run", readFile("checkRunCompleted.json"))).isEqualTo(202);
+        waitForInvocations(2);
+        waitFor(() -> registry.get("prw.journal.lag").gauge().value() == 0, 2);
+        assertThat(registry.get("prw.journal.lag").gauge().value()).isZero();
+        assertThat(Files.exists(Paths.get(DATA_DIR, "journal", "checkpoint"))).isTrue();
+    }
+
+    @Test
+    public void shouldNotJournalDroppedEventsTest() {
+        assertThat(sendRequest("pull_request", readFile("prEdited.json"))).isEqualTo(204);
+        waitForInvocations(1);
+        assertThat(busInvocations).isEmpty();
+    }
+
+    @Test
+    public void shouldThrottleReplayTest() {
+        final RepositoryConfig rcfg = configuration.repositoryConfig(TEST_REPO);
+        rcfg.setRateLimit(0.001);
+        rcfg.setRateLimitBurst(1);
+        configChanged.fire(new RepositoryConfigChangedEvent(TEST_REPO));
+        try {
+            final String content = readFile("statusEvent.json");
+            for (int i = 0; i < 3; i++) {
+                // Acknowledged once stored, even over the rate limit
+                assertThat(sendRequest("status", content)).isEqualTo(202);
+            }
+            waitForInvocations(3);
+            assertThat(busInvocations).hasSize(1);
+            assertThat(registry.get("prw.journal.lag").gauge().value()).isPositive();
+
+            rcfg.setRateLimit(1000);
+            rcfg.setRateLimitBurst(1000);
+            configChanged.fire(new RepositoryConfigChangedEvent(TEST_REPO));
+            waitForInvocations(3);
+            assertThat(busInvocations).hasSize(3);
+        } finally {
+            rcfg.setRateLimit(10);
+            rcfg.setRateLimitBurst(100);
+            configChanged.fire(new RepositoryConfigChangedEvent(TEST_REPO));
+        }
+    }
+
+    @Test
+    public void shouldReplayOtherRepositoriesWhenThrottledTest() {
+        final RepositoryConfig rcfg = configuration.repositoryConfig(TEST_REPO);
+        rcfg.setRateLimit(0.001);
+        rcfg.setRateLimitBurst(1);
+        configChanged.fire(new RepositoryConfigChangedEvent(TEST_REPO));
+        final RepositoryConfig other = new RepositoryConfig();
+        other.setRepository("test/other");
+        other.setWebhookSecret("testsecret");
+        configuration.addRepositoryConfigFile("other", other);
+        try {
+            final String content = readFile("statusEvent.json");
+            assertThat(sendRequest("status", content)).isEqualTo(202);
+            assertThat(sendRequest("status", content)).isEqualTo(202);
+            final String otherContent = content.replace("\"test/repo\"", "\"test/other\"");
+            assertThat(sendRequest("status", otherContent)).isEqualTo(202);
+            assertThat(sendRequest("status", otherContent)).isEqualTo(202);
+            waitForInvocations(4);
+            assertThat(busInvocations).hasSize(3);
+            assertThat(busInvocations.stream().map(i -> i.getMessageAs(WebhookMessage.class).getRepository()))
+                .containsExactly(TEST_REPO, "test/other", "test/other");
+            // The checkpoint stays before the delivery that was not published yet
+            assertThat(registry.get("prw.journal.lag").gauge().value()).isPositive();
+
+            rcfg.setRateLimit(1000);
+            rcfg.setRateLimitBurst(1000);
+            configChanged.fire(new RepositoryConfigChangedEvent(TEST_REPO));
+            waitForInvocations(4);
+            assertThat(busInvocations).hasSize(4);
+            assertThat(busInvocations.get(3).getMessageAs(WebhookMessage.class).getRepository()).isEqualTo(TEST_REPO);
+            waitFor(() -> registry.get("prw.journal.lag").gauge().value() == 0, 2);
+            assertThat(registry.get("prw.journal.lag").gauge().value()).isZero();
+        } finally {
+            configuration.deleteRepositoryConfigFile("other");
+            rcfg.setRateLimit(10);
+            rcfg.setRateLimitBurst(100);
+            configChanged.fire(new RepositoryConfigChangedEvent(TEST_REPO));
+        }
+    }
+}
@@ -2,20 +2,27 @@ package com.github.avano.pr.workflow;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import static com.github.tomakehurst.wiremock.client.WireMock.ok;
+import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+
 import org.junit.jupiter.api.Test;
 
 import org.json.JSONArray;
 import org.json.JSONObject;
+import org.kohsuke.github.GHPullRequest;
 
 import com.github.avano.pr.workflow.config.Constants;
 import com.github.avano.pr.workflow.handler.LabelHandler;
 import com.github.avano.pr.workflow.message.BusMessage;
 import com.github.avano.pr.workflow.message.LabelsMessage;
+import com.github.tomakehurst.wiremock.client.WireMock;
 import com.github.tomakehurst.wiremock.verification.LoggedRequest;
 
 import javax.inject.Inject;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import io.quarkus.test.junit.QuarkusTest;
@@ -64,6 +71,19 @@ public class LabelsTest extends TestParent {
         assertThat(labelsJsonArray).containsExactly("testLabel");
     }
 
+    @Test
+    public void shouldNotReadLabelsWhenNotDeferredTest() {
+        GHPullRequest pr = loadPullRequest(0);
+        stubFor(WireMock.get(urlEqualTo("/repos/" + TEST_REPO + "/issues/0")).willReturn(ok().withBodyFile("labels/manuallyLabeled.json")));
+        labelHandler.modifyLabels(new BusMessage(client, new LabelsMessage(pr, Collections.singletonList("testLabel"), null)));
+        waitFor(() -> !getRequests(PR_PATCH).isEmpty(), 5);
+        List<LoggedRequest> requests = getRequests(PR_PATCH);
+        assertThat(requests).hasSize(1);
+        // The edit executed right away uses the labels from the event
+        assertThat(new JSONObject(requests.get(0).getBodyAsString()).getJSONArray("labels")).containsExactlyInAnyOrder("bug", "testLabel");
+        WireMock.verify(0, WireMock.getRequestedFor(urlEqualTo("/repos/" + TEST_REPO + "/issues/0")));
+    }
+
     @Test
     public void shouldTryToMergeWhenWipLabelWasRemovedTest() {
         BusMessage message = new BusMessage(client, loadPullRequest(PULL_REQUEST_ID)).with(BusMessage.LABEL, client.getRepositoryConfiguration().wipLabel());
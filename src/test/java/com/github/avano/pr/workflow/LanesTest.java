@@ -0,0 +1,72 @@
+package com.github.avano.pr.workflow;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+import org.json.JSONObject;
+import org.kohsuke.github.GHPullRequest;
+
+import com.github.avano.pr.workflow.handler.LabelHandler;
+import com.github.avano.pr.workflow.message.BusMessage;
+import com.github.avano.pr.workflow.message.LabelsMessage;
+
+import javax.inject.Inject;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+
+/**
+ * Runs the handlers in the pull request lanes without waiting for them, as the other tests do.
+ */
+@QuarkusTest
+@TestProfile(LanesTest.LanesProfile.class)
+public class LanesTest extends TestParent {
+    @Inject
+    LabelHandler labelHandler;
+
+    @Inject
+    MeterRegistry registry;
+
+    public static class LanesProfile implements QuarkusTestProfile {
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            return Map.of("prw.lanes", "4", "test.await-lanes", "false");
+        }
+    }
+
+    @Test
+    public void shouldEditLabelsOfPullRequestInOrderTest() {
+        GHPullRequest pr = loadPullRequest(0);
+        for (int i = 0; i < 10; i++) {
+            labelHandler.modifyLabels(new BusMessage(client, new LabelsMessage(pr, Collections.singletonList("label" + i), null)));
+        }
+        waitFor(() -> getRequests(PR_PATCH).size() == 10, 5);
+        List<String> added = getRequests(PR_PATCH).stream()
+            .map(r -> new JSONObject(r.getBodyAsString()).getJSONArray("labels").toList().stream().map(Object::toString)
+                .filter(label -> label.startsWith("label")).findFirst().orElse(null))
+            .collect(Collectors.toList());
+        assertThat(added).containsExactly("label0", "label1", "label2", "label3", "label4", "label5", "label6", "label7", "label8", "label9");
+    }
+
+    @Test
+    public void shouldProcessHandlerInLaneTest() {
+        final long processed = laneWaits();
+        labelHandler.modifyLabels(new BusMessage(client, new LabelsMessage(loadPullRequest(0), Collections.singletonList("label"), null)));
+        waitFor(() -> getRequests(PR_PATCH).size() == 1, 5);
+        assertThat(getRequests(PR_PATCH)).hasSize(1);
+        assertThat(laneWaits()).isEqualTo(processed + 1);
+    }
+
+    private long laneWaits() {
+        return registry.find("prw.lanes.wait").timers().stream().mapToLong(Timer::count).sum();
+    }
+}
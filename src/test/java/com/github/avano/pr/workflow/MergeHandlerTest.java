@@ -1,6 +1,7 @@
 package com.github.avano.pr.workflow;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
 import static com.github.tomakehurst.wiremock.client.WireMock.ok;
@@ -15,7 +16,9 @@ import org.junit.jupiter.api.Test;
 import org.json.JSONObject;
 import org.kohsuke.github.GHPullRequest;
 
+import com.github.avano.pr.workflow.config.Configuration;
 import com.github.avano.pr.workflow.config.Constants;
+import com.github.avano.pr.workflow.config.RepositoryConfigChangedEvent;
 import com.github.avano.pr.workflow.handler.MergeHandler;
 import com.github.avano.pr.workflow.message.BusMessage;
 import com.github.avano.pr.workflow.message.ConflictMessage;
@@ -23,11 +26,20 @@ import com.github.avano.pr.workflow.util.Invocation;
 import com.github.tomakehurst.wiremock.client.WireMock;
 import com.github.tomakehurst.wiremock.verification.LoggedRequest;
 
+import javax.enterprise.event.Event;
 import javax.inject.Inject;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.test.common.http.TestHTTPResource;
 import io.quarkus.test.junit.QuarkusTest;
 
 @QuarkusTest
@@ -40,9 +52,21 @@ public class MergeHandlerTest extends TestParent {
     private static final int DEPENDABOT_PR_ID = 5;
     private static final int OWNER_PR_ID = 6;
 
+    @TestHTTPResource("/prs/")
+    private URL url;
+
     @Inject
     MergeHandler mergeHandler;
 
+    @Inject
+    MeterRegistry registry;
+
+    @Inject
+    Configuration configuration;
+
+    @Inject
+    Event<RepositoryConfigChangedEvent> configChanged;
+
     @Override
     @BeforeEach
     public void setup() {
@@ -59,6 +83,15 @@ public class MergeHandlerTest extends TestParent {
         assertThat(wasMerged(pr)).isTrue();
     }
 
+    @Test
+    public void shouldListReviewsOnlyOnceTest() {
+        GHPullRequest pr = loadPullRequest(PULL_REQUEST_ID);
+        mergeHandler.merge(new BusMessage(client, pr));
+        mergeHandler.merge(new BusMessage(client, pr));
+
+        WireMock.verify(1, WireMock.getRequestedFor(urlPathMatching("/repos/" + TEST_REPO + "/pulls/" + PULL_REQUEST_ID + "/reviews")));
+    }
+
     @Test
     public void shouldNotMergeMergedTest()  {
         GHPullRequest pr = loadPullRequest(MERGED_PR_ID);
@@ -238,6 +271,8 @@ public class MergeHandlerTest extends TestParent {
         List<LoggedRequest> requests = getRequests(PR_PATCH);
         assertThat(requests).hasSize(1);
         assertThat(new JSONObject(requests.get(0).getBodyAsString()).getJSONArray("assignees")).containsExactlyInAnyOrder("approved");
+        // The reviewers are assigned by their logins, without fetching the users
+        WireMock.verify(0, WireMock.getRequestedFor(urlPathMatching("/users/.*")));
     }
 
     @Test
@@ -356,6 +391,139 @@ public class MergeHandlerTest extends TestParent {
 
     }
 
+    @Test
+    public void shouldMergeUsingGraphQLSnapshotTest() {
+        stubFor(WireMock.post(urlEqualTo("/graphql")).willReturn(ok().withBodyFile("merge/graphql/snapshot.json")));
+        stubFor(WireMock.get(urlEqualTo("/repos/" + TEST_REPO + "/branches/master/protection"))
+            .willReturn(ok().withBody("{\"required_status_checks\": {\"contexts\": [\"build\"]}}")));
+        GHPullRequest pr = loadPullRequest(PULL_REQUEST_ID);
+        mergeHandler.merge(new BusMessage(client, pr));
+        mergeHandler.merge(new BusMessage(client, pr));
+
+        assertThat(wasMerged(pr)).isTrue();
+        // Everything needed for the decision was part of the snapshot, only the cached protection was fetched once
+        WireMock.verify(1, WireMock.getRequestedFor(urlEqualTo("/repos/" + TEST_REPO + "/branches/master/protection")));
+        WireMock.verify(0, WireMock.getRequestedFor(
+            urlPathMatching("/repos/" + TEST_REPO + "/(pulls/\\d+/(reviews|requested_reviewers)|commits/.*|statuses/.*)")));
+    }
+
+    @Test
+    public void shouldNotMergeConflictingGraphQLSnapshotTest() {
+        stubFor(WireMock.post(urlEqualTo("/graphql")).willReturn(ok().withBodyFile("merge/graphql/snapshotConflicting.json")));
+        GHPullRequest pr = loadPullRequest(PULL_REQUEST_ID);
+        mergeHandler.merge(new BusMessage(client, pr));
+
+        assertThat(wasMerged(pr)).isFalse();
+    }
+
+    @Test
+    public void shouldRecheckUnknownMergeableStateTest() {
+        final double rescued = registry.counter("prw.merge.rechecks", "result", "rescued").count();
+        stubFor(WireMock.post(urlEqualTo("/graphql")).willReturn(ok().withBodyFile("merge/graphql/snapshotUnknown.json")));
+        GHPullRequest pr = loadPullRequest(PULL_REQUEST_ID);
+        mergeHandler.merge(new BusMessage(client, pr));
+        assertThat(wasMerged(pr)).isFalse();
+
+        // The merge attempt is published again after the backoff, the test bus only records it
+        waitForInvocationsAndAssert(Constants.PR_MERGE, 1);
+        stubFor(WireMock.post(urlEqualTo("/graphql")).willReturn(ok().withBodyFile("merge/graphql/snapshot.json")));
+        mergeHandler.merge((BusMessage) getInvocations(Constants.PR_MERGE).get(0).getMessage());
+
+        assertThat(wasMerged(pr)).isTrue();
+        assertThat(registry.counter("prw.merge.rechecks", "result", "rescued").count()).isEqualTo(rescued + 1);
+    }
+
+    @Test
+    public void shouldRecheckWithNewClientAfterConfigChangeTest() {
+        configuration.addRepositoryConfigFile("test", client.getRepositoryConfiguration());
+        try {
+            stubFor(WireMock.post(urlEqualTo("/graphql")).willReturn(ok().withBodyFile("merge/graphql/snapshotUnknown.json")));
+            mergeHandler.merge(new BusMessage(client, loadPullRequest(PULL_REQUEST_ID)));
+            // Repeat the attempts until the backoff is long enough to change the configuration before the next one
+            for (int i = 1; i <= 3; i++) {
+                waitForInvocationsAndAssert(Constants.PR_MERGE, i);
+                mergeHandler.merge((BusMessage) getInvocations(Constants.PR_MERGE).get(i - 1).getMessage());
+            }
+            configChanged.fire(new RepositoryConfigChangedEvent(TEST_REPO));
+
+            waitForInvocationsAndAssert(Constants.PR_MERGE, 4);
+            BusMessage recheck = (BusMessage) getInvocations(Constants.PR_MERGE).get(3).getMessage();
+            assertThat(recheck.client()).isNotSameAs(client);
+            assertThat(recheck.client().getRepositoryConfiguration().repository()).isEqualTo(TEST_REPO);
+        } finally {
+            configuration.deleteRepositoryConfigFile("test");
+        }
+    }
+
+    @Test
+    public void shouldDropMergeDecisionsOnConfigChangeTest() {
+        mergeHandler.merge(new BusMessage(client, loadPullRequest(PULL_REQUEST_ID)));
+        assertThat(getDecision(PULL_REQUEST_ID)).isNotNull();
+
+        configChanged.fire(new RepositoryConfigChangedEvent(TEST_REPO));
+        assertThat(getDecision(PULL_REQUEST_ID)).isNull();
+    }
+
+    @Test
+    public void shouldCheckReviewsBeforeChecksTest() {
+        stubFor(WireMock.get(urlEqualTo("/repos/" + TEST_REPO + "/branches/master/protection"))
+            .willReturn(ok().withBodyFile("merge/checks/requiredChecks-checkruns.json")));
+        stubFor(WireMock.get(urlPathMatching("/repos/" + TEST_REPO + "/pulls/\\d+/reviews"))
+            .willReturn(ok().withBody("[]")));
+        GHPullRequest pr = loadPullRequest(PULL_REQUEST_ID);
+        mergeHandler.merge(new BusMessage(client, pr));
+
+        assertThat(wasMerged(pr)).isFalse();
+        WireMock.verify(0, WireMock.getRequestedFor(urlPathMatching("/repos/" + TEST_REPO + "/(branches/master/protection|commits/.*|statuses/.*)")));
+
+        JSONObject decision = getDecision(PULL_REQUEST_ID);
+        assertThat(decision.getString("outcome")).isEqualTo("BLOCKED");
+        List<String> rules = decision.getJSONArray("steps").toList().stream().map(step -> ((Map<?, ?>) step).get("rule").toString())
+            .collect(Collectors.toList());
+        assertThat(rules).containsExactly("not-merged", "not-draft", "not-work-in-progress", "mergeable", "reviews");
+        JSONObject last = decision.getJSONArray("steps").getJSONObject(4);
+        assertThat(last.getString("result")).isEqualTo("BLOCK");
+        assertThat(last.getString("reason")).isEqualTo("no reviews");
+    }
+
+    @Test
+    public void shouldServeMergeDecisionTest() {
+        GHPullRequest pr = loadPullRequest(PULL_REQUEST_ID);
+        assertThat(getDecision(PULL_REQUEST_ID)).isNull();
+        mergeHandler.merge(new BusMessage(client, pr));
+
+        JSONObject decision = getDecision(PULL_REQUEST_ID);
+        assertThat(decision.getString("repository")).isEqualTo(TEST_REPO);
+        assertThat(decision.getString("outcome")).isEqualTo("MERGED");
+        assertThat(decision.getJSONArray("steps").length()).isEqualTo(6);
+    }
+
+    @Test
+    public void shouldFallBackToRestWhenGraphQLFailsTest() {
+        stubFor(WireMock.post(urlEqualTo("/graphql"))
+            .willReturn(ok().withBody("{\"data\": null, \"errors\": [{\"message\": \"Resource not accessible by integration\"}]}")));
+        GHPullRequest pr = loadPullRequest(PULL_REQUEST_ID);
+        mergeHandler.merge(new BusMessage(client, pr));
+
+        assertThat(wasMerged(pr)).isTrue();
+        WireMock.verify(1, WireMock.getRequestedFor(urlPathMatching("/repos/" + TEST_REPO + "/pulls/" + PULL_REQUEST_ID + "/reviews")));
+    }
+
+    private JSONObject getDecision(int id) {
+        try {
+            HttpURLConnection con = (HttpURLConnection) new URL(url, TEST_REPO + "/" + id + "/merge-decision").openConnection();
+            if (con.getResponseCode() == 404) {
+                return null;
+            }
+            try (InputStream is = con.getInputStream()) {
+                return new JSONObject(new String(is.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        } catch (IOException e) {
+            fail("Unable to send HTTP request", e);
+        }
+        return null;
+    }
+
     private boolean wasMerged(GHPullRequest pr) {
         return !getRequests(WireMock.putRequestedFor(urlMatching("/repos/" + TEST_REPO + "/pulls/" + pr.getNumber() + "/merge"))).isEmpty();
     }
@@ -0,0 +1,228 @@
+package com.github.avano.pr.workflow;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.ok;
+import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlMatching;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.kohsuke.github.GHPullRequest;
+
+import com.github.avano.pr.workflow.config.Configuration;
+import com.github.avano.pr.workflow.config.Constants;
+import com.github.avano.pr.workflow.config.RepositoryConfigChangedEvent;
+import com.github.avano.pr.workflow.handler.MergeHandler;
+import com.github.avano.pr.workflow.handler.MergeQueue;
+import com.github.avano.pr.workflow.message.BusMessage;
+import com.github.tomakehurst.wiremock.client.WireMock;
+
+import javax.enterprise.event.Event;
+import javax.inject.Inject;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.test.common.http.TestHTTPResource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+
+/**
+ * Merges the pull requests through the merge queue, with the speculative mode enabled.
+ */
+@QuarkusTest
+@TestProfile(MergeQueueTest.SpeculativeProfile.class)
+public class MergeQueueTest extends TestParent {
+    private static final int HEAD_PR_ID = 1338;
+    private static final String HEAD_SHA = "qwerty";
+
+    @TestHTTPResource("/merge-queue")
+    private URL url;
+
+    @Inject
+    MergeHandler mergeHandler;
+
+    @Inject
+    Configuration configuration;
+
+    @Inject
+    Event<RepositoryConfigChangedEvent> configChanged;
+
+    @Inject
+    MeterRegistry registry;
+
+    public static class SpeculativeProfile implements QuarkusTestProfile {
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            return Map.of("prw.merge-queue.speculative", "true");
+        }
+    }
+
+    @Override
+    @BeforeEach
+    public void setup() {
+        super.setup();
+        stubFor(WireMock.get(urlEqualTo("/repos/" + TEST_REPO + "/pulls?state=open"))
+            .willReturn(ok().withBody("[]")));
+    }
+
+    private void stubCompare(String base, int behindBy) {
+        stubFor(WireMock.get(urlEqualTo("/repos/" + TEST_REPO + "/compare/" + base + "..." + "asdfgh"))
+            .willReturn(ok().withBody(new JSONObject().put("status", behindBy == 0 ? "ahead" : "diverged").put("ahead_by", 1)
+                .put("behind_by", behindBy).put("total_commits", 1).put("commits", new JSONArray())
+                .put("base_commit", new JSONObject().put("sha", base)).put("merge_base_commit", new JSONObject().put("sha", base)).toString())));
+    }
+
+    /**
+     * Puts another PR at the head of the queue, so that the tested PR has to wait behind it.
+     */
+    private void occupyQueue() {
+        assertThat(mergeQueue.offer(client, loadPullRequest(HEAD_PR_ID), "master", HEAD_SHA)).isEqualTo(MergeQueue.Admission.MERGE);
+    }
+
+    /**
+     * Completes the merge of the head of the queue and handles the merge of the next PR, that is only recorded by the test bus.
+     */
+    private void completeHead() {
+        mergeQueue.complete(client, HEAD_PR_ID, "master", true);
+        waitForInvocationsAndAssert(Constants.PR_MERGE, 1);
+        BusMessage next = (BusMessage) getInvocations(Constants.PR_MERGE).get(0).getMessage();
+        assertThat(next.get(GHPullRequest.class).getNumber()).isEqualTo(PULL_REQUEST_ID);
+        mergeHandler.merge(next);
+    }
+
+    private boolean wasMerged(int id) {
+        return !getRequests(WireMock.putRequestedFor(urlMatching("/repos/" + TEST_REPO + "/pulls/" + id + "/merge"))).isEmpty();
+    }
+
+    private JSONArray getQueues() {
+        try {
+            HttpURLConnection con = (HttpURLConnection) url.openConnection();
+            assertThat(con.getResponseCode()).isEqualTo(200);
+            try (InputStream is = con.getInputStream()) {
+                return new JSONArray(new String(is.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        } catch (IOException e) {
+            fail("Unable to send HTTP request", e);
+        }
+        return null;
+    }
+
+    @Test
+    public void shouldWaitForHeadOfQueueTest() {
+        occupyQueue();
+        GHPullRequest pr = loadPullRequest(PULL_REQUEST_ID);
+        mergeHandler.merge(new BusMessage(client, pr));
+
+        assertThat(wasMerged(PULL_REQUEST_ID)).isFalse();
+        JSONObject queue = getQueues().getJSONObject(0);
+        assertThat(queue.getString("repository")).isEqualTo(TEST_REPO);
+        assertThat(queue.getString("branch")).isEqualTo("master");
+        JSONArray prs = queue.getJSONArray("pullRequests");
+        assertThat(prs.length()).isEqualTo(2);
+        assertThat(prs.getJSONObject(0).getInt("number")).isEqualTo(HEAD_PR_ID);
+        assertThat(prs.getJSONObject(0).getBoolean("merging")).isTrue();
+        assertThat(prs.getJSONObject(1).getInt("number")).isEqualTo(PULL_REQUEST_ID);
+        assertThat(prs.getJSONObject(1).getInt("position")).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldMergeNextWhenContainingMergedHeadTest() {
+        stubCompare(HEAD_SHA, 0);
+        occupyQueue();
+        mergeHandler.merge(new BusMessage(client, loadPullRequest(PULL_REQUEST_ID)));
+        completeHead();
+
+        assertThat(wasMerged(PULL_REQUEST_ID)).isTrue();
+        // Only the merged head is compared
+        WireMock.verify(0, WireMock.getRequestedFor(urlEqualTo("/repos/" + TEST_REPO + "/compare/master...asdfgh")));
+        assertThat(getQueues().getJSONObject(0).getJSONArray("pullRequests").length()).isEqualTo(0);
+        assertThat(getQueues().getJSONObject(0).getInt("mergesLastHour")).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldMergeNextWhenUpToDateTest() {
+        stubCompare(HEAD_SHA, 1);
+        stubCompare("master", 0);
+        occupyQueue();
+        mergeHandler.merge(new BusMessage(client, loadPullRequest(PULL_REQUEST_ID)));
+        completeHead();
+
+        assertThat(wasMerged(PULL_REQUEST_ID)).isTrue();
+    }
+
+    @Test
+    public void shouldNotMergeOutdatedTest() {
+        stubCompare(HEAD_SHA, 1);
+        stubCompare("master", 2);
+        occupyQueue();
+        mergeHandler.merge(new BusMessage(client, loadPullRequest(PULL_REQUEST_ID)));
+        completeHead();
+
+        assertThat(getQueues().getJSONObject(0).getJSONArray("pullRequests").length()).isEqualTo(0);
+        assertThat(wasMerged(PULL_REQUEST_ID)).isFalse();
+        assertThat(getQueues().getJSONObject(0).getInt("mergesLastHour")).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldNotMergeOutdatedOfferedAfterMergeTest() {
+        stubCompare(HEAD_SHA, 1);
+        stubCompare("master", 1);
+        occupyQueue();
+        mergeQueue.complete(client, HEAD_PR_ID, "master", true);
+        // The checks of the PR might have passed before the merge, even when it is offered only after it
+        mergeHandler.merge(new BusMessage(client, loadPullRequest(PULL_REQUEST_ID)));
+
+        assertThat(wasMerged(PULL_REQUEST_ID)).isFalse();
+        WireMock.verify(1, WireMock.getRequestedFor(urlEqualTo("/repos/" + TEST_REPO + "/compare/master...asdfgh")));
+    }
+
+    @Test
+    public void shouldNotMergeOutdatedAfterMergeOutsideQueueTest() {
+        stubCompare(HEAD_SHA, 1);
+        stubCompare("master", 1);
+        mergeQueue.merged(TEST_REPO, "master", HEAD_SHA);
+        mergeHandler.merge(new BusMessage(client, loadPullRequest(PULL_REQUEST_ID)));
+
+        assertThat(wasMerged(PULL_REQUEST_ID)).isFalse();
+    }
+
+    @Test
+    public void shouldUseNewClientAfterConfigChangeTest() {
+        configuration.addRepositoryConfigFile("test", client.getRepositoryConfiguration());
+        try {
+            occupyQueue();
+            mergeHandler.merge(new BusMessage(client, loadPullRequest(PULL_REQUEST_ID)));
+            configChanged.fire(new RepositoryConfigChangedEvent(TEST_REPO));
+            mergeQueue.complete(client, HEAD_PR_ID, "master", true);
+
+            waitForInvocationsAndAssert(Constants.PR_MERGE, 1);
+            BusMessage next = (BusMessage) getInvocations(Constants.PR_MERGE).get(0).getMessage();
+            assertThat(next.get(GHPullRequest.class).getNumber()).isEqualTo(PULL_REQUEST_ID);
+            assertThat(next.client()).isNotSameAs(client);
+        } finally {
+            configuration.deleteRepositoryConfigFile("test");
+        }
+    }
+
+    @Test
+    public void shouldDropQueuesOfRemovedRepositoryTest() {
+        occupyQueue();
+        configChanged.fire(new RepositoryConfigChangedEvent(TEST_REPO));
+
+        assertThat(getQueues().length()).isZero();
+        assertThat(registry.find("prw.merge.queue.size").tag("repository", TEST_REPO).gauge()).isNull();
+    }
+}
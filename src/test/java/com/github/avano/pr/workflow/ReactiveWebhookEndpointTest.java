@@ -0,0 +1,25 @@
+package com.github.avano.pr.workflow;
+
+import javax.enterprise.inject.Typed;
+
+import java.util.Map;
+
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+
+/**
+ * Runs all the webhook endpoint tests against the reactive webhook route.
+ */
+@QuarkusTest
+@TestProfile(ReactiveWebhookEndpointTest.ReactiveProfile.class)
+// Test classes are beans, so don't let this one also be resolved as the parent test
+@Typed(ReactiveWebhookEndpointTest.class)
+public class ReactiveWebhookEndpointTest extends WebhookEndpointTest {
+    public static class ReactiveProfile implements QuarkusTestProfile {
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            return Map.of("prw.webhook-endpoint", "reactive");
+        }
+    }
+}
@@ -19,6 +19,17 @@ import org.junit.jupiter.api.BeforeEach;
 import org.kohsuke.github.GHPullRequest;
 import org.kohsuke.github.GHUser;
 
+import com.github.avano.pr.workflow.gh.ApiCallScheduler;
+import com.github.avano.pr.workflow.gh.CachingGitHubConnector;
+import com.github.avano.pr.workflow.gh.GHClient;
+import com.github.avano.pr.workflow.gh.PullRequestIndex;
+import com.github.avano.pr.workflow.gh.RepositoryCache;
+import com.github.avano.pr.workflow.gh.RequiredChecksCache;
+import com.github.avano.pr.workflow.gh.ReviewLedger;
+import com.github.avano.pr.workflow.handler.MergeDecisions;
+import com.github.avano.pr.workflow.handler.MergeQueue;
+import com.github.avano.pr.workflow.handler.MergeRecheckScheduler;
+import com.github.avano.pr.workflow.handler.ReconciliationSweeper;
 import com.github.avano.pr.workflow.message.BusMessage;
 import com.github.avano.pr.workflow.mock.GHClientMock;
 import com.github.avano.pr.workflow.util.Invocation;
@@ -52,7 +63,37 @@ public class TestParent {
     public static final String PR_PATCH_URL = "/repos/" + TEST_REPO + "/issues/\\d+";
     public static final RequestPatternBuilder PR_PATCH = WireMock.patchRequestedFor(urlPathMatching(PR_PATCH_URL));
 
-    protected GHClientMock client;
+    protected GHClient client;
+
+    @Inject
+    RepositoryCache repositories;
+
+    @Inject
+    CachingGitHubConnector connector;
+
+    @Inject
+    ApiCallScheduler apiCallScheduler;
+
+    @Inject
+    PullRequestIndex pullRequestIndex;
+
+    @Inject
+    ReviewLedger reviewLedger;
+
+    @Inject
+    RequiredChecksCache requiredChecksCache;
+
+    @Inject
+    MergeQueue mergeQueue;
+
+    @Inject
+    MergeRecheckScheduler mergeRechecks;
+
+    @Inject
+    MergeDecisions mergeDecisions;
+
+    @Inject
+    ReconciliationSweeper reconciliationSweeper;
 
     @Inject
     EventBus bus;
@@ -81,8 +122,15 @@ public class TestParent {
 
     @BeforeEach
     public void setup() {
-        client = new GHClientMock();
-        client.init(TEST_REPO);
+        client = new GHClientMock(TEST_REPO, repositories, connector, apiCallScheduler);
+        // Each test seeds the index, the reviews and the required checks from its own stubs
+        pullRequestIndex.invalidate(TEST_REPO);
+        reviewLedger.invalidate(TEST_REPO);
+        requiredChecksCache.invalidate(TEST_REPO);
+        mergeQueue.invalidate(TEST_REPO);
+        mergeRechecks.invalidate(TEST_REPO);
+        mergeDecisions.invalidate(TEST_REPO);
+        reconciliationSweeper.invalidate(TEST_REPO);
         bus.addInboundInterceptor(testInterceptor);
 
         // Repository object Json
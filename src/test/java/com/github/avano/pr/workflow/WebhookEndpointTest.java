@@ -9,24 +9,24 @@ import org.junit.jupiter.api.Test;
 import com.github.avano.pr.workflow.config.Configuration;
 import com.github.avano.pr.workflow.config.Constants;
 import com.github.avano.pr.workflow.config.RepositoryConfig;
+import com.github.avano.pr.workflow.message.WebhookMessage;
 import com.github.avano.pr.workflow.util.IOUtils;
 import com.github.avano.pr.workflow.util.Signature;
 
 import javax.inject.Inject;
-import javax.json.Json;
 
 import java.io.IOException;
-import java.io.StringReader;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import io.quarkus.test.common.http.TestHTTPResource;
 import io.quarkus.test.junit.QuarkusTest;
-import io.vertx.core.json.JsonObject;
 
 @QuarkusTest
 public class WebhookEndpointTest extends TestParent {
@@ -39,6 +39,9 @@ public class WebhookEndpointTest extends TestParent {
     @Inject
     Configuration configuration;
 
+    @Inject
+    MeterRegistry registry;
+
     @BeforeEach
     public void setup() {
         super.setup();
@@ -57,13 +60,12 @@ public class WebhookEndpointTest extends TestParent {
             con.setRequestMethod("POST");
             con.setRequestProperty("Content-Type", "application/json");
             con.setRequestProperty("X-GitHub-Event", header);
-            con.setRequestProperty("x-hub-signature", signature.compute("testsecret",
-                Json.createReader(new StringReader(content)).readObject().toString().getBytes(StandardCharsets.UTF_8)));
+            con.setRequestProperty("x-hub-signature", signature.compute("testsecret", content.getBytes(StandardCharsets.UTF_8)));
             if (headersOverride != null) {
                 headersOverride.forEach(con::setRequestProperty);
             }
             con.setDoOutput(true);
-            con.setRequestProperty("Content-Length", Integer.toString(content.length()));
+            con.setRequestProperty("Content-Length", Integer.toString(content.getBytes(StandardCharsets.UTF_8).length));
             con.getOutputStream().write(content.getBytes(StandardCharsets.UTF_8));
             assertThat(con.getResponseCode()).isEqualTo(204);
         } catch (IOException e) {
@@ -81,16 +83,83 @@ public class WebhookEndpointTest extends TestParent {
         waitForInvocations(2);
         assertThat(busInvocations).hasSize(1);
         assertThat(lastDestination()).isEqualTo(Constants.CHECKRUN_EVENT);
-        assertThat(busInvocations.get(0).getMessageAs(JsonObject.class)).isEqualTo(new JsonObject(readFile("checkRunCompleted.json")));
+        assertThat(busInvocations.get(0).getMessageAs(WebhookMessage.class).getPayload())
+            .isEqualTo(readFile("checkRunCompleted.json").getBytes(StandardCharsets.UTF_8));
     }
 
     @Test
     public void shouldForwardPullRequestEventTest() {
-        sendRequest("pull_request", readFile("prOpened.json"));
+        sendRequest("pull_request", readFile("prUnlabeled.json"));
         waitForInvocations(2);
         assertThat(busInvocations).hasSize(1);
         assertThat(lastDestination()).isEqualTo(Constants.PULL_REQUEST_EVENT);
-        assertThat(busInvocations.get(0).getMessageAs(JsonObject.class)).isEqualTo(new JsonObject(readFile("prOpened.json")));
+        assertThat(busInvocations.get(0).getMessageAs(WebhookMessage.class).getPayload())
+            .isEqualTo(readFile("prUnlabeled.json").getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void shouldDropUnhandledActionTest() {
+        final double dropped = deliveries("pull_request", "edited", "dropped");
+        sendRequest("pull_request", readFile("prEdited.json"));
+        waitForInvocations(1);
+        assertThat(busInvocations).isEmpty();
+        assertThat(deliveries("pull_request", "edited", "dropped")).isEqualTo(dropped + 1);
+    }
+
+    @Test
+    public void shouldDropUnhandledEventTest() {
+        sendRequest("issues", readFile("prOpened.json"));
+        waitForInvocations(1);
+        assertThat(busInvocations).isEmpty();
+    }
+
+    @Test
+    public void shouldCountRoutedDeliveriesTest() {
+        final double routed = deliveries("check_run", "completed", "routed");
+        sendRequest("check_run", readFile("checkRunCompleted.json"));
+        waitForInvocations(2);
+        assertThat(deliveries("check_run", "completed", "routed")).isEqualTo(routed + 1);
+    }
+
+    @Test
+    public void shouldDropRedeliveredEventTest() {
+        final double hits = registry.counter("prw.dedup.lookups", "result", "hit").count();
+        final String deliveryId = UUID.randomUUID().toString();
+        sendRequest("status", readFile("statusEvent.json"), Map.of("X-GitHub-Delivery", deliveryId));
+        waitForInvocations(2);
+        assertThat(busInvocations).hasSize(1);
+
+        sendRequest("status", readFile("statusEvent.json"), Map.of("X-GitHub-Delivery", deliveryId));
+        waitForInvocations(2);
+        assertThat(busInvocations).hasSize(1);
+        assertThat(registry.counter("prw.dedup.lookups", "result", "hit").count()).isEqualTo(hits + 1);
+    }
+
+    @Test
+    public void shouldProcessDifferentDeliveriesTest() {
+        sendRequest("status", readFile("statusEvent.json"), Map.of("X-GitHub-Delivery", UUID.randomUUID().toString()));
+        sendRequest("status", readFile("statusEvent.json"), Map.of("X-GitHub-Delivery", UUID.randomUUID().toString()));
+        waitForInvocations(2);
+        assertThat(busInvocations).hasSize(2);
+    }
+
+    @Test
+    public void shouldNotRememberRejectedDeliveryTest() {
+        final String deliveryId = UUID.randomUUID().toString();
+        Map<String, String> headers = new HashMap<>();
+        headers.put("X-GitHub-Delivery", deliveryId);
+        headers.put("x-hub-signature", "sha1=asdf");
+        sendRequest("status", readFile("statusEvent.json"), headers);
+        assertThat(lastDestination()).isNull();
+
+        // Redelivery with a valid signature should be processed
+        sendRequest("status", readFile("statusEvent.json"), Map.of("X-GitHub-Delivery", deliveryId));
+        waitForInvocations(2);
+        assertThat(busInvocations).hasSize(1);
+    }
+
+    private double deliveries(String event, String action, String result) {
+        return registry.counter("prw.webhook.deliveries", "event", event, "action", action, "result", result).count();
     }
 
     @Test
@@ -99,7 +168,8 @@ public class WebhookEndpointTest extends TestParent {
         waitForInvocations(2);
         assertThat(busInvocations).hasSize(1);
         assertThat(lastDestination()).isEqualTo(Constants.REVIEW_EVENT);
-        assertThat(busInvocations.get(0).getMessageAs(JsonObject.class)).isEqualTo(new JsonObject(readFile("reviewSubmitted.json")));
+        assertThat(busInvocations.get(0).getMessageAs(WebhookMessage.class).getPayload())
+            .isEqualTo(readFile("reviewSubmitted.json").getBytes(StandardCharsets.UTF_8));
     }
 
     @Test
@@ -108,7 +178,8 @@ public class WebhookEndpointTest extends TestParent {
         waitForInvocations(2);
         assertThat(busInvocations).hasSize(1);
         assertThat(lastDestination()).isEqualTo(Constants.STATUS_EVENT);
-        assertThat(busInvocations.get(0).getMessageAs(JsonObject.class)).isEqualTo(new JsonObject(readFile("statusEvent.json")));
+        assertThat(busInvocations.get(0).getMessageAs(WebhookMessage.class).getPayload())
+            .isEqualTo(readFile("statusEvent.json").getBytes(StandardCharsets.UTF_8));
     }
 
     @Test
@@ -119,10 +190,40 @@ public class WebhookEndpointTest extends TestParent {
         assertThat(lastDestination()).isNull();
     }
 
+    @Test
+    public void shouldAcceptSha256SignatureTest() {
+        final String content = readFile("statusEvent.json");
+        Map<String, String> headers = new HashMap<>();
+        headers.put("X-Hub-Signature-256", signature.computeSha256("testsecret", content.getBytes(StandardCharsets.UTF_8)));
+        sendRequest("status", content, headers);
+        waitForInvocations(2);
+        assertThat(busInvocations).hasSize(1);
+        assertThat(lastDestination()).isEqualTo(Constants.STATUS_EVENT);
+    }
+
+    @Test
+    public void shouldPreferSha256SignatureTest() {
+        Map<String, String> headers = new HashMap<>();
+        headers.put("X-Hub-Signature-256", "sha256=asdf");
+        // SHA-1 signature is valid, but it should not be used when the SHA-256 one is present
+        sendRequest("status", readFile("statusEvent.json"), headers);
+        assertThat(lastDestination()).isNull();
+    }
+
     @Test
     public void shouldIgnoreUnconfiguredRepositoryTest() {
         sendRequest("check_run", readFile("checkRunCompleted.json").replaceAll("test/repo", "test/unconfigured"));
         waitForInvocations(1);
         assertThat(busInvocations).isEmpty();
     }
+
+    @Test
+    public void shouldVerifySignatureOverOriginalBodyTest() {
+        // Whitespace is preserved, so the signature must be computed over the body as it was sent
+        final String content = readFile("statusEvent.json").replace("{", "{  ");
+        sendRequest("status", content);
+        waitForInvocations(2);
+        assertThat(busInvocations).hasSize(1);
+        assertThat(busInvocations.get(0).getMessageAs(WebhookMessage.class).getRepository()).isEqualTo(TEST_REPO);
+    }
 }
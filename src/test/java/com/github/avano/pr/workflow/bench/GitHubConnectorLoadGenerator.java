@@ -0,0 +1,322 @@
+package com.github.avano.pr.workflow.bench;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.ok;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathMatching;
+
+import org.kohsuke.github.GHRepository;
+import org.kohsuke.github.GitHub;
+import org.kohsuke.github.GitHubBuilder;
+import org.kohsuke.github.HttpConnector;
+import org.kohsuke.github.connector.GitHubConnector;
+
+import com.github.avano.pr.workflow.config.Configuration;
+import com.github.avano.pr.workflow.gh.PooledGitHubConnector;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.KeyManager;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLContextSpi;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLServerSocketFactory;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509TrustManager;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.security.KeyManagementException;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compares the GitHub connectors under concurrent handler load, with WireMock over TLS standing in for the GitHub API.
+ * <p>
+ * Each of the <code>concurrency</code> workers fetches a pull request in a closed loop for <code>duration</code> seconds, the same way the
+ * handlers do. The report shows the latency per call and the number of new TLS connections, each of them needing a TLS handshake. The
+ * compared connectors are:
+ * <ul>
+ *     <li>urlconnection - the <code>HttpURLConnection</code> based connector</li>
+ *     <li>default - the default connector of the GitHub API library, the JDK HTTP client without any configuration</li>
+ *     <li>pooled - the {@link PooledGitHubConnector} used by the application</li>
+ * </ul>
+ * Configured by the system properties:
+ * <ul>
+ *     <li>connectors - comma separated connectors to compare, defaults to urlconnection,default,pooled</li>
+ *     <li>http2 - whether the pooled connector uses HTTP/2, defaults to true</li>
+ *     <li>concurrency - number of concurrent calls, defaults to 64</li>
+ *     <li>warmup - warmup duration in seconds, defaults to 5</li>
+ *     <li>duration - measurement duration in seconds, defaults to 20</li>
+ * </ul>
+ */
+public class GitHubConnectorLoadGenerator {
+    private static final int MAX_SAMPLES = 10_000_000;
+    private static final AtomicLong TLS_CONNECTIONS = new AtomicLong();
+
+    private final int concurrency = Integer.getInteger("concurrency", 64);
+    private final long[] latencies = new long[MAX_SAMPLES];
+    private final AtomicLong samples = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+
+    public static void main(String[] args) throws Exception {
+        installCountingSslContext();
+        final WireMockServer server = new WireMockServer(WireMockConfiguration.options().dynamicPort().dynamicHttpsPort()
+            .usingFilesUnderDirectory("src/test/resources").containerThreads(Math.max(64, Integer.getInteger("concurrency", 64) * 2)));
+        server.start();
+        server.stubFor(get(urlPathMatching("/repos/test/repo")).willReturn(ok().withBodyFile("repository/repo.json")));
+        server.stubFor(get(urlPathMatching("/repos/test/repo/pulls/1337")).willReturn(ok().withBodyFile("pullrequests/1337.json")));
+        final String endpoint = "https://localhost:" + server.httpsPort();
+        try {
+            for (String connector : System.getProperty("connectors", "urlconnection,default,pooled").split(",")) {
+                final GitHubConnectorLoadGenerator generator = new GitHubConnectorLoadGenerator();
+                final GHRepository repository = repository(endpoint, connector.trim());
+                System.out.printf("Warming up %s connector with %d concurrent calls%n", connector, generator.concurrency);
+                generator.run(repository, Integer.getInteger("warmup", 5), false);
+                System.out.println("Measuring");
+                generator.run(repository, Integer.getInteger("duration", 20), true);
+            }
+        } finally {
+            server.stop();
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private static GHRepository repository(String endpoint, String connector) throws IOException {
+        final GitHubBuilder builder = new GitHubBuilder().withEndpoint(endpoint);
+        switch (connector) {
+            case "urlconnection":
+                // HttpConnector.DEFAULT is replaced by the default connector, so it needs to be a different instance
+                builder.withConnector((HttpConnector) url -> (HttpURLConnection) url.openConnection());
+                break;
+            case "default":
+                builder.withConnector(GitHubConnector.DEFAULT);
+                break;
+            case "pooled":
+                final PooledGitHubConnector pooled = new PooledGitHubConnector();
+                pooled.configure(new HttpConfig());
+                builder.withConnector(pooled);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown connector " + connector);
+        }
+        final GitHub gitHub = builder.build();
+        return gitHub.getRepository("test/repo");
+    }
+
+    private void run(GHRepository repository, int seconds, boolean record) throws InterruptedException {
+        samples.set(0);
+        errors.set(0);
+        final long connections = TLS_CONNECTIONS.get();
+        final long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        final ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            workers.submit(() -> {
+                while (System.nanoTime() < end) {
+                    call(repository, record);
+                }
+            });
+        }
+        workers.shutdown();
+        workers.awaitTermination(seconds + 60L, TimeUnit.SECONDS);
+        if (record) {
+            report(seconds, TLS_CONNECTIONS.get() - connections);
+        }
+    }
+
+    private void call(GHRepository repository, boolean record) {
+        final long start = System.nanoTime();
+        try {
+            repository.getPullRequest(1337);
+        } catch (IOException e) {
+            errors.incrementAndGet();
+        }
+        final long sample = samples.getAndIncrement();
+        if (record && sample < MAX_SAMPLES) {
+            latencies[(int) sample] = System.nanoTime() - start;
+        }
+    }
+
+    private void report(int seconds, long connections) {
+        final int count = (int) Math.min(samples.get(), MAX_SAMPLES);
+        final long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        System.out.printf("Calls: %d, errors: %d, throughput: %.1f/s%n", samples.get(), errors.get(), samples.get() / (double) seconds);
+        System.out.printf("Latency ms - p50: %.2f, p90: %.2f, p99: %.2f, p99.9: %.2f, max: %.2f%n", percentile(sorted, 0.5),
+            percentile(sorted, 0.9), percentile(sorted, 0.99), percentile(sorted, 0.999), percentile(sorted, 1));
+        System.out.printf("TLS handshakes: %d, avoided: %d%n", connections, Math.max(0, samples.get() - connections));
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1)] / 1_000_000.0;
+    }
+
+    /**
+     * Makes the default SSL context trust the self-signed WireMock certificate and count the new TLS connections of both the
+     * <code>HttpURLConnection</code> and the JDK HTTP client.
+     */
+    private static void installCountingSslContext() throws NoSuchAlgorithmException, KeyManagementException {
+        final SSLContext delegate = SSLContext.getInstance("TLS");
+        delegate.init(null, new TrustManager[] {new TrustAllManager()}, new SecureRandom());
+        final SSLContext counting = new SSLContext(new CountingSslContextSpi(delegate), delegate.getProvider(), delegate.getProtocol()) {
+        };
+        SSLContext.setDefault(counting);
+        HttpsURLConnection.setDefaultSSLSocketFactory(counting.getSocketFactory());
+        HttpsURLConnection.setDefaultHostnameVerifier((host, session) -> true);
+        System.setProperty("jdk.internal.httpclient.disableHostnameVerification", "true");
+    }
+
+    private static final class HttpConfig implements Configuration.GitHubHttpConfig {
+        @Override
+        public boolean http2() {
+            return Boolean.parseBoolean(System.getProperty("http2", "true"));
+        }
+
+        @Override
+        public Duration connectTimeout() {
+            return Duration.ofSeconds(10);
+        }
+
+        @Override
+        public Duration requestTimeout() {
+            return Duration.ofSeconds(60);
+        }
+
+        @Override
+        public Duration keepAlive() {
+            return Duration.ofMinutes(5);
+        }
+
+        @Override
+        public int maxConnections() {
+            return 0;
+        }
+    }
+
+    private static final class TrustAllManager implements X509TrustManager {
+        @Override
+        public void checkClientTrusted(X509Certificate[] chain, String authType) {
+        }
+
+        @Override
+        public void checkServerTrusted(X509Certificate[] chain, String authType) {
+        }
+
+        @Override
+        public X509Certificate[] getAcceptedIssuers() {
+            return new X509Certificate[0];
+        }
+    }
+
+    private static final class CountingSslContextSpi extends SSLContextSpi {
+        private final SSLContext delegate;
+
+        private CountingSslContextSpi(SSLContext delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        protected void engineInit(KeyManager[] km, TrustManager[] tm, SecureRandom sr) {
+        }
+
+        @Override
+        protected SSLSocketFactory engineGetSocketFactory() {
+            return new CountingSocketFactory(delegate.getSocketFactory());
+        }
+
+        @Override
+        protected SSLServerSocketFactory engineGetServerSocketFactory() {
+            return delegate.getServerSocketFactory();
+        }
+
+        @Override
+        protected SSLEngine engineCreateSSLEngine() {
+            TLS_CONNECTIONS.incrementAndGet();
+            return delegate.createSSLEngine();
+        }
+
+        @Override
+        protected SSLEngine engineCreateSSLEngine(String host, int port) {
+            TLS_CONNECTIONS.incrementAndGet();
+            return delegate.createSSLEngine(host, port);
+        }
+
+        @Override
+        protected SSLSessionContext engineGetServerSessionContext() {
+            return delegate.getServerSessionContext();
+        }
+
+        @Override
+        protected SSLSessionContext engineGetClientSessionContext() {
+            return delegate.getClientSessionContext();
+        }
+    }
+
+    private static final class CountingSocketFactory extends SSLSocketFactory {
+        private final SSLSocketFactory delegate;
+
+        private CountingSocketFactory(SSLSocketFactory delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public String[] getDefaultCipherSuites() {
+            return delegate.getDefaultCipherSuites();
+        }
+
+        @Override
+        public String[] getSupportedCipherSuites() {
+            return delegate.getSupportedCipherSuites();
+        }
+
+        @Override
+        public Socket createSocket(Socket s, String host, int port, boolean autoClose) throws IOException {
+            TLS_CONNECTIONS.incrementAndGet();
+            return delegate.createSocket(s, host, port, autoClose);
+        }
+
+        @Override
+        public Socket createSocket() throws IOException {
+            TLS_CONNECTIONS.incrementAndGet();
+            return delegate.createSocket();
+        }
+
+        @Override
+        public Socket createSocket(String host, int port) throws IOException {
+            TLS_CONNECTIONS.incrementAndGet();
+            return delegate.createSocket(host, port);
+        }
+
+        @Override
+        public Socket createSocket(String host, int port, InetAddress localHost, int localPort) throws IOException {
+            TLS_CONNECTIONS.incrementAndGet();
+            return delegate.createSocket(host, port, localHost, localPort);
+        }
+
+        @Override
+        public Socket createSocket(InetAddress host, int port) throws IOException {
+            TLS_CONNECTIONS.incrementAndGet();
+            return delegate.createSocket(host, port);
+        }
+
+        @Override
+        public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort) throws IOException {
+            TLS_CONNECTIONS.incrementAndGet();
+            return delegate.createSocket(address, port, localAddress, localPort);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.github.avano.pr.workflow.bench;
+
+import org.apache.commons.codec.binary.Hex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.avano.pr.workflow.util.IOUtils;
+import com.github.avano.pr.workflow.util.Signature;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the previous signature verification (new {@link Mac} for every request, hex-encoded comparison) with the pooled verifiers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class SignatureBenchmark {
+    private static final String SECRET = "benchmark-secret";
+
+    private final Signature signature = new Signature();
+    private byte[] body;
+    private String sha1Signature;
+    private String sha256Signature;
+
+    @Setup
+    public void setup() {
+        body = IOUtils.readFile(Paths.get("src", "test", "resources", "__files", "endpoint", "prSynchronized.json"))
+            .getBytes(StandardCharsets.UTF_8);
+        sha1Signature = signature.compute(SECRET, body);
+        sha256Signature = signature.computeSha256(SECRET, body);
+    }
+
+    @Benchmark
+    public boolean newMacPerRequest() throws GeneralSecurityException {
+        Mac mac = Mac.getInstance("HmacSHA1");
+        mac.init(new SecretKeySpec(SECRET.getBytes(), "HmacSHA1"));
+        return sha1Signature.equals("sha1=" + new String(Hex.encodeHex(mac.doFinal(body))));
+    }
+
+    @Benchmark
+    public boolean pooledSha1() {
+        return signature.isValid(SECRET, null, sha1Signature, body);
+    }
+
+    @Benchmark
+    public boolean pooledSha256() {
+        return signature.isValid(SECRET, sha256Signature, null, body);
+    }
+}
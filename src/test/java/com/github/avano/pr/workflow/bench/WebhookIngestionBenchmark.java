@@ -0,0 +1,81 @@
+package com.github.avano.pr.workflow.bench;
+
+import org.kohsuke.github.GHEventPayload;
+import org.kohsuke.github.GitHub;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.avano.pr.workflow.handler.json.PullRequest;
+import com.github.avano.pr.workflow.message.WebhookMessage;
+import com.github.avano.pr.workflow.util.IOUtils;
+import com.github.avano.pr.workflow.util.PayloadScanner;
+import com.github.avano.pr.workflow.util.Signature;
+
+import javax.json.Json;
+import javax.json.JsonObject;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the previous webhook ingestion path (JSON-P parse, two serializations for the signature and the bus message, third serialization for
+ * the GitHub payload parsing) with the raw bytes ingestion.
+ * <p>
+ * Run with {@code -prof gc} to see the allocation per delivery, see README for how to run the benchmarks.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WebhookIngestionBenchmark {
+    private static final String SECRET = "benchmark-secret";
+
+    private final Signature signature = new Signature();
+    private GitHub gitHub;
+    private byte[] body;
+    private String expectedSignature;
+
+    @Setup
+    public void setup() {
+        gitHub = GitHub.offline();
+        body = IOUtils.readFile(Paths.get("src", "test", "resources", "__files", "endpoint", "prSynchronized.json"))
+            .getBytes(StandardCharsets.UTF_8);
+        expectedSignature = signature.computeSha256(SECRET, body);
+    }
+
+    @Benchmark
+    public GHEventPayload.PullRequest jsonObjectIngestion() throws IOException {
+        JsonObject event = Json.createReader(new ByteArrayInputStream(body)).readObject();
+        event.getJsonObject("repository").getString("full_name");
+        // The signature was computed over the re-serialized json, so it's not expected to match the original one
+        signature.compute(SECRET, event.toString().getBytes(StandardCharsets.UTF_8));
+        io.vertx.core.json.JsonObject busMessage = new io.vertx.core.json.JsonObject(event.toString());
+        return gitHub.parseEventPayload(new StringReader(busMessage.toString()), PullRequest.Payload.class);
+    }
+
+    @Benchmark
+    public GHEventPayload.PullRequest rawBytesIngestion() throws IOException {
+        WebhookMessage message = PayloadScanner.scan(body);
+        if (!signature.isValid(SECRET, expectedSignature, null, body)) {
+            throw new IllegalStateException("Signature mismatch");
+        }
+        try (Reader reader = message.reader()) {
+            return gitHub.parseEventPayload(reader, PullRequest.Payload.class);
+        }
+    }
+}
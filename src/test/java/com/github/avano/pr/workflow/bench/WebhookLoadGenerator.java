@@ -0,0 +1,123 @@
+package com.github.avano.pr.workflow.bench;
+
+import com.github.avano.pr.workflow.util.Signature;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Load test of a running webhook endpoint, used to compare the blocking and the reactive endpoint (<code>prw.webhook-endpoint</code>).
+ * <p>
+ * Each of the <code>concurrency</code> workers sends the same payload with a unique delivery ID in a closed loop for <code>duration</code>
+ * seconds, so the throughput reached is the max sustained deliveries per second for the given concurrency. Configured by the system
+ * properties:
+ * <ul>
+ *     <li>url - webhook endpoint url, defaults to http://localhost:8080/webhook</li>
+ *     <li>secret - webhook secret of the repository in the payload, defaults to no secret</li>
+ *     <li>event - X-GitHub-Event header, defaults to status</li>
+ *     <li>payload - payload file, defaults to the status event used in the tests</li>
+ *     <li>concurrency - number of concurrent requests, defaults to 64</li>
+ *     <li>warmup - warmup duration in seconds, defaults to 10</li>
+ *     <li>duration - measurement duration in seconds, defaults to 30</li>
+ * </ul>
+ */
+public class WebhookLoadGenerator {
+    private static final int MAX_SAMPLES = 10_000_000;
+
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    private final URI url = URI.create(System.getProperty("url", "http://localhost:8080/webhook"));
+    private final String event = System.getProperty("event", "status");
+    private final int concurrency = Integer.getInteger("concurrency", 64);
+    private final byte[] payload;
+    private final String signature;
+
+    private final long[] latencies = new long[MAX_SAMPLES];
+    private final AtomicLong samples = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+
+    public WebhookLoadGenerator() throws IOException {
+        payload = Files.readAllBytes(Paths.get(System.getProperty("payload", "src/test/resources/__files/endpoint/statusEvent.json")));
+        final String secret = System.getProperty("secret");
+        signature = secret == null ? null : new Signature().computeSha256(secret, payload);
+    }
+
+    public static void main(String[] args) throws Exception {
+        WebhookLoadGenerator generator = new WebhookLoadGenerator();
+        System.out.printf("Warming up %s with %d concurrent deliveries%n", generator.url, generator.concurrency);
+        generator.run(Integer.getInteger("warmup", 10), false);
+        System.out.println("Measuring");
+        generator.run(Integer.getInteger("duration", 30), true);
+    }
+
+    private void run(int seconds, boolean record) throws InterruptedException {
+        samples.set(0);
+        errors.set(0);
+        final long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        final ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            workers.submit(() -> {
+                while (System.nanoTime() < end) {
+                    send(record);
+                }
+            });
+        }
+        workers.shutdown();
+        workers.awaitTermination(seconds + 60L, TimeUnit.SECONDS);
+        if (record) {
+            report(seconds);
+        }
+    }
+
+    private void send(boolean record) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(url).POST(HttpRequest.BodyPublishers.ofByteArray(payload))
+            .header("Content-Type", "application/json")
+            .header("X-GitHub-Event", event)
+            .header("X-GitHub-Delivery", UUID.randomUUID().toString());
+        if (signature != null) {
+            request.header("X-Hub-Signature-256", signature);
+        }
+        final long start = System.nanoTime();
+        try {
+            HttpResponse<Void> response = client.send(request.build(), HttpResponse.BodyHandlers.discarding());
+            if (response.statusCode() >= 300) {
+                errors.incrementAndGet();
+            }
+        } catch (IOException e) {
+            errors.incrementAndGet();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        final long sample = samples.getAndIncrement();
+        if (record && sample < MAX_SAMPLES) {
+            latencies[(int) sample] = System.nanoTime() - start;
+        }
+    }
+
+    private void report(int seconds) {
+        final int count = (int) Math.min(samples.get(), MAX_SAMPLES);
+        final long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        System.out.printf("Deliveries: %d, errors: %d, throughput: %.1f/s%n", samples.get(), errors.get(), samples.get() / (double) seconds);
+        System.out.printf("Latency ms - p50: %.2f, p90: %.2f, p99: %.2f, p99.9: %.2f, max: %.2f%n", percentile(sorted, 0.5),
+            percentile(sorted, 0.9), percentile(sorted, 0.99), percentile(sorted, 0.999), percentile(sorted, 1));
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1)] / 1_000_000.0;
+    }
+}
@@ -0,0 +1,86 @@
+package com.github.avano.pr.workflow.bus;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class PullRequestLanesTest {
+    private PullRequestLanes lanes;
+    private SimpleMeterRegistry registry;
+
+    @BeforeEach
+    public void setup() {
+        registry = new SimpleMeterRegistry();
+        lanes = new PullRequestLanes();
+        lanes.registry = registry;
+        lanes.start(4);
+    }
+
+    @AfterEach
+    public void stop() {
+        lanes.stop();
+    }
+
+    @Test
+    public void shouldProcessPullRequestEventsInOrderTest() throws Exception {
+        final List<Integer> processed = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch done = new CountDownLatch(100);
+        for (int i = 0; i < 100; i++) {
+            final int event = i;
+            lanes.execute("test/repo", 1337, () -> {
+                processed.add(event);
+                done.countDown();
+            });
+        }
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            expected.add(i);
+        }
+        assertThat(processed).isEqualTo(expected);
+        assertThat(registry.find("prw.lanes.wait").timers().stream().mapToLong(t -> t.count()).sum()).isEqualTo(100);
+    }
+
+    @Test
+    public void shouldProcessOtherPullRequestsInParallelTest() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch other = new CountDownLatch(1);
+        lanes.execute("test/repo", 1, () -> {
+            started.countDown();
+            try {
+                blocked.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        // Next pull request number is in the next lane
+        lanes.execute("test/repo", 2, other::countDown);
+        assertThat(other.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // Queued behind the blocked event
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        lanes.execute("test/repo", 1, () -> { });
+        assertThat(registry.find("prw.lanes.queue").gauges().stream().mapToDouble(g -> g.value()).sum()).isEqualTo(1);
+        blocked.countDown();
+    }
+
+    @Test
+    public void shouldExecuteRightAwayWithoutLanesTest() {
+        lanes.stop();
+        lanes.start(0);
+        final List<String> processed = new ArrayList<>();
+        lanes.execute("test/repo", 1337, () -> processed.add(Thread.currentThread().getName()));
+        assertThat(processed).containsExactly(Thread.currentThread().getName());
+    }
+}
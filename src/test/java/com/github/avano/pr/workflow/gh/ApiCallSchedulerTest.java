@@ -0,0 +1,124 @@
+package com.github.avano.pr.workflow.gh;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.kohsuke.github.GHRateLimit;
+
+import com.github.avano.pr.workflow.config.AuthMethod;
+import com.github.avano.pr.workflow.config.RepositoryConfig;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class ApiCallSchedulerTest {
+    private static final String BUDGET = "installation-1";
+
+    private ApiCallScheduler scheduler;
+    private SimpleMeterRegistry registry;
+    private final List<String> calls = new ArrayList<>();
+    private GHRateLimit.Record rateLimit;
+
+    @BeforeEach
+    public void setup() {
+        registry = new SimpleMeterRegistry();
+        scheduler = new ApiCallScheduler();
+        scheduler.registry = registry;
+        scheduler.reserve = 0.2;
+        calls.clear();
+    }
+
+    private void submit(ApiPriority priority, String name) {
+        scheduler.submit(BUDGET, () -> rateLimit, priority, name, () -> calls.add(name));
+    }
+
+    private static GHRateLimit.Record record(int remaining, Instant reset) {
+        return new GHRateLimit.Record(5000, remaining, reset.getEpochSecond());
+    }
+
+    @Test
+    public void shouldExecuteRightAwayWithUnknownRateLimitTest() {
+        submit(ApiPriority.COMMENT, "comment");
+        assertThat(calls).containsExactly("comment");
+    }
+
+    @Test
+    public void shouldDeferLowPriorityCallsNearLimitTest() {
+        final Instant reset = Instant.now().plusSeconds(3600);
+        // 5000 * 0.2 * 2 / 4 = 500 is kept for the check runs and review requests
+        rateLimit = record(600, reset);
+        submit(ApiPriority.COMMENT, "comment");
+        submit(ApiPriority.LABEL, "label");
+        submit(ApiPriority.REVIEW, "review");
+        submit(ApiPriority.CHECK_RUN, "check-run");
+        assertThat(calls).containsExactly("review", "check-run");
+        assertThat(registry.get("prw.github.ratelimit.queue").tag("budget", BUDGET).gauge().value()).isEqualTo(2);
+        assertThat(registry.get("prw.github.ratelimit.deferred").tag("priority", "comment").counter().count()).isEqualTo(1);
+
+        // Still the same window
+        scheduler.drain();
+        assertThat(calls).hasSize(2);
+
+        // New window with the reset limit, the deferred calls are executed in the priority order
+        rateLimit = record(5000, reset.plusSeconds(3600));
+        submit(ApiPriority.COMMENT, "new comment");
+        assertThat(calls).containsExactly("review", "check-run");
+        scheduler.drain();
+        assertThat(calls).containsExactly("review", "check-run", "label", "comment", "new comment");
+        assertThat(registry.get("prw.github.ratelimit.queue").tag("budget", BUDGET).gauge().value()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldExecuteDeferredVariantOfDeferredCallTest() {
+        final Instant reset = Instant.now().plusSeconds(3600);
+        rateLimit = record(600, reset);
+        scheduler.submit(BUDGET, () -> rateLimit, ApiPriority.LABEL, "label", () -> calls.add("label"), () -> calls.add("deferred label"));
+        scheduler.submit(BUDGET, () -> rateLimit, ApiPriority.REVIEW, "review", () -> calls.add("review"), () -> calls.add("deferred review"));
+        // New window with the reset limit
+        rateLimit = record(5000, reset.plusSeconds(3600));
+        submit(ApiPriority.CHECK_RUN, "check-run");
+        scheduler.drain();
+        assertThat(calls).containsExactly("review", "check-run", "deferred label");
+    }
+
+    @Test
+    public void shouldTrackRemainingRateLimitTest() {
+        rateLimit = record(700, Instant.now().plusSeconds(3600));
+        submit(ApiPriority.LABEL, "label");
+        submit(ApiPriority.REVIEW, "review");
+        submit(ApiPriority.CHECK_RUN, "check-run");
+        assertThat(calls).containsExactly("review", "check-run");
+        // Seeing the same rate limit again keeps the lower estimate
+        assertThat(registry.get("prw.github.ratelimit.remaining").tag("budget", BUDGET).gauge().value()).isEqualTo(698);
+    }
+
+    @Test
+    public void shouldCountDroppedCallsOnStopTest() {
+        rateLimit = record(600, Instant.now().plusSeconds(3600));
+        submit(ApiPriority.COMMENT, "comment");
+        submit(ApiPriority.LABEL, "label");
+        scheduler.stop();
+
+        assertThat(registry.get("prw.github.ratelimit.dropped").tag("priority", "comment").counter().count()).isEqualTo(1);
+        assertThat(registry.get("prw.github.ratelimit.dropped").tag("priority", "label").counter().count()).isEqualTo(1);
+        assertThat(registry.get("prw.github.ratelimit.queue").tag("budget", BUDGET).gauge().value()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldShareBudgetWithinInstallationTest() {
+        RepositoryConfig rcfg = new RepositoryConfig();
+        rcfg.setRepository("test/repo");
+        rcfg.setAuth(AuthMethod.APP);
+        rcfg.setInstallationId(1);
+        RepositoryConfig other = new RepositoryConfig();
+        other.setRepository("test/other");
+        other.setAuth(AuthMethod.APP);
+        other.setInstallationId(1);
+        assertThat(ApiCallScheduler.budgetName(rcfg)).isEqualTo(BUDGET).isEqualTo(ApiCallScheduler.budgetName(other));
+    }
+}
@@ -0,0 +1,90 @@
+package com.github.avano.pr.workflow.gh;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import org.bouncycastle.openssl.jcajce.JcaPEMWriter;
+
+import com.github.avano.pr.workflow.config.AuthMethod;
+import com.github.avano.pr.workflow.config.RepositoryConfig;
+import com.github.avano.pr.workflow.config.RepositoryConfigChangedEvent;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+
+public class AppCredentialsTest {
+    @TempDir
+    Path dir;
+
+    private KeyPair keyPair;
+    private Path keyFile;
+    private AppCredentials credentials;
+
+    @BeforeEach
+    public void setup() throws NoSuchAlgorithmException, IOException {
+        keyFile = dir.resolve("key.pem");
+        writeKey();
+        credentials = new AppCredentials();
+        credentials.init();
+    }
+
+    private void writeKey() throws NoSuchAlgorithmException, IOException {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        keyPair = generator.generateKeyPair();
+        try (Writer writer = Files.newBufferedWriter(keyFile); JcaPEMWriter pemWriter = new JcaPEMWriter(writer)) {
+            pemWriter.writeObject(keyPair);
+        }
+    }
+
+    private RepositoryConfig repositoryConfig(String privateKey) {
+        RepositoryConfig rcfg = new RepositoryConfig();
+        rcfg.setRepository("test/repo");
+        rcfg.setAuth(AuthMethod.APP);
+        rcfg.setAppId(1234);
+        rcfg.setPrivateKey(privateKey);
+        rcfg.validate();
+        return rcfg;
+    }
+
+    @Test
+    public void shouldCreateSignedJwtTest() {
+        String jwt = credentials.jwt(repositoryConfig(keyFile.toString()));
+        Claims claims = Jwts.parserBuilder().setSigningKey(keyPair.getPublic()).build().parseClaimsJws(jwt).getBody();
+        assertThat(claims.getIssuer()).isEqualTo("1234");
+        assertThat(claims.getExpiration().getTime() - claims.getIssuedAt().getTime()).isEqualTo(AppCredentials.JWT_EXPIRATION.toMillis());
+    }
+
+    @Test
+    public void shouldReuseJwtTest() throws IOException {
+        final String encodedKey = Base64.getEncoder().encodeToString(Files.readAllBytes(keyFile));
+        String jwt = credentials.jwt(repositoryConfig(keyFile.toString()));
+        assertThat(credentials.jwt(repositoryConfig(keyFile.toString()))).isSameAs(jwt);
+        assertThat(credentials.jwt(repositoryConfig(encodedKey))).isNotSameAs(jwt);
+    }
+
+    @Test
+    public void shouldReloadKeyOnConfigChangeTest() throws NoSuchAlgorithmException, IOException {
+        String jwt = credentials.jwt(repositoryConfig(keyFile.toString()));
+        // Cached key is used even though the file was deleted
+        Files.delete(keyFile);
+        assertThat(credentials.jwt(repositoryConfig(keyFile.toString()))).isSameAs(jwt);
+
+        writeKey();
+        credentials.onConfigChanged(new RepositoryConfigChangedEvent("test/repo"));
+        String newJwt = credentials.jwt(repositoryConfig(keyFile.toString()));
+        Jwts.parserBuilder().setSigningKey(keyPair.getPublic()).build().parseClaimsJws(newJwt);
+    }
+}
@@ -0,0 +1,139 @@
+package com.github.avano.pr.workflow.gh;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.avano.pr.workflow.config.AuthMethod;
+import com.github.avano.pr.workflow.config.RepositoryConfig;
+
+import javax.enterprise.inject.Vetoed;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class InstallationTokenCacheTest {
+    @Vetoed
+    private static class CountingTokenCache extends InstallationTokenCache {
+        private final List<Long> created = Collections.synchronizedList(new ArrayList<>());
+        private final List<String> repositories = Collections.synchronizedList(new ArrayList<>());
+        private Duration validity = Duration.ofHours(1);
+        private CountDownLatch blocked;
+
+        @Override
+        protected InstallationToken create(RepositoryConfig rcfg) {
+            if (blocked != null && rcfg.installationId() == 1) {
+                try {
+                    blocked.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            created.add(rcfg.installationId());
+            repositories.add(rcfg.repository());
+            return new InstallationToken(rcfg, "token-" + created.size(), Instant.now().plus(validity));
+        }
+    }
+
+    private RepositoryConfig repositoryConfig(String repository, long installationId) {
+        RepositoryConfig rcfg = new RepositoryConfig();
+        rcfg.setRepository(repository);
+        rcfg.setAuth(AuthMethod.APP);
+        rcfg.setAppId(1);
+        rcfg.setInstallationId(installationId);
+        return rcfg;
+    }
+
+    @Test
+    public void shouldShareTokenWithinInstallationTest() throws Exception {
+        CountingTokenCache cache = new CountingTokenCache();
+        assertThat(cache.token(repositoryConfig("test/repo", 1))).isEqualTo("token-1");
+        assertThat(cache.token(repositoryConfig("test/other", 1))).isEqualTo("token-1");
+        assertThat(cache.token(repositoryConfig("other/repo", 2))).isEqualTo("token-2");
+        assertThat(cache.created).containsExactly(1L, 2L);
+    }
+
+    @Test
+    public void shouldRefreshTokenBeforeExpiryTest() throws Exception {
+        CountingTokenCache cache = new CountingTokenCache();
+        cache.validity = InstallationTokenCache.REFRESH_BEFORE_EXPIRY.minusMinutes(1);
+        assertThat(cache.token(repositoryConfig("test/repo", 1))).isEqualTo("token-1");
+
+        cache.validity = Duration.ofHours(1);
+        cache.refresh();
+        assertThat(cache.created).hasSize(2);
+        assertThat(cache.token(repositoryConfig("test/repo", 1))).isEqualTo("token-2");
+
+        // Not close to the expiry anymore
+        cache.refresh();
+        assertThat(cache.created).hasSize(2);
+    }
+
+    @Test
+    public void shouldCreateExpiredTokenOnDemandTest() throws Exception {
+        CountingTokenCache cache = new CountingTokenCache();
+        cache.validity = Duration.ofSeconds(-1);
+        cache.token(repositoryConfig("test/repo", 1));
+        cache.validity = Duration.ofHours(1);
+        assertThat(cache.token(repositoryConfig("test/repo", 1))).isEqualTo("token-2");
+    }
+
+    @Test
+    public void shouldDropTokenOnConfigChangeOfOtherRepositoryTest() throws Exception {
+        CountingTokenCache cache = new CountingTokenCache();
+        assertThat(cache.token(repositoryConfig("test/repo", 1))).isEqualTo("token-1");
+
+        cache.invalidate("test/other", repositoryConfig("test/other", 1));
+        assertThat(cache.repositories).containsExactly("test/repo", "test/other");
+        assertThat(cache.token(repositoryConfig("test/repo", 1))).isEqualTo("token-2");
+
+        // The token is refreshed using the new configuration
+        cache.validity = InstallationTokenCache.REFRESH_BEFORE_EXPIRY.minusMinutes(1);
+        cache.invalidate("test/other", repositoryConfig("test/other", 1));
+        cache.refresh();
+        assertThat(cache.repositories).containsExactly("test/repo", "test/other", "test/other", "test/other");
+    }
+
+    @Test
+    public void shouldDropTokenOfRemovedRepositoryTest() throws Exception {
+        CountingTokenCache cache = new CountingTokenCache();
+        assertThat(cache.token(repositoryConfig("test/repo", 1))).isEqualTo("token-1");
+
+        cache.invalidate("test/repo", null);
+        assertThat(cache.token(repositoryConfig("test/other", 1))).isEqualTo("token-2");
+        assertThat(cache.repositories).containsExactly("test/repo", "test/other");
+    }
+
+    @Test
+    public void shouldNotBlockOtherInstallationsWhileCreatingTokenTest() throws Exception {
+        CountingTokenCache cache = new CountingTokenCache();
+        cache.blocked = new CountDownLatch(1);
+        try {
+            final CompletableFuture<String> blocked = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return cache.token(repositoryConfig("test/repo", 1));
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            assertThat(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return cache.token(repositoryConfig("other/repo", 2));
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }).get(2, TimeUnit.SECONDS)).isEqualTo("token-1");
+            assertThat(blocked).isNotDone();
+            cache.blocked.countDown();
+            assertThat(blocked.get(2, TimeUnit.SECONDS)).isEqualTo("token-2");
+        } finally {
+            cache.blocked.countDown();
+        }
+    }
+}
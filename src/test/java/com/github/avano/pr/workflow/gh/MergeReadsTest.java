@@ -0,0 +1,101 @@
+package com.github.avano.pr.workflow.gh;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class MergeReadsTest {
+    private ExecutorService executor;
+
+    @BeforeEach
+    public void setup() {
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @AfterEach
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void shouldLimitConcurrentReadsTest() throws IOException {
+        final MergeReads reads = new MergeReads(executor, 2, Duration.ofSeconds(10));
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final List<CompletableFuture<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            final int result = i;
+            futures.add(reads.start(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                running.decrementAndGet();
+                return result;
+            }));
+        }
+        release.countDown();
+
+        for (int i = 0; i < futures.size(); i++) {
+            assertThat(reads.await("read " + i, futures.get(i))).isEqualTo(i);
+        }
+        assertThat(maxRunning.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldFailAfterDeadlineTest() {
+        final MergeReads reads = new MergeReads(executor, 2, Duration.ofMillis(100));
+        final CountDownLatch release = new CountDownLatch(1);
+        final CompletableFuture<String> future = reads.start(() -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "checks";
+        });
+
+        assertThatThrownBy(() -> reads.await("check runs", future)).isInstanceOf(IOException.class)
+            .hasMessage("Unable to read check runs within PT0.1S");
+        release.countDown();
+    }
+
+    @Test
+    public void shouldRethrowReadErrorTest() {
+        final MergeReads reads = new MergeReads(executor, 2, Duration.ofSeconds(10));
+        final CompletableFuture<String> future = reads.start(() -> {
+            throw new IOException("Not found");
+        });
+
+        assertThatThrownBy(() -> reads.await("reviews", future)).isInstanceOf(IOException.class).hasMessage("Not found");
+    }
+
+    @Test
+    public void shouldReadInCallingThreadWithoutConcurrencyTest() throws IOException {
+        final MergeReads reads = new MergeReads(executor, 1, Duration.ofSeconds(10));
+        final CompletableFuture<String> first = reads.start(() -> Thread.currentThread().getName());
+        final CompletableFuture<String> second = reads.start(() -> Thread.currentThread().getName());
+
+        assertThat(first).isDone();
+        assertThat(second).isDone();
+        assertThat(reads.await("first", first)).isEqualTo(Thread.currentThread().getName());
+        assertThat(reads.await("second", second)).isEqualTo(Thread.currentThread().getName());
+    }
+}
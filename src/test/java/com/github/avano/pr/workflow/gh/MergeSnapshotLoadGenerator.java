@@ -0,0 +1,166 @@
+package com.github.avano.pr.workflow.gh;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.ok;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathMatching;
+
+import org.kohsuke.github.GHPullRequest;
+import org.kohsuke.github.GitHub;
+import org.kohsuke.github.GitHubBuilder;
+import org.kohsuke.github.authorization.AuthorizationProvider;
+import org.kohsuke.github.connector.GitHubConnector;
+
+import com.github.avano.pr.workflow.config.Configuration;
+import com.github.avano.pr.workflow.config.RepositoryConfig;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Arrays;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.quarkus.runtime.configuration.DurationConverter;
+import io.smallrye.config.SmallRyeConfigBuilder;
+
+/**
+ * Compares the end-to-end latency of the merge evaluation with the REST API reads done one after another and done concurrently, with
+ * WireMock adding a fixed latency to each response standing in for the GitHub API.
+ * <p>
+ * Each evaluation fetches the merge snapshot of a pull request that passes all merge rules and reads everything the rules read. It is in
+ * the <code>gh</code> package, as the snapshot classes are package-private. The evaluations are measured in two modes:
+ * <ul>
+ *     <li>cold - the protection of the base branch and the reviews are not cached, so each evaluation reads also the branch, its protection and
+ *     the reviews</li>
+ *     <li>warm - the protection and the reviews are cached, so each evaluation reads the pull request, check runs and statuses</li>
+ * </ul>
+ * Configured by the system properties:
+ * <ul>
+ *     <li>concurrencies - comma separated concurrencies of the reads to compare, defaults to 1,4</li>
+ *     <li>delay - latency of each response in milliseconds, defaults to 50</li>
+ *     <li>warmup - number of the warmup evaluations, defaults to 20</li>
+ *     <li>evaluations - number of the measured evaluations, defaults to 200</li>
+ * </ul>
+ */
+public class MergeSnapshotLoadGenerator {
+    private static final String REPOSITORY = "test/repo";
+    private static final int PULL_REQUEST = 1337;
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private final GHClient client;
+    private final MergeSnapshotFetcher fetcher = new MergeSnapshotFetcher();
+    private final Configuration configuration;
+
+    public static void main(String[] args) throws Exception {
+        final int delay = Integer.getInteger("delay", 50);
+        // The URLs in the pull request payload point to the port used by the tests
+        final WireMockServer server = new WireMockServer(WireMockConfiguration.options().port(29999)
+            .usingFilesUnderDirectory("src/test/resources").containerThreads(32));
+        server.start();
+        server.stubFor(get(urlPathEqualTo("/repos/test/repo")).willReturn(ok().withBodyFile("repository/repo.json").withFixedDelay(delay)));
+        server.stubFor(get(urlPathEqualTo("/repos/test/repo/pulls/1337"))
+            .willReturn(ok().withBodyFile("pullrequests/1337.json").withFixedDelay(delay)));
+        server.stubFor(get(urlPathEqualTo("/repos/test/repo/pulls/1337/reviews"))
+            .willReturn(ok().withBodyFile("reviews/approvedReviewOnly.json").withFixedDelay(delay)));
+        server.stubFor(get(urlPathEqualTo("/repos/test/repo/branches/master"))
+            .willReturn(ok().withBodyFile("merge/checks/branchProtection.json").withFixedDelay(delay)));
+        server.stubFor(get(urlPathEqualTo("/repos/test/repo/branches/master/protection"))
+            .willReturn(ok().withBodyFile("merge/checks/requiredChecks-status.json").withFixedDelay(delay)));
+        server.stubFor(get(urlPathMatching("/repos/test/repo/commits/asdfgh/check-runs"))
+            .willReturn(ok().withBodyFile("merge/checks/successCheckRuns.json").withFixedDelay(delay)));
+        server.stubFor(get(urlPathMatching("/repos/test/repo/(commits/asdfgh/)?statuses(/asdfgh)?"))
+            .willReturn(ok().withBodyFile("merge/checks/successStatus.json").withFixedDelay(delay)));
+        try {
+            for (String concurrency : System.getProperty("concurrencies", "1,4").split(",")) {
+                final MergeSnapshotLoadGenerator generator = new MergeSnapshotLoadGenerator("http://localhost:" + server.port(),
+                    Integer.parseInt(concurrency.trim()));
+                for (boolean cold : new boolean[] {true, false}) {
+                    System.out.printf("Warming up %s evaluations with concurrency %s and %d ms delay%n", cold ? "cold" : "warm", concurrency,
+                        delay);
+                    generator.run(Integer.getInteger("warmup", 20), cold, false);
+                    System.out.println("Measuring");
+                    generator.run(Integer.getInteger("evaluations", 200), cold, true);
+                }
+            }
+        } finally {
+            server.stop();
+        }
+    }
+
+    private MergeSnapshotLoadGenerator(String endpoint, int concurrency) throws IOException {
+        // The durations use the Quarkus format, as in the application
+        configuration = new SmallRyeConfigBuilder().withMapping(Configuration.class).withConverter(Duration.class, 100, new DurationConverter())
+            .withDefaultValue("prw.merge-snapshot-graphql", "false")
+            .withDefaultValue("prw.merge-reads.concurrency", Integer.toString(concurrency))
+            .build().getConfigMapping(Configuration.class);
+        final RepositoryConfig rcfg = new RepositoryConfig();
+        rcfg.setRepository(REPOSITORY);
+        final RepositoryCache repositories = new RepositoryCache();
+        repositories.configuration = configuration;
+        repositories.registry = registry;
+        final GitHub gitHub = new GitHubBuilder().withEndpoint(endpoint).build();
+        client = new GHClient(rcfg, gitHub, GitHubConnector.DEFAULT, AuthorizationProvider.ANONYMOUS, repositories, null);
+        fetcher.configuration = configuration;
+        fetcher.registry = registry;
+        fetcher.init();
+        reset();
+    }
+
+    private void reset() {
+        fetcher.requiredChecks = new RequiredChecksCache();
+        fetcher.requiredChecks.configuration = configuration;
+        fetcher.requiredChecks.registry = registry;
+        fetcher.reviewLedger = new ReviewLedger();
+        fetcher.reviewLedger.registry = registry;
+    }
+
+    private void run(int evaluations, boolean cold, boolean record) throws IOException {
+        final long[] latencies = new long[evaluations];
+        final GHPullRequest pr = client.getRepository().getPullRequest(PULL_REQUEST);
+        for (int i = 0; i < evaluations; i++) {
+            if (cold) {
+                reset();
+            }
+            final long start = System.nanoTime();
+            evaluate(pr);
+            latencies[i] = System.nanoTime() - start;
+        }
+        if (record) {
+            report(latencies);
+        }
+    }
+
+    /**
+     * Reads the snapshot in the same order as the merge rules do.
+     */
+    private void evaluate(GHPullRequest pr) throws IOException {
+        final MergeSnapshot snapshot = fetcher.fetch(client, pr);
+        snapshot.isMerged();
+        snapshot.isDraft();
+        snapshot.getLabels();
+        snapshot.getMergeable();
+        snapshot.getAuthor();
+        snapshot.getReviews();
+        snapshot.getRequestedReviewerCount();
+        if (snapshot.getRequiredChecks() == null || snapshot.getChecks().isEmpty()) {
+            throw new IllegalStateException("The checks were not read");
+        }
+    }
+
+    private static void report(long[] latencies) {
+        final long[] sorted = latencies.clone();
+        Arrays.sort(sorted);
+        System.out.printf("Evaluations: %d, latency ms - mean: %.2f, p50: %.2f, p90: %.2f, p99: %.2f, max: %.2f%n", sorted.length,
+            Arrays.stream(sorted).average().orElse(0) / 1_000_000.0, percentile(sorted, 0.5), percentile(sorted, 0.9),
+            percentile(sorted, 0.99), percentile(sorted, 1));
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1)] / 1_000_000.0;
+    }
+}
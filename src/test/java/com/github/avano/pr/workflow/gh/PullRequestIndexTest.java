@@ -0,0 +1,81 @@
+package com.github.avano.pr.workflow.gh;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.ok;
+import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+
+import org.junit.jupiter.api.Test;
+
+import org.kohsuke.github.GHCommitPointer;
+import org.kohsuke.github.GHPullRequest;
+
+import com.github.avano.pr.workflow.TestParent;
+import com.github.tomakehurst.wiremock.client.WireMock;
+
+import javax.inject.Inject;
+
+import java.util.concurrent.CompletableFuture;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.test.junit.QuarkusTest;
+
+@QuarkusTest
+public class PullRequestIndexTest extends TestParent {
+    private static final String SHA = "6dcb09b5b57875f334f61aebed695e2e4193db5e";
+    private static final String OPEN_PULL_REQUESTS = "/repos/" + TEST_REPO + "/pulls?state=open";
+
+    @Inject
+    PullRequestIndex index;
+
+    @Inject
+    MeterRegistry registry;
+
+    private double repairs() {
+        return registry.counter("prw.pr.index.repairs", "repository", TEST_REPO).count();
+    }
+
+    @Test
+    public void shouldRepairDriftedIndexTest() {
+        stubFor(WireMock.get(urlEqualTo(OPEN_PULL_REQUESTS)).willReturn(ok().withBody("[]")));
+        assertThat(index.getPullRequests(client, SHA)).isEmpty();
+
+        // The opened events were missed
+        stubFor(WireMock.get(urlEqualTo(OPEN_PULL_REQUESTS)).willReturn(ok().withBodyFile("checks/pullRequests.json")));
+        final double repairs = repairs();
+        index.verify();
+
+        assertThat(repairs()).isEqualTo(repairs + 1);
+        assertThat(index.getPullRequests(client, SHA)).extracting(GHPullRequest::getNumber).containsExactly(1, 3);
+        WireMock.verify(2, WireMock.getRequestedFor(urlEqualTo(OPEN_PULL_REQUESTS)));
+    }
+
+    @Test
+    public void shouldNotRepairIndexInSyncTest() {
+        stubFor(WireMock.get(urlEqualTo(OPEN_PULL_REQUESTS)).willReturn(ok().withBodyFile("checks/pullRequests.json")));
+        assertThat(index.getPullRequests(client, SHA)).hasSize(2);
+
+        final double repairs = repairs();
+        index.verify();
+
+        assertThat(repairs()).isEqualTo(repairs);
+    }
+
+    @Test
+    public void shouldKeepEventsAppliedDuringListingTest() {
+        stubFor(WireMock.get(urlEqualTo(OPEN_PULL_REQUESTS)).willReturn(ok().withBodyFile("checks/pullRequests.json")));
+        assertThat(index.getPullRequests(client, SHA)).hasSize(2);
+
+        // The listing is taken before the synchronize event
+        stubFor(WireMock.get(urlEqualTo(OPEN_PULL_REQUESTS)).willReturn(ok().withBodyFile("checks/pullRequests.json").withFixedDelay(1000)));
+        final CompletableFuture<Void> verify = CompletableFuture.runAsync(index::verify);
+        waitFor(() -> getRequests(WireMock.getRequestedFor(urlEqualTo(OPEN_PULL_REQUESTS))).size() == 2, 5);
+        index.update(TEST_REPO, getInstance(GHPullRequest.class, fields("number", 1, "head", getInstance(GHCommitPointer.class,
+            fields("sha", "updated")))));
+        verify.join();
+
+        assertThat(index.getPullRequests(client, "updated")).extracting(GHPullRequest::getNumber).containsExactly(1);
+        assertThat(index.getPullRequests(client, SHA)).extracting(GHPullRequest::getNumber).containsExactly(3);
+    }
+}
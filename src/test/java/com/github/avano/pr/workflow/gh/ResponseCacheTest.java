@@ -0,0 +1,65 @@
+package com.github.avano.pr.workflow.gh;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+public class ResponseCacheTest {
+    @TempDir
+    Path dir;
+
+    private ResponseCache.Entry entry(String etag, String body) {
+        Map<String, List<String>> headers = Collections.singletonMap("X-RateLimit-Remaining", Collections.singletonList("4999"));
+        return new ResponseCache.Entry(etag, headers, body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedEntryTest() {
+        ResponseCache cache = new ResponseCache(10, null, 0);
+        cache.put("a", entry("1", "12345"));
+        cache.put("b", entry("2", "12345"));
+        assertThat(cache.get("a")).isNotNull();
+        cache.put("c", entry("3", "12345"));
+        assertThat(cache.get("a")).isNotNull();
+        assertThat(cache.get("b")).isNull();
+        assertThat(cache.size()).isEqualTo(10);
+    }
+
+    @Test
+    public void shouldNotCacheEntryOverMaxSizeTest() {
+        ResponseCache cache = new ResponseCache(4, null, 0);
+        cache.put("a", entry("1", "12345"));
+        assertThat(cache.get("a")).isNull();
+    }
+
+    @Test
+    public void shouldReadSpilledEntryFromDiskTest() {
+        ResponseCache cache = new ResponseCache(5, dir.resolve("cache"), 100);
+        cache.put("a", entry("1", "12345"));
+        cache.put("b", entry("2", "67890"));
+        ResponseCache.Entry entry = cache.get("a");
+        assertThat(entry).isNotNull();
+        assertThat(entry.etag).isEqualTo("1");
+        assertThat(entry.headers).containsEntry("x-ratelimit-remaining", Collections.singletonList("4999"));
+        assertThat(new String(entry.body, StandardCharsets.UTF_8)).isEqualTo("12345");
+        // Now "b" was spilled
+        assertThat(cache.get("b")).isNotNull();
+    }
+
+    @Test
+    public void shouldBoundSpilledEntriesTest() {
+        ResponseCache cache = new ResponseCache(5, dir.resolve("cache"), 5);
+        cache.put("a", entry("1", "12345"));
+        cache.put("b", entry("2", "67890"));
+        cache.put("c", entry("3", "abcde"));
+        assertThat(cache.get("a")).isNull();
+        assertThat(cache.get("b")).isNotNull();
+    }
+}
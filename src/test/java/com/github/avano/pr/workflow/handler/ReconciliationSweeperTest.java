@@ -0,0 +1,112 @@
+package com.github.avano.pr.workflow.handler;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.ok;
+import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathMatching;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.kohsuke.github.GHPullRequest;
+
+import com.github.avano.pr.workflow.TestParent;
+import com.github.avano.pr.workflow.config.Configuration;
+import com.github.avano.pr.workflow.config.Constants;
+import com.github.avano.pr.workflow.message.BusMessage;
+import com.github.avano.pr.workflow.message.LabelsMessage;
+import com.github.tomakehurst.wiremock.client.WireMock;
+
+import javax.inject.Inject;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import io.quarkus.test.junit.QuarkusTest;
+
+@QuarkusTest
+public class ReconciliationSweeperTest extends TestParent {
+    private static final String CONFIG_FILE = "reconciliation.repoconfig";
+
+    @Inject
+    ReconciliationSweeper sweeper;
+
+    @Inject
+    ReconciliationHandler handler;
+
+    @Inject
+    MergeDecisions decisions;
+
+    @Inject
+    Configuration configuration;
+
+    @Override
+    @BeforeEach
+    public void setup() {
+        super.setup();
+        configuration.addRepositoryConfigFile(CONFIG_FILE, client.getRepositoryConfiguration());
+        stubFor(WireMock.get(urlPathEqualTo("/repos/" + TEST_REPO + "/pulls")).withQueryParam("sort", equalTo("updated"))
+            .willReturn(ok().withBodyFile("reconciliation/pullRequests.json")));
+    }
+
+    @AfterEach
+    public void removeConfig() {
+        configuration.deleteRepositoryConfigFile(CONFIG_FILE);
+    }
+
+    private List<Integer> reconciled(int count) {
+        waitForInvocationsAndAssert(Constants.PR_RECONCILE, count);
+        return getInvocations(Constants.PR_RECONCILE).stream().map(i -> ((BusMessage) i.getMessage()).get(GHPullRequest.class).getNumber())
+            .collect(Collectors.toList());
+    }
+
+    private int listings() {
+        return getRequests(WireMock.getRequestedFor(urlPathEqualTo("/repos/" + TEST_REPO + "/pulls"))).size();
+    }
+
+    @Test
+    public void shouldReconcileStalePullRequestsTest() {
+        // Evaluated after its last update
+        decisions.record(new MergeDecision(TEST_REPO, 1));
+        // Page, two reconciled pull requests and the end of the list
+        assertThat(sweeper.sweep(50)).isEqualTo(10);
+
+        // The recently updated pull request is left to its events
+        assertThat(reconciled(2)).containsExactly(1337, 3);
+    }
+
+    @Test
+    public void shouldStayWithinBudgetTest() {
+        assertThat(sweeper.sweep(6)).isEqualTo(5);
+        assertThat(reconciled(1)).containsExactly(1337);
+
+        // Continues with the same page
+        sweeper.sweep(50);
+        assertThat(reconciled(3)).containsExactly(1337, 1, 3);
+        assertThat(listings()).isEqualTo(1);
+
+        // The next walk ends at the pull requests not updated since the previous walk
+        sweeper.sweep(50);
+        assertThat(reconciled(3)).containsExactly(1337, 1, 3);
+        assertThat(listings()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldCorrectLabelsTest() {
+        stubFor(WireMock.get(urlPathMatching("/repos/" + TEST_REPO + "/pulls/\\d+/reviews"))
+            .willReturn(ok().withBodyFile("reviews/changesRequested.json")));
+        sweeper.sweep(5);
+        waitForInvocationsAndAssert(Constants.PR_RECONCILE, 1);
+        handler.reconcile((BusMessage) getInvocations(Constants.PR_RECONCILE).get(0).getMessage());
+
+        waitForInvocationsAndAssert(Constants.EDIT_LABELS, 1);
+        LabelsMessage labels = ((BusMessage) getInvocations(Constants.EDIT_LABELS).get(0).getMessage()).get(LabelsMessage.class);
+        assertThat(labels.getAddLabels()).containsExactly("changes-requested");
+        assertThat(labels.getRemoveLabels()).containsExactly("approved");
+        waitForInvocationsAndAssert(Constants.PR_MERGE, 1);
+    }
+}
@@ -0,0 +1,165 @@
+package com.github.avano.pr.workflow.journal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+public class JournalTest {
+    @TempDir
+    Path dir;
+
+    private List<String> readAll(Journal journal, long offset) throws IOException {
+        List<String> records = new ArrayList<>();
+        journal.read(offset, Integer.MAX_VALUE, (at, event, payload) -> records.add(event + ":" + new String(payload, StandardCharsets.UTF_8)));
+        return records;
+    }
+
+    private long segmentCount() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.count();
+        }
+    }
+
+    @Test
+    public void shouldReadAppendedRecordsTest() throws Exception {
+        try (Journal journal = new Journal(dir, 1024, 16, i -> { })) {
+            final long first = journal.append("status", "{\"a\":1}".getBytes(StandardCharsets.UTF_8)).get();
+            journal.append("check_run", "{\"b\":2}".getBytes(StandardCharsets.UTF_8)).get();
+            assertThat(journal.committed()).isGreaterThan(first);
+            assertThat(readAll(journal, 0)).containsExactly("status:{\"a\":1}", "check_run:{\"b\":2}");
+            assertThat(readAll(journal, first)).containsExactly("check_run:{\"b\":2}");
+        }
+    }
+
+    @Test
+    public void shouldStopAtNotAcceptedRecordTest() throws Exception {
+        try (Journal journal = new Journal(dir, 1024, 16, i -> { })) {
+            final long first = journal.append("status", "{}".getBytes(StandardCharsets.UTF_8)).get();
+            journal.append("check_run", "{}".getBytes(StandardCharsets.UTF_8)).get();
+            final List<String> records = new ArrayList<>();
+            assertThat(journal.read(0, Integer.MAX_VALUE, (at, event, payload) -> "status".equals(event) && records.add(event))).isEqualTo(first);
+            assertThat(records).containsExactly("status");
+        }
+    }
+
+    @Test
+    public void shouldRecoverAfterReopenTest() throws Exception {
+        long committed;
+        try (Journal journal = new Journal(dir, 1024, 16, i -> { })) {
+            journal.append("status", "{}".getBytes(StandardCharsets.UTF_8)).get();
+            committed = journal.committed();
+        }
+        try (Journal journal = new Journal(dir, 1024, 16, i -> { })) {
+            assertThat(journal.committed()).isEqualTo(committed);
+            journal.append("status", "{\"c\":3}".getBytes(StandardCharsets.UTF_8)).get();
+            assertThat(readAll(journal, 0)).containsExactly("status:{}", "status:{\"c\":3}");
+        }
+    }
+
+    @Test
+    public void shouldTruncateTornTailTest() throws Exception {
+        long committed;
+        try (Journal journal = new Journal(dir, 1024, 16, i -> { })) {
+            journal.append("status", "{}".getBytes(StandardCharsets.UTF_8)).get();
+            committed = journal.committed();
+        }
+        // Simulate a record that was only partially written before a crash
+        Files.write(dir.resolve(String.format("%020d.log", 0)), new byte[] {0, 0, 0, 100, 1, 2, 3}, StandardOpenOption.APPEND);
+        try (Journal journal = new Journal(dir, 1024, 16, i -> { })) {
+            assertThat(journal.committed()).isEqualTo(committed);
+            assertThat(readAll(journal, 0)).containsExactly("status:{}");
+        }
+    }
+
+    @Test
+    public void shouldRollAndDeleteSegmentsTest() throws Exception {
+        final byte[] payload = new byte[100];
+        try (Journal journal = new Journal(dir, 256, 16, i -> { })) {
+            long last = 0;
+            for (int i = 0; i < 10; i++) {
+                last = journal.append("status", payload).get();
+            }
+            assertThat(segmentCount()).isGreaterThan(1);
+            assertThat(readAll(journal, 0)).hasSize(10);
+
+            journal.deleteBefore(last);
+            assertThat(segmentCount()).isEqualTo(1);
+            assertThat(journal.first()).isGreaterThan(0);
+        }
+    }
+
+    @Test
+    public void shouldBatchConcurrentAppendsTest() throws Exception {
+        List<Integer> batches = new ArrayList<>();
+        try (Journal journal = new Journal(dir, 1 << 20, 64, batches::add)) {
+            List<CompletableFuture<Long>> futures = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                futures.add(journal.append("status", "{}".getBytes(StandardCharsets.UTF_8)));
+            }
+            for (CompletableFuture<Long> future : futures) {
+                future.get();
+            }
+            assertThat(batches.stream().mapToInt(Integer::intValue).sum()).isEqualTo(100);
+            assertThat(batches).allMatch(b -> b <= 64);
+        }
+    }
+
+    @Test
+    public void shouldTruncateFailedBatchTest() throws Exception {
+        final byte[] payload = new byte[100];
+        final CountDownLatch flushed = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        try (Journal journal = new Journal(dir, 256, 16, i -> {
+            if (flushed.getCount() > 0) {
+                flushed.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        })) {
+            journal.append("a", payload);
+            assertThat(flushed.await(5, TimeUnit.SECONDS)).isTrue();
+            // Queued while the writer is blocked, so written in one batch, the second record fails to start the next segment
+            final Path next = Files.createFile(dir.resolve(String.format("%020d.log", 2 * journal.committed())));
+            final CompletableFuture<Long> written = journal.append("b", payload);
+            final CompletableFuture<Long> failed = journal.append("c", payload);
+            release.countDown();
+            assertThatThrownBy(() -> failed.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(IOException.class);
+            assertThat(written).isCompletedExceptionally();
+
+            Files.delete(next);
+            journal.append("d", payload).get(5, TimeUnit.SECONDS);
+            assertThat(readAll(journal, 0)).extracting(r -> r.substring(0, r.indexOf(':'))).containsExactly("a", "d");
+        }
+    }
+
+    @Test
+    public void shouldDetectCorruptedRecordTest() throws Exception {
+        try (Journal journal = new Journal(dir, 1024, 16, i -> { })) {
+            journal.append("status", "{\"a\":1}".getBytes(StandardCharsets.UTF_8)).get();
+            journal.append("status", "{\"b\":2}".getBytes(StandardCharsets.UTF_8)).get();
+            try (FileChannel channel = FileChannel.open(dir.resolve(String.format("%020d.log", 0)), StandardOpenOption.WRITE)) {
+                channel.write(ByteBuffer.wrap(new byte[] {'x'}), 18);
+            }
+            assertThatThrownBy(() -> readAll(journal, 0)).isInstanceOf(IOException.class).hasMessage("Corrupted journal record at offset 0");
+        }
+    }
+}
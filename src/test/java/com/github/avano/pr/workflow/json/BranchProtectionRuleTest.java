@@ -0,0 +1,53 @@
+package com.github.avano.pr.workflow.json;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.findAll;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.ok;
+import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.avano.pr.workflow.gh.RequiredChecksCache;
+import com.github.avano.pr.workflow.handler.json.BranchProtectionRule;
+import com.github.tomakehurst.wiremock.client.WireMock;
+
+import javax.inject.Inject;
+
+import io.quarkus.test.junit.QuarkusTest;
+
+@QuarkusTest
+public class BranchProtectionRuleTest extends JsonHandlerTest {
+    private static final String PROTECTION_URL = "/repos/" + TEST_REPO + "/branches/master/protection";
+
+    @Inject
+    BranchProtectionRule branchProtectionRule;
+
+    @Inject
+    RequiredChecksCache requiredChecks;
+
+    private int protectionRequests() {
+        return findAll(getRequestedFor(urlEqualTo(PROTECTION_URL))).size();
+    }
+
+    @Test
+    public void shouldCacheNotProtectedBranchTest() {
+        assertThat(requiredChecks.get(client, "master")).isNull();
+        assertThat(requiredChecks.get(client, "master")).isNull();
+        assertThat(protectionRequests()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldInvalidateRequiredChecksOnBranchProtectionRuleEventTest() {
+        assertThat(requiredChecks.get(client, "master")).isNull();
+
+        stubFor(WireMock.get(urlEqualTo(PROTECTION_URL)).willReturn(ok().withBodyFile("merge/checks/requiredChecks-status.json")));
+        branchProtectionRule.handleBranchProtectionRuleEvent(jsonBody("branchProtectionRuleEdited.json"));
+
+        assertThat(requiredChecks.get(client, "master")).containsOnly("Jenkins PR build 1", "Jenkins PR build 2");
+        assertThat(requiredChecks.get(client, "master")).containsOnly("Jenkins PR build 1", "Jenkins PR build 2");
+        assertThat(protectionRequests()).isEqualTo(2);
+    }
+}
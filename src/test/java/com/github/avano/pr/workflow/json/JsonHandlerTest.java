@@ -1,14 +1,24 @@
 package com.github.avano.pr.workflow.json;
 
+import static org.junit.jupiter.api.Assertions.fail;
+
 import com.github.avano.pr.workflow.TestParent;
+import com.github.avano.pr.workflow.message.WebhookMessage;
 import com.github.avano.pr.workflow.util.IOUtils;
+import com.github.avano.pr.workflow.util.PayloadScanner;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Paths;
 
-import io.vertx.core.json.JsonObject;
-
 public class JsonHandlerTest extends TestParent {
-    protected JsonObject jsonBody(String fileName) {
-        return new JsonObject(IOUtils.readFile(Paths.get("src", "test", "resources", "__files", "endpoint", fileName)));
+    protected WebhookMessage jsonBody(String fileName) {
+        try {
+            return PayloadScanner.scan(IOUtils.readFile(Paths.get("src", "test", "resources", "__files", "endpoint", fileName))
+                .getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            fail("Unable to read payload", e);
+        }
+        return null;
     }
 }
@@ -2,13 +2,19 @@ package com.github.avano.pr.workflow.json;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import static com.github.tomakehurst.wiremock.client.WireMock.ok;
+import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+
 import org.junit.jupiter.api.Test;
 
 import org.kohsuke.github.GHPullRequest;
 
 import com.github.avano.pr.workflow.config.Constants;
+import com.github.avano.pr.workflow.gh.PullRequestIndex;
 import com.github.avano.pr.workflow.handler.json.PullRequest;
 import com.github.avano.pr.workflow.message.BusMessage;
+import com.github.tomakehurst.wiremock.client.WireMock;
 
 import javax.inject.Inject;
 
@@ -19,6 +25,9 @@ public class PullRequestTest extends JsonHandlerTest {
     @Inject
     PullRequest pullRequest;
 
+    @Inject
+    PullRequestIndex index;
+
     @Test
     public void shouldSendPrReopenedMessageTest() {
         pullRequest.handlePullRequestEvent(jsonBody("prReopened.json"));
@@ -101,4 +110,30 @@ public class PullRequestTest extends JsonHandlerTest {
         waitForInvocations(1);
         assertThat(busInvocations).isEmpty();
     }
+
+    @Test
+    public void shouldUpdateIndexWithSynchronizedPrTest() {
+        final String sha = "ec26c3e57ca3a959ca5aad62de7213c562f8c821";
+        stubFor(WireMock.get(urlEqualTo("/repos/" + TEST_REPO + "/pulls?state=open"))
+            .willReturn(ok().withBodyFile("checks/pullRequests.json")));
+        assertThat(index.getPullRequests(client, sha)).isEmpty();
+
+        pullRequest.handlePullRequestEvent(jsonBody("prSynchronized.json"));
+        assertThat(index.getPullRequests(client, sha)).extracting(GHPullRequest::getNumber).containsExactly(12);
+        assertThat(index.getPullRequests(client, "6dcb09b5b57875f334f61aebed695e2e4193db5e"))
+            .extracting(GHPullRequest::getNumber).containsExactly(1, 3);
+        WireMock.verify(1, WireMock.getRequestedFor(urlEqualTo("/repos/" + TEST_REPO + "/pulls?state=open")));
+    }
+
+    @Test
+    public void shouldRemoveClosedPrFromIndexTest() {
+        final String sha = "ec26c3e57ca3a959ca5aad62de7213c562f8c821";
+        stubFor(WireMock.get(urlEqualTo("/repos/" + TEST_REPO + "/pulls?state=open"))
+            .willReturn(ok().withBody("[{\"number\": 17, \"head\": {\"sha\": \"" + sha + "\"}}]")));
+        assertThat(index.getPullRequests(client, sha)).extracting(GHPullRequest::getNumber).containsExactly(17);
+
+        pullRequest.handlePullRequestEvent(jsonBody("prClosed.json"));
+        assertThat(index.getPullRequests(client, sha)).isEmpty();
+        WireMock.verify(1, WireMock.getRequestedFor(urlEqualTo("/repos/" + TEST_REPO + "/pulls?state=open")));
+    }
 }
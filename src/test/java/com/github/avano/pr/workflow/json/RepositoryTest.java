@@ -0,0 +1,64 @@
+package com.github.avano.pr.workflow.json;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.findAll;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.github.avano.pr.workflow.gh.RepositoryCache;
+import com.github.avano.pr.workflow.handler.json.Repository;
+
+import javax.inject.Inject;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.test.junit.QuarkusTest;
+
+@QuarkusTest
+public class RepositoryTest extends JsonHandlerTest {
+    @Inject
+    Repository repository;
+
+    @Inject
+    RepositoryCache repositories;
+
+    @Inject
+    MeterRegistry registry;
+
+    @BeforeEach
+    public void setup() {
+        super.setup();
+        repositories.invalidate(TEST_REPO);
+    }
+
+    private int repositoryRequests() {
+        return findAll(getRequestedFor(urlEqualTo("/repos/" + TEST_REPO))).size();
+    }
+
+    private double cacheLookups(String result) {
+        return registry.counter("prw.github.repository.cache", "result", result).count();
+    }
+
+    @Test
+    public void shouldReuseCachedRepositoryTest() {
+        final int requests = repositoryRequests();
+        final double hits = cacheLookups("hit");
+        final double misses = cacheLookups("miss");
+        assertThat(client.getRepository()).isSameAs(client.getRepository());
+        assertThat(repositoryRequests()).isEqualTo(requests + 1);
+        assertThat(cacheLookups("hit")).isEqualTo(hits + 1);
+        assertThat(cacheLookups("miss")).isEqualTo(misses + 1);
+    }
+
+    @Test
+    public void shouldInvalidateCachedRepositoryOnRepositoryEventTest() {
+        final int requests = repositoryRequests();
+        client.getRepository();
+        repository.handleRepositoryEvent(jsonBody("repositoryEdited.json"));
+        client.getRepository();
+        assertThat(repositoryRequests()).isEqualTo(requests + 2);
+    }
+}
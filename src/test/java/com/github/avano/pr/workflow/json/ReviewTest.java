@@ -2,6 +2,9 @@ package com.github.avano.pr.workflow.json;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+
 import org.junit.jupiter.api.Test;
 
 import org.kohsuke.github.GHPullRequest;
@@ -9,11 +12,16 @@ import org.kohsuke.github.GHPullRequestReview;
 import org.kohsuke.github.GHPullRequestReviewState;
 
 import com.github.avano.pr.workflow.config.Constants;
+import com.github.avano.pr.workflow.gh.ReviewLedger;
 import com.github.avano.pr.workflow.handler.json.Review;
 import com.github.avano.pr.workflow.message.BusMessage;
+import com.github.tomakehurst.wiremock.client.WireMock;
 
 import javax.inject.Inject;
 
+import java.util.Map;
+import java.util.stream.Collectors;
+
 import io.quarkus.test.junit.QuarkusTest;
 
 @QuarkusTest
@@ -21,6 +29,13 @@ public class ReviewTest extends JsonHandlerTest {
     @Inject
     Review review;
 
+    @Inject
+    ReviewLedger reviewLedger;
+
+    private Map<String, GHPullRequestReviewState> reviews(GHPullRequest pr) {
+        return reviewLedger.getReviews(client, pr).entrySet().stream().collect(Collectors.toMap(e -> e.getKey().getLogin(), Map.Entry::getValue));
+    }
+
     @Test
     public void shouldSendReviewSubmittedMessageTest() {
         review.handleReviewEvent(jsonBody("reviewSubmitted.json"));
@@ -48,4 +63,28 @@ public class ReviewTest extends JsonHandlerTest {
         waitForInvocations(1);
         assertThat(busInvocations).isEmpty();
     }
+
+    @Test
+    public void shouldRecordSubmittedReviewTest() {
+        GHPullRequest pr = loadPullRequest(2);
+        assertThat(reviews(pr)).containsOnly(Map.entry("approved", GHPullRequestReviewState.APPROVED));
+
+        review.handleReviewEvent(jsonBody("reviewSubmitted.json"));
+        assertThat(reviews(pr)).containsOnly(Map.entry("approved", GHPullRequestReviewState.APPROVED),
+            Map.entry("Codertocat", GHPullRequestReviewState.COMMENTED));
+        WireMock.verify(1, getRequestedFor(urlPathEqualTo("/repos/" + TEST_REPO + "/pulls/2/reviews")));
+    }
+
+    @Test
+    public void shouldRecordDismissedReviewTest() {
+        GHPullRequest pr = loadPullRequest(2);
+        review.handleReviewEvent(jsonBody("reviewSubmitted.json"));
+        // Not tracked before the first use, listed from the API
+        assertThat(reviews(pr)).containsOnlyKeys("approved");
+
+        review.handleReviewEvent(jsonBody("reviewSubmitted.json"));
+        review.handleReviewEvent(jsonBody("reviewDismissed.json"));
+        assertThat(reviews(pr)).containsEntry("Codertocat", GHPullRequestReviewState.DISMISSED);
+        WireMock.verify(1, getRequestedFor(urlPathEqualTo("/repos/" + TEST_REPO + "/pulls/2/reviews")));
+    }
 }
@@ -1,24 +1,25 @@
 package com.github.avano.pr.workflow.mock;
 
-import static org.junit.jupiter.api.Assertions.fail;
-
+import org.kohsuke.github.GitHub;
 import org.kohsuke.github.GitHubBuilder;
+import org.kohsuke.github.authorization.AuthorizationProvider;
+import org.kohsuke.github.connector.GitHubConnector;
 
 import com.github.avano.pr.workflow.config.RepositoryConfig;
+import com.github.avano.pr.workflow.gh.ApiCallScheduler;
 import com.github.avano.pr.workflow.gh.GHClient;
-
-import javax.enterprise.context.ApplicationScoped;
+import com.github.avano.pr.workflow.gh.RepositoryCache;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 
-import io.quarkus.test.Mock;
-
-@Mock
-@ApplicationScoped
 public class GHClientMock extends GHClient {
-    @Override
-    public boolean init(String repository) {
-        this.rcfg = new RepositoryConfig();
+    public GHClientMock(String repository, RepositoryCache repositories, GitHubConnector connector, ApiCallScheduler scheduler) {
+        super(repositoryConfig(repository), gitHub(connector), connector, AuthorizationProvider.ANONYMOUS, repositories, scheduler);
+    }
+
+    private static RepositoryConfig repositoryConfig(String repository) {
+        RepositoryConfig rcfg = new RepositoryConfig();
         rcfg.setRepository(repository);
 
         rcfg.setApprovedLabels("approved");
@@ -31,11 +32,14 @@ public class GHClientMock extends GHClient {
         rcfg.setReviewDismissMessage("Dismiss");
 
         rcfg.setWebhookSecret("testsecret");
+        return rcfg;
+    }
+
+    private static GitHub gitHub(GitHubConnector connector) {
         try {
-            gitHub = new GitHubBuilder().withEndpoint("http://localhost:29999").build();
+            return new GitHubBuilder().withEndpoint("http://localhost:29999").withConnector(connector).build();
         } catch (IOException e) {
-            fail("Unable to create GitHub client instance", e);
+            throw new UncheckedIOException("Unable to create GitHub client instance", e);
         }
-        return true;
     }
 }
@@ -0,0 +1,30 @@
+package com.github.avano.pr.workflow.mock;
+
+import com.github.avano.pr.workflow.gh.ApiCallScheduler;
+import com.github.avano.pr.workflow.gh.CachingGitHubConnector;
+import com.github.avano.pr.workflow.gh.GHClient;
+import com.github.avano.pr.workflow.gh.GHClientRegistry;
+import com.github.avano.pr.workflow.gh.RepositoryCache;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import io.quarkus.test.Mock;
+
+@Mock
+@ApplicationScoped
+public class GHClientRegistryMock extends GHClientRegistry {
+    @Inject
+    RepositoryCache repositoryCache;
+
+    @Inject
+    CachingGitHubConnector gitHubConnector;
+
+    @Inject
+    ApiCallScheduler apiCallScheduler;
+
+    @Override
+    protected GHClient createClient(String repository) {
+        return new GHClientMock(repository, repositoryCache, gitHubConnector, apiCallScheduler);
+    }
+}
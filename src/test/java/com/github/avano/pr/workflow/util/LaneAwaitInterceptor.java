@@ -0,0 +1,55 @@
+package com.github.avano.pr.workflow.util;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.kohsuke.github.GHPullRequest;
+
+import com.github.avano.pr.workflow.bus.PullRequestLanes;
+import com.github.avano.pr.workflow.handler.interceptor.Lane;
+import com.github.avano.pr.workflow.handler.interceptor.LaneInterceptor;
+import com.github.avano.pr.workflow.message.BusMessage;
+
+import javax.annotation.Priority;
+import javax.inject.Inject;
+import javax.interceptor.AroundInvoke;
+import javax.interceptor.Interceptor;
+import javax.interceptor.InvocationContext;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Waits until the handler moved to the lane of the pull request by the {@link LaneInterceptor} is processed, so that the tests invoking
+ * the handlers directly run them in the lanes and still see their results right after the invocation.
+ */
+@Lane
+@Priority(-2)
+@Interceptor
+public class LaneAwaitInterceptor {
+    @Inject
+    PullRequestLanes lanes;
+
+    @ConfigProperty(name = "test.await-lanes", defaultValue = "false")
+    boolean await;
+
+    @AroundInvoke
+    Object awaitLane(InvocationContext context) throws Exception {
+        final Object result = context.proceed();
+        final Object[] parameters = context.getParameters();
+        // The invocations from the lane itself would wait for themselves
+        if (!await || Thread.currentThread().getName().startsWith("pr-lane-") || parameters.length != 1
+            || !(parameters[0] instanceof BusMessage)) {
+            return result;
+        }
+        final BusMessage msg = (BusMessage) parameters[0];
+        final GHPullRequest pr = msg.pullRequest();
+        if (pr != null) {
+            final CountDownLatch processed = new CountDownLatch(1);
+            // The lane processes the tasks in order, so this runs after the handler
+            lanes.execute(msg.client().getRepositoryConfiguration().repository(), pr.getNumber(), processed::countDown);
+            if (!processed.await(10, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("PR #" + pr.getNumber() + " was not processed in its lane");
+            }
+        }
+        return result;
+    }
+}